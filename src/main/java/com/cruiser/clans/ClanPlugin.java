@@ -6,11 +6,15 @@ import java.util.logging.Level;
 import org.bukkit.plugin.java.JavaPlugin;
 import org.slf4j.Logger;
 
+import com.cruiser.clans.cache.ClanRegistry;
 import com.cruiser.clans.command.ClanAdminCommand;
 import com.cruiser.clans.command.ClanCommand;
+import com.cruiser.clans.config.ClanSettings;
 import com.cruiser.clans.listener.ChatListener;
 import com.cruiser.clans.listener.PlayerListener;
+import com.cruiser.clans.listener.RegionEnvironmentListener;
 import com.cruiser.clans.listener.RegionMarkerListener;
+import com.cruiser.clans.listener.RegionMoveListener;
 import com.cruiser.clans.listener.RegionProtectionListener;
 import com.cruiser.clans.orm.DataManager;
 import com.cruiser.clans.orm.Database;
@@ -19,6 +23,7 @@ import com.cruiser.clans.service.ClanChatService;
 import com.cruiser.clans.service.ClanMemberService;
 import com.cruiser.clans.service.ClanRegionService;
 import com.cruiser.clans.service.ClanService;
+import com.cruiser.clans.util.HandlerTimings;
 
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.format.NamedTextColor;
@@ -26,9 +31,12 @@ import net.kyori.adventure.text.format.NamedTextColor;
 public final class ClanPlugin extends JavaPlugin {
     
     private Logger slf4jLogger;
+    // Заменяется целиком при перезагрузке, читается без блокировок
+    private volatile ClanSettings settings;
     private Database database;
     private DataManager dataManager;
     private ClanDisplayService displayService;
+    private final HandlerTimings handlerTimings = new HandlerTimings();
     private ClanService clanService;
     private ClanMemberService memberService;
     private ClanChatService chatService;
@@ -43,6 +51,7 @@ public final class ClanPlugin extends JavaPlugin {
         
         // Сохраняем конфиг по умолчанию
         saveDefaultConfig();
+        this.settings = ClanSettings.load(getConfig(), getLogger());
         
         try {
             // Инициализация ORM
@@ -52,7 +61,24 @@ public final class ClanPlugin extends JavaPlugin {
             
             // Инициализация менеджера данных
             this.dataManager = new DataManager(this, database);
-            
+
+            // Загрузка всех кланов и регионов в память одним проходом
+            long registryStart = System.nanoTime();
+            ClanRegistry registry = dataManager.loadRegistry().join();
+            getComponentLogger().info(Component.text(String.format(
+                "Реестр кланов загружен: %d кланов, %d регионов, %d игроков за %d мс (~%d КБ)",
+                registry.clanCount(), registry.regionCount(), dataManager.getKnownPlayerCount(),
+                (System.nanoTime() - registryStart) / 1_000_000,
+                registry.estimateMemoryBytes() / 1024), NamedTextColor.GREEN));
+
+            // Сессии и состав кланов для игроков, уже находящихся на сервере (перезагрузка плагина)
+            for (var online : getServer().getOnlinePlayers()) {
+                dataManager.openSession(online.getUniqueId())
+                    .thenCompose(v -> dataManager.findPlayerByUuid(online.getUniqueId()))
+                    .thenAccept(opt -> dataManager.getRoster().join(online, opt
+                        .filter(p -> p.isInClan()).map(p -> p.getClan().getId()).orElse(null)));
+            }
+
             // Инициализация сервисов
             this.displayService = new ClanDisplayService(this);
             this.clanService = new ClanService(this, displayService);
@@ -92,7 +118,10 @@ public final class ClanPlugin extends JavaPlugin {
             chatService.clearAllChatModes();
         }
 
-        // Закрытие ORM
+        // Запись отложенных изменений и закрытие ORM
+        if (dataManager != null) {
+            dataManager.shutdown();
+        }
         if (database != null) {
             database.stop();
         }
@@ -141,18 +170,43 @@ public final class ClanPlugin extends JavaPlugin {
         pm.registerEvents(new PlayerListener(this), this);
         pm.registerEvents(new ChatListener(this), this);
 
-        if (getConfig().getBoolean("regions.enabled", true)) {
+        if (settings.regionsEnabled()) {
             pm.registerEvents(new RegionProtectionListener(this), this);
             pm.registerEvents(new RegionMarkerListener(this), this);
+            pm.registerEvents(new RegionMoveListener(this), this);
+            pm.registerEvents(new RegionEnvironmentListener(this), this);
+        }
+    }
+    
+    /**
+     * Перечитать config.yml и атомарно заменить снимок настроек
+     */
+    public void reloadSettings() {
+        reloadConfig();
+        this.settings = ClanSettings.load(getConfig(), getLogger());
+        if (displayService != null) {
+            displayService.reload();
         }
     }
     
     // Геттеры для доступа к сервисам
     
+    public ClanSettings getSettings() {
+        return settings;
+    }
+    
+    public Database getDatabase() {
+        return database;
+    }
+    
     public DataManager getData() {
         return dataManager;
     }
     
+    public HandlerTimings getHandlerTimings() {
+        return handlerTimings;
+    }
+    
     public ClanDisplayService getDisplayService() {
         return displayService;
     }
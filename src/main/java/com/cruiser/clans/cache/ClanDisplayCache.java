@@ -0,0 +1,60 @@
+package com.cruiser.clans.cache;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.cruiser.clans.config.ClanSettings;
+import com.cruiser.clans.orm.entity.ClanEntity;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.format.TextColor;
+
+/**
+ * Prebuilt tag components per clan, so chat rendering and tab/nametag updates do not
+ * resolve colors or build components per message.
+ * <p>
+ * An entry remembers the tag, level and settings snapshot it was built from and is
+ * rebuilt when any of them differs, so level-ups, tag changes and config reloads never
+ * serve a stale prefix even if an explicit invalidation is missed.
+ */
+public final class ClanDisplayCache {
+
+    /**
+     * Resolved display of one clan. {@code prefix} is the colored {@code "[TAG] "} used
+     * in chat, the tab list and the nametag team prefix. {@code ownPrefix} is the nametag
+     * prefix the clan's own members see; equal to {@code prefix} without an own-clan color.
+     */
+    public record ClanDisplay(String tag, int level, TextColor color, Component prefix, Component ownPrefix,
+                              ClanSettings settings) {}
+
+    private final Map<Integer, ClanDisplay> byClan = new ConcurrentHashMap<>();
+
+    /**
+     * Display of {@code clan} under {@code settings}, built on first use or after a change.
+     */
+    public ClanDisplay get(ClanEntity clan, ClanSettings settings) {
+        ClanDisplay d = byClan.get(clan.getId());
+        if (d != null && d.settings() == settings && d.level() == clan.getClanLevel() && d.tag().equals(clan.getTag())) {
+            return d;
+        }
+        TextColor color = settings.tagColor(clan.getClanLevel());
+        Component prefix = Component.text("[" + clan.getTag() + "] ", color);
+        TextColor own = settings.ownClanColor();
+        d = new ClanDisplay(clan.getTag(), clan.getClanLevel(), color, prefix,
+            own == null ? prefix : Component.text("[" + clan.getTag() + "] ", own), settings);
+        byClan.put(clan.getId(), d);
+        return d;
+    }
+
+    public void invalidate(Integer clanId) {
+        byClan.remove(clanId);
+    }
+
+    public void clear() {
+        byClan.clear();
+    }
+
+    public int size() {
+        return byClan.size();
+    }
+}
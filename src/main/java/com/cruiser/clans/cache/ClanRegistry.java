@@ -0,0 +1,251 @@
+package com.cruiser.clans.cache;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.cruiser.clans.orm.entity.ClanEntity;
+import com.cruiser.clans.orm.entity.ClanRegionEntity;
+
+/**
+ * In-memory registry of all clans and their regions.
+ * Loaded at startup, then kept in sync by {@code DataManager} after each committed
+ * write, so clan and region lookups need no database round trip. With a database
+ * shared by several servers it is also reloaded periodically to pick up their writes.
+ * <p>
+ * The registry stores detached copies and hands out fresh copies, so callers may
+ * mutate returned entities before saving them without affecting the registry.
+ */
+public final class ClanRegistry {
+
+    // Rough per-object sizes for the memory estimate (compressed oops)
+    private static final int ENTITY_OVERHEAD_BYTES = 16 + 14 * 4 + 10 * 16;
+    private static final int MAP_ENTRY_BYTES = 32;
+    private static final int STRING_OVERHEAD_BYTES = 40;
+
+    private final Map<Integer, ClanEntity> clans = new ConcurrentHashMap<>();
+    // Case-insensitive, also used for tab completion
+    private final NameIndex<Integer> names = new NameIndex<>();
+    private final NameIndex<Integer> tags = new NameIndex<>();
+    // Region per clan; a clan owns at most one region
+    private final Map<Integer, ClanRegionEntity> regionsByClan = new ConcurrentHashMap<>();
+    // Chunk-keyed bounds for point lookups from protection listeners
+    private final RegionIndex regionIndex = new RegionIndex();
+    private volatile boolean loaded;
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Replace the contents with a full snapshot. Regions reference their clan by id.
+     * Entries are replaced and stale ones dropped rather than clearing first, so lookups
+     * from other threads keep working while a reload is applied.
+     */
+    public void load(List<ClanEntity> allClans, List<ClanRegionEntity> allRegions) {
+        Set<Integer> clanIds = new HashSet<>();
+        for (ClanEntity c : allClans) {
+            putClan(c);
+            clanIds.add(c.getId());
+        }
+        for (Integer id : List.copyOf(clans.keySet())) {
+            if (clanIds.contains(id)) continue;
+            clans.remove(id);
+            names.remove(id);
+            tags.remove(id);
+        }
+        Set<Integer> regionClanIds = new HashSet<>();
+        List<RegionBounds> bounds = new ArrayList<>(allRegions.size());
+        for (ClanRegionEntity r : allRegions) {
+            storeRegion(r);
+            regionClanIds.add(r.getClan().getId());
+            bounds.add(RegionBounds.of(r));
+        }
+        regionsByClan.keySet().retainAll(regionClanIds);
+        regionIndex.load(bounds);
+        loaded = true;
+    }
+
+    // region Clans
+
+    public Optional<ClanEntity> findClanById(Integer id) {
+        ClanEntity c = id == null ? null : clans.get(id);
+        return c == null ? Optional.empty() : Optional.of(c.copy());
+    }
+
+    /**
+     * Clan by name, ignoring case.
+     */
+    public Optional<ClanEntity> findClanByName(String name) {
+        return findClanById(names.get(name));
+    }
+
+    /**
+     * Clan by tag, ignoring case.
+     */
+    public Optional<ClanEntity> findClanByTag(String tag) {
+        return findClanById(tags.get(tag));
+    }
+
+    public boolean isNameTaken(String name) {
+        return names.contains(name);
+    }
+
+    public boolean isTagTaken(String tag) {
+        return tags.contains(tag);
+    }
+
+    public List<String> clanNames() {
+        return names.names();
+    }
+
+    public List<String> completeClanNames(String prefix, int limit) {
+        return names.complete(prefix, limit);
+    }
+
+    public int clanCount() {
+        return clans.size();
+    }
+
+    public void putClan(ClanEntity clan) {
+        ClanEntity copy = clan.copy();
+        clans.put(copy.getId(), copy);
+        // Replaces the previous name and tag on rename
+        names.put(copy.getName(), copy.getId());
+        tags.put(copy.getTag(), copy.getId());
+    }
+
+    public void removeClan(Integer clanId) {
+        clans.remove(clanId);
+        names.remove(clanId);
+        tags.remove(clanId);
+        ClanRegionEntity region = regionsByClan.remove(clanId);
+        if (region != null) regionIndex.remove(region.getId());
+    }
+
+    /**
+     * Apply counters flushed by the statistics aggregator.
+     */
+    public void applyCounters(int clanId, long kills, long deaths) {
+        clans.computeIfPresent(clanId, (id, c) -> {
+            c.setTotalKills((int) (c.getTotalKills() + kills));
+            c.setTotalDeaths((int) (c.getTotalDeaths() + deaths));
+            return c;
+        });
+    }
+
+    public void applyProgress(int clanId, int level, int exp, int maxMembers) {
+        clans.computeIfPresent(clanId, (id, c) -> {
+            c.setClanLevel(level);
+            c.setClanExp(exp);
+            c.setMaxMembers(maxMembers);
+            return c;
+        });
+    }
+
+    public void setLeader(int clanId, String leaderUuid) {
+        clans.computeIfPresent(clanId, (id, c) -> {
+            c.setLeaderUuid(leaderUuid);
+            return c;
+        });
+    }
+
+    // endregion
+
+    // region Regions
+
+    public Optional<ClanRegionEntity> findClanRegion(Integer clanId) {
+        ClanRegionEntity r = clanId == null ? null : regionsByClan.get(clanId);
+        return Optional.ofNullable(withClan(r));
+    }
+
+    public Optional<ClanRegionEntity> findRegionById(Integer regionId) {
+        if (regionId == null) return Optional.empty();
+        for (ClanRegionEntity r : regionsByClan.values()) {
+            if (regionId.equals(r.getId())) return Optional.ofNullable(withClan(r));
+        }
+        return Optional.empty();
+    }
+
+    public List<ClanRegionEntity> findRegionsByWorld(String worldName) {
+        List<ClanRegionEntity> list = new ArrayList<>();
+        for (ClanRegionEntity r : regionsByClan.values()) {
+            if (!r.getWorldName().equals(worldName)) continue;
+            ClanRegionEntity copy = withClan(r);
+            if (copy != null) list.add(copy);
+        }
+        return list;
+    }
+
+    /**
+     * Region containing the block, with its clan attached.
+     */
+    public Optional<ClanRegionEntity> findRegionAt(String worldName, int x, int y, int z) {
+        RegionBounds b = regionIndex.regionAt(worldName, x, y, z);
+        return b == null ? Optional.empty() : findClanRegion(b.clanId());
+    }
+
+    /**
+     * Spatial index over region bounds; lookups are allocation-free.
+     */
+    public RegionIndex regionIndex() {
+        return regionIndex;
+    }
+
+    public int regionCount() {
+        return regionsByClan.size();
+    }
+
+    public void putRegion(ClanRegionEntity region) {
+        storeRegion(region);
+        regionIndex.put(RegionBounds.of(region));
+    }
+
+    public void removeRegion(Integer regionId) {
+        regionsByClan.values().removeIf(r -> regionId.equals(r.getId()));
+        regionIndex.remove(regionId);
+    }
+
+    private void storeRegion(ClanRegionEntity region) {
+        Integer clanId = region.getClan().getId();
+        // Store a clan-less copy keyed by the clan id; the clan is attached on read
+        ClanEntity ref = new ClanEntity();
+        ref.setId(clanId);
+        regionsByClan.put(clanId, region.copy(ref));
+    }
+
+    private ClanRegionEntity withClan(ClanRegionEntity r) {
+        if (r == null) return null;
+        ClanEntity clan = clans.get(r.getClan().getId());
+        return clan == null ? null : r.copy(clan.copy());
+    }
+
+    // endregion
+
+    /**
+     * Rough heap estimate of the registry contents in bytes.
+     */
+    public long estimateMemoryBytes() {
+        long bytes = 0;
+        for (ClanEntity c : clans.values()) {
+            bytes += ENTITY_OVERHEAD_BYTES + 3L * MAP_ENTRY_BYTES;
+            bytes += stringBytes(c.getName()) + stringBytes(c.getTag())
+                + stringBytes(c.getDescription()) + stringBytes(c.getLeaderUuid());
+        }
+        for (ClanRegionEntity r : regionsByClan.values()) {
+            bytes += ENTITY_OVERHEAD_BYTES + MAP_ENTRY_BYTES + stringBytes(r.getMarkerType());
+        }
+        // Index: one bounds record per region, one small array per chunk cell
+        bytes += regionIndex.size() * (long) (ENTITY_OVERHEAD_BYTES + MAP_ENTRY_BYTES);
+        bytes += regionIndex.cellCount() * (long) (MAP_ENTRY_BYTES + 24);
+        return bytes;
+    }
+
+    private static long stringBytes(String s) {
+        return s == null ? 0 : STRING_OVERHEAD_BYTES + s.length();
+    }
+}
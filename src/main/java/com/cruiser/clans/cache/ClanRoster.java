@@ -0,0 +1,87 @@
+package com.cruiser.clans.cache;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.bukkit.entity.Player;
+
+/**
+ * Online members of each clan, for message fan-out without loading member lists.
+ * Players are added on join and removed on quit; {@code DataManager} moves them
+ * between clans when a saved row changes clan (accept, kick, leave) and clears a
+ * clan when it is deleted (disband).
+ */
+public final class ClanRoster {
+
+    private final Map<UUID, Player> online = new HashMap<>();
+    private final Map<UUID, Integer> clanOf = new HashMap<>();
+    private final Map<Integer, Map<UUID, Player>> byClan = new HashMap<>();
+
+    /**
+     * Register a joined player in {@code clanId} (null = no clan).
+     */
+    public synchronized void join(Player player, Integer clanId) {
+        online.put(player.getUniqueId(), player);
+        move(player.getUniqueId(), clanId);
+    }
+
+    public synchronized void quit(UUID uuid) {
+        online.remove(uuid);
+        leave(uuid);
+    }
+
+    /**
+     * Move an online player to {@code clanId} (null = no clan). Offline players are ignored.
+     */
+    public synchronized void move(UUID uuid, Integer clanId) {
+        Player player = online.get(uuid);
+        if (player == null) return;
+        Integer current = clanOf.get(uuid);
+        if (clanId == null ? current == null : clanId.equals(current)) return;
+        leave(uuid);
+        if (clanId == null) return;
+        clanOf.put(uuid, clanId);
+        byClan.computeIfAbsent(clanId, id -> new LinkedHashMap<>()).put(uuid, player);
+    }
+
+    /**
+     * Drop a deleted clan; its online members become clanless.
+     */
+    public synchronized void disband(Integer clanId) {
+        Map<UUID, Player> members = byClan.remove(clanId);
+        if (members != null) members.keySet().forEach(clanOf::remove);
+    }
+
+    /**
+     * Snapshot of the clan's online members; safe to iterate on any thread.
+     */
+    public synchronized List<Player> onlineMembers(Integer clanId) {
+        Map<UUID, Player> members = byClan.get(clanId);
+        return members == null ? List.of() : new ArrayList<>(members.values());
+    }
+
+    /**
+     * Clan of an online player, or null.
+     */
+    public synchronized Integer clanOf(UUID uuid) {
+        return clanOf.get(uuid);
+    }
+
+    public synchronized int onlineCount(Integer clanId) {
+        Map<UUID, Player> members = byClan.get(clanId);
+        return members == null ? 0 : members.size();
+    }
+
+    private void leave(UUID uuid) {
+        Integer previous = clanOf.remove(uuid);
+        if (previous == null) return;
+        Map<UUID, Player> members = byClan.get(previous);
+        if (members == null) return;
+        members.remove(uuid);
+        if (members.isEmpty()) byClan.remove(previous);
+    }
+}
@@ -0,0 +1,94 @@
+package com.cruiser.clans.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Case-insensitive name index with prefix search, for name lookups and tab completion.
+ * Keys are lower-cased names kept in a sorted map, so a prefix query is a range scan.
+ * Each value has at most one name: indexing a value again replaces its previous name.
+ *
+ * @param <V> what the name resolves to (clan id, player UUID)
+ */
+public final class NameIndex<V> {
+
+    private record Entry<V>(String name, V value) {}
+
+    // Upper bound for prefix ranges; greater than any char in a name
+    private static final char MAX_CHAR = Character.MAX_VALUE;
+
+    private final NavigableMap<String, Entry<V>> byKey = new ConcurrentSkipListMap<>();
+    private final Map<V, String> keyByValue = new ConcurrentHashMap<>();
+
+    public static String key(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Index {@code name} for {@code value}, dropping the value's previous name.
+     */
+    public synchronized void put(String name, V value) {
+        String key = key(name);
+        String previous = keyByValue.put(value, key);
+        if (previous != null && !previous.equals(key)) {
+            Entry<V> old = byKey.get(previous);
+            if (old != null && old.value().equals(value)) byKey.remove(previous);
+        }
+        Entry<V> displaced = byKey.put(key, new Entry<>(name, value));
+        // A different value that had the same name loses its entry
+        if (displaced != null && !displaced.value().equals(value)) keyByValue.remove(displaced.value(), key);
+    }
+
+    public synchronized void remove(V value) {
+        String key = keyByValue.remove(value);
+        if (key == null) return;
+        Entry<V> e = byKey.get(key);
+        if (e != null && e.value().equals(value)) byKey.remove(key);
+    }
+
+    public synchronized void clear() {
+        byKey.clear();
+        keyByValue.clear();
+    }
+
+    /**
+     * Value indexed under {@code name}, ignoring case, or null.
+     */
+    public V get(String name) {
+        if (name == null) return null;
+        Entry<V> e = byKey.get(key(name));
+        return e == null ? null : e.value();
+    }
+
+    public boolean contains(String name) {
+        return get(name) != null;
+    }
+
+    /**
+     * Names starting with {@code prefix} (ignoring case) in alphabetical order, as originally written.
+     */
+    public List<String> complete(String prefix, int limit) {
+        String from = key(prefix);
+        List<String> names = new ArrayList<>();
+        for (Entry<V> e : byKey.subMap(from, true, from + MAX_CHAR, false).values()) {
+            if (names.size() >= limit) break;
+            names.add(e.name());
+        }
+        return names;
+    }
+
+    public List<String> names() {
+        List<String> names = new ArrayList<>(byKey.size());
+        for (Entry<V> e : byKey.values()) names.add(e.name());
+        return names;
+    }
+
+    public int size() {
+        return byKey.size();
+    }
+}
@@ -0,0 +1,173 @@
+package com.cruiser.clans.cache;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import com.cruiser.clans.orm.entity.ClanEntity;
+import com.cruiser.clans.orm.entity.ClanPlayerEntity;
+import com.cruiser.clans.orm.entity.RegionFlag;
+
+/**
+ * Player rows of online players, loaded at pre-login and evicted on quit.
+ * {@code DataManager} updates sessions after every player write, so lookups for an
+ * online player need no database round trip and can be made from the main thread.
+ * <p>
+ * Like {@link ClanRegistry}, sessions hold detached copies. The player's clan is kept
+ * by id only and attached from the registry on read, so clan changes show up at once.
+ */
+public final class PlayerSessionCache {
+
+    /**
+     * One online player. {@code player} is null while the player has no row yet.
+     * {@code regionFlags} is the member's effective region mask, resolved when the row changes.
+     */
+    private record Session(ClanPlayerEntity player, Integer clanId, long regionFlags, long loadedAt) {}
+
+    // A login that has not completed this long after pre-login has been dropped
+    private static final long UNCLAIMED_TTL_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final ClanRegistry registry;
+    private final long ttlNanos;
+    private final Map<UUID, Session> sessions = new ConcurrentHashMap<>();
+    // Sessions opened before the login completed -> open time; see claim(UUID)
+    private final Map<UUID, Long> unclaimed = new ConcurrentHashMap<>();
+
+    /**
+     * @param ttlSeconds sessions older than this are reloaded on the next lookup; 0 keeps them until quit
+     */
+    public PlayerSessionCache(ClanRegistry registry, long ttlSeconds) {
+        this.registry = registry;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(Math.max(0, ttlSeconds));
+    }
+
+    /**
+     * Start or replace the session of a player who is logging in. The session stays
+     * unclaimed until {@link #claim(UUID)}; unclaimed sessions older than a minute belong
+     * to connections that dropped between pre-login and login, and are removed here.
+     */
+    public void open(UUID uuid, Optional<ClanPlayerEntity> row) {
+        long now = System.nanoTime();
+        dropUnclaimed(now);
+        sessions.put(uuid, session(row.orElse(null)));
+        unclaimed.put(uuid, now);
+    }
+
+    /**
+     * Mark the session as belonging to a player who completed the login.
+     */
+    public void claim(UUID uuid) {
+        unclaimed.remove(uuid);
+    }
+
+    public void close(UUID uuid) {
+        sessions.remove(uuid);
+        unclaimed.remove(uuid);
+    }
+
+    public boolean isOnline(UUID uuid) {
+        return sessions.containsKey(uuid);
+    }
+
+    /**
+     * True when the player has a session that is younger than the TTL.
+     */
+    public boolean isFresh(UUID uuid) {
+        Session s = sessions.get(uuid);
+        return s != null && (ttlNanos == 0 || System.nanoTime() - s.loadedAt() < ttlNanos);
+    }
+
+    /**
+     * Cached row of an online player, regardless of its age.
+     *
+     * @return null if the player has no session, an empty optional if it has no row
+     */
+    public Optional<ClanPlayerEntity> get(UUID uuid) {
+        Session s = sessions.get(uuid);
+        if (s == null) return null;
+        if (s.player() == null) return Optional.empty();
+        ClanEntity clan = s.clanId() == null ? null : registry.findClanById(s.clanId()).orElse(null);
+        return Optional.of(s.player().copy(clan));
+    }
+
+    /**
+     * Clan id of an online player without copying the row; null if no session or no clan.
+     */
+    public Integer clanId(UUID uuid) {
+        Session s = sessions.get(uuid);
+        return s == null ? null : s.clanId();
+    }
+
+    /**
+     * Effective region flags of an online player, or {@code fallback} without a session.
+     */
+    public long regionFlags(UUID uuid, long fallback) {
+        Session s = sessions.get(uuid);
+        return s == null ? fallback : s.regionFlags();
+    }
+
+    /**
+     * Replace the session with a row read from the database, unless the session was
+     * written after the read started.
+     */
+    public void refresh(UUID uuid, Optional<ClanPlayerEntity> row, long readStartedAt) {
+        sessions.computeIfPresent(uuid, (id, s) -> s.loadedAt() - readStartedAt < 0 ? session(row.orElse(null)) : s);
+    }
+
+    /**
+     * Store a saved row, only if the player is online.
+     */
+    public void update(ClanPlayerEntity player) {
+        sessions.computeIfPresent(player.getUuidAsUUID(), (id, s) -> session(player));
+    }
+
+    /**
+     * Apply a change to the cached row of every online player matching {@code clanId}.
+     */
+    public void updateClanMembers(Integer clanId, Consumer<ClanPlayerEntity> change) {
+        sessions.replaceAll((id, s) -> {
+            if (s.player() == null || !clanId.equals(s.clanId())) return s;
+            return changed(s, change);
+        });
+    }
+
+    /**
+     * Apply a change to the cached row of one online player.
+     */
+    public void updatePlayer(String uuid, Consumer<ClanPlayerEntity> change) {
+        sessions.computeIfPresent(UUID.fromString(uuid), (id, s) -> s.player() == null ? s : changed(s, change));
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    private void dropUnclaimed(long now) {
+        for (Map.Entry<UUID, Long> e : unclaimed.entrySet()) {
+            if (now - e.getValue() > UNCLAIMED_TTL_NANOS && unclaimed.remove(e.getKey(), e.getValue())) {
+                sessions.remove(e.getKey());
+            }
+        }
+    }
+
+    private static Session session(ClanPlayerEntity player) {
+        if (player == null) return new Session(null, null, RegionFlag.NONE, System.nanoTime());
+        Integer clanId = player.getClan() == null ? null : player.getClan().getId();
+        return new Session(player.copy(null), clanId, player.getRegionFlags(), System.nanoTime());
+    }
+
+    private static Session changed(Session s, Consumer<ClanPlayerEntity> change) {
+        ClanEntity ref = null;
+        if (s.clanId() != null) {
+            ref = new ClanEntity();
+            ref.setId(s.clanId());
+        }
+        ClanPlayerEntity copy = s.player().copy(ref);
+        change.accept(copy);
+        return new Session(copy.copy(null), copy.getClan() == null ? null : copy.getClan().getId(),
+            copy.getRegionFlags(), s.loadedAt());
+    }
+}
@@ -0,0 +1,59 @@
+package com.cruiser.clans.cache;
+
+import com.cruiser.clans.orm.entity.ClanRegionEntity;
+
+/**
+ * Immutable block bounds of one region, as stored in {@link RegionIndex}.
+ * A region with only its first marker placed covers just the marker block.
+ * {@code visitorFlags} is the {@link com.cruiser.clans.orm.entity.RegionFlag} mask
+ * of what non-members may do inside.
+ */
+public record RegionBounds(int regionId, int clanId, long visitorFlags, String worldName,
+                           int minX, int minY, int minZ, int maxX, int maxY, int maxZ,
+                           int marker1X, int marker1Y, int marker1Z,
+                           boolean hasSecondMarker, int marker2X, int marker2Y, int marker2Z) {
+
+    public static RegionBounds of(ClanRegionEntity r) {
+        int m1x = r.getMarker1X(), m1y = r.getMarker1Y(), m1z = r.getMarker1Z();
+        if (!r.hasSecondMarker()) {
+            return new RegionBounds(r.getId(), r.getClan().getId(), r.getFlags(), r.getWorldName(),
+                m1x, m1y, m1z, m1x, m1y, m1z, m1x, m1y, m1z, false, 0, 0, 0);
+        }
+        int m2x = r.getMarker2X(), m2y = r.getMarker2Y(), m2z = r.getMarker2Z();
+        return new RegionBounds(r.getId(), r.getClan().getId(), r.getFlags(), r.getWorldName(),
+            Math.min(m1x, m2x), Math.min(m1y, m2y), Math.min(m1z, m2z),
+            Math.max(m1x, m2x), Math.max(m1y, m2y), Math.max(m1z, m2z),
+            m1x, m1y, m1z, true, m2x, m2y, m2z);
+    }
+
+    public boolean contains(int x, int y, int z) {
+        return x >= minX && x <= maxX && y >= minY && y <= maxY && z >= minZ && z <= maxZ;
+    }
+
+    /**
+     * True if the block is one of the region's markers.
+     */
+    public boolean isMarker(int x, int y, int z) {
+        return (x == marker1X && y == marker1Y && z == marker1Z)
+            || (hasSecondMarker && x == marker2X && y == marker2Y && z == marker2Z);
+    }
+
+    /**
+     * Horizontal gap in blocks between this region's footprint and the given box
+     * (Chebyshev distance, so diagonals count like straight lines). Y is ignored:
+     * claims are treated as full columns when checking for conflicts.
+     *
+     * @return -1 if the footprints overlap, 0 if they touch, otherwise the blocks between them
+     */
+    public int gapTo(int otherMinX, int otherMinZ, int otherMaxX, int otherMaxZ) {
+        int gx = Math.max(otherMinX - maxX, minX - otherMaxX) - 1;
+        int gz = Math.max(otherMinZ - maxZ, minZ - otherMaxZ) - 1;
+        if (gx < 0 && gz < 0) return -1;
+        return Math.max(gx, gz);
+    }
+
+    public int minChunkX() { return minX >> 4; }
+    public int minChunkZ() { return minZ >> 4; }
+    public int maxChunkX() { return maxX >> 4; }
+    public int maxChunkZ() { return maxZ >> 4; }
+}
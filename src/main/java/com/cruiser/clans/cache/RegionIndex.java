@@ -0,0 +1,162 @@
+package com.cruiser.clans.cache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.cruiser.clans.util.LongObjectMap;
+
+/**
+ * Spatial index of region bounds per world, keyed by packed chunk coordinates.
+ * Each chunk maps to the few regions that overlap it, so a point lookup is one
+ * hash probe plus a scan of a tiny array, regardless of the total region count.
+ * <p>
+ * Writes are rare (marker placed or broken) and copy-on-write: the affected world
+ * map is copied, changed and published through a volatile field. Reads take no
+ * lock and allocate nothing.
+ */
+public final class RegionIndex {
+
+    private static final RegionBounds[] NONE = new RegionBounds[0];
+
+    // World name -> chunk key -> regions overlapping that chunk; replaced, never mutated
+    private volatile Map<String, LongObjectMap<RegionBounds[]>> worlds = Map.of();
+    private final Map<Integer, RegionBounds> byRegion = new HashMap<>();
+
+    /**
+     * Region containing the block, or null.
+     */
+    public RegionBounds regionAt(String worldName, int x, int y, int z) {
+        LongObjectMap<RegionBounds[]> chunks = worlds.get(worldName);
+        if (chunks == null) return null;
+        RegionBounds[] cell = chunks.get(LongObjectMap.pack(x >> 4, z >> 4));
+        if (cell == null) return null;
+        for (RegionBounds b : cell) {
+            if (b.contains(x, y, z)) return b;
+        }
+        return null;
+    }
+
+    /**
+     * Regions overlapping the chunk; an empty array if none. The array must not be modified.
+     */
+    public RegionBounds[] regionsInChunk(String worldName, int chunkX, int chunkZ) {
+        LongObjectMap<RegionBounds[]> chunks = worlds.get(worldName);
+        if (chunks == null) return NONE;
+        RegionBounds[] cell = chunks.get(LongObjectMap.pack(chunkX, chunkZ));
+        return cell == null ? NONE : cell;
+    }
+
+    /**
+     * Regions whose footprint lies within {@code distance} blocks of the box (overlapping
+     * ones included), excluding {@code excludeRegionId}. Only the chunk cells covering the
+     * box widened by the distance are visited, so the cost depends on the box size and
+     * the local density, not on the number of regions in the world.
+     */
+    public List<RegionBounds> regionsNear(String worldName, int minX, int minZ, int maxX, int maxZ,
+                                          int distance, int excludeRegionId) {
+        LongObjectMap<RegionBounds[]> chunks = worlds.get(worldName);
+        if (chunks == null) return List.of();
+        List<RegionBounds> found = new ArrayList<>();
+        int d = Math.max(0, distance);
+        for (int cx = (minX - d) >> 4; cx <= (maxX + d) >> 4; cx++) {
+            for (int cz = (minZ - d) >> 4; cz <= (maxZ + d) >> 4; cz++) {
+                RegionBounds[] cell = chunks.get(LongObjectMap.pack(cx, cz));
+                if (cell == null) continue;
+                for (RegionBounds b : cell) {
+                    if (b.regionId() == excludeRegionId || found.contains(b)) continue;
+                    if (b.gapTo(minX, minZ, maxX, maxZ) < d) found.add(b);
+                }
+            }
+        }
+        return found;
+    }
+
+    public synchronized void load(Collection<RegionBounds> all) {
+        byRegion.clear();
+        Map<String, LongObjectMap<RegionBounds[]>> next = new HashMap<>();
+        for (RegionBounds b : all) {
+            byRegion.put(b.regionId(), b);
+            add(next.computeIfAbsent(b.worldName(), w -> new LongObjectMap<>()), b);
+        }
+        worlds = next;
+    }
+
+    /**
+     * Add or replace a region (e.g. after the second marker was placed).
+     */
+    public synchronized void put(RegionBounds bounds) {
+        RegionBounds previous = byRegion.put(bounds.regionId(), bounds);
+        Map<String, LongObjectMap<RegionBounds[]>> next = new HashMap<>(worlds);
+        if (previous != null) {
+            next.computeIfPresent(previous.worldName(), (w, chunks) -> without(chunks.copy(), previous));
+        }
+        LongObjectMap<RegionBounds[]> chunks = next.get(bounds.worldName());
+        chunks = chunks == null ? new LongObjectMap<>() : chunks.copy();
+        add(chunks, bounds);
+        next.put(bounds.worldName(), chunks);
+        worlds = next;
+    }
+
+    public synchronized void remove(Integer regionId) {
+        RegionBounds previous = byRegion.remove(regionId);
+        if (previous == null) return;
+        Map<String, LongObjectMap<RegionBounds[]>> next = new HashMap<>(worlds);
+        next.computeIfPresent(previous.worldName(), (w, chunks) -> without(chunks.copy(), previous));
+        worlds = next;
+    }
+
+    public synchronized void clear() {
+        byRegion.clear();
+        worlds = Map.of();
+    }
+
+    public synchronized int size() {
+        return byRegion.size();
+    }
+
+    /**
+     * Number of chunk cells across all worlds, for memory estimates.
+     */
+    public int cellCount() {
+        int cells = 0;
+        for (LongObjectMap<RegionBounds[]> chunks : worlds.values()) cells += chunks.size();
+        return cells;
+    }
+
+    private static void add(LongObjectMap<RegionBounds[]> chunks, RegionBounds b) {
+        for (int cx = b.minChunkX(); cx <= b.maxChunkX(); cx++) {
+            for (int cz = b.minChunkZ(); cz <= b.maxChunkZ(); cz++) {
+                long key = LongObjectMap.pack(cx, cz);
+                RegionBounds[] cell = chunks.get(key);
+                if (cell == null) {
+                    chunks.put(key, new RegionBounds[] { b });
+                } else {
+                    RegionBounds[] grown = Arrays.copyOf(cell, cell.length + 1);
+                    grown[cell.length] = b;
+                    chunks.put(key, grown);
+                }
+            }
+        }
+    }
+
+    // Returns null when the world has no regions left, which drops it from the map
+    private static LongObjectMap<RegionBounds[]> without(LongObjectMap<RegionBounds[]> chunks, RegionBounds b) {
+        for (int cx = b.minChunkX(); cx <= b.maxChunkX(); cx++) {
+            for (int cz = b.minChunkZ(); cz <= b.maxChunkZ(); cz++) {
+                long key = LongObjectMap.pack(cx, cz);
+                RegionBounds[] cell = chunks.get(key);
+                if (cell == null) continue;
+                RegionBounds[] kept = Arrays.stream(cell)
+                    .filter(other -> other.regionId() != b.regionId())
+                    .toArray(RegionBounds[]::new);
+                if (kept.length == 0) chunks.remove(key);
+                else chunks.put(key, kept);
+            }
+        }
+        return chunks.size() == 0 ? null : chunks;
+    }
+}
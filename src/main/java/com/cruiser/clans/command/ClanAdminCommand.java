@@ -25,6 +25,9 @@ import net.kyori.adventure.text.format.TextDecoration;
  */
 public class ClanAdminCommand implements CommandExecutor, TabCompleter {
     
+    // Максимум вариантов автодополнения
+    private static final int TAB_COMPLETE_LIMIT = 50;
+
     private final ClanPlugin plugin;
     
     public ClanAdminCommand(ClanPlugin plugin) {
@@ -57,6 +60,7 @@ public class ClanAdminCommand implements CommandExecutor, TabCompleter {
             case "list" -> handleList(sender);
             case "setmax" -> handleSetMaxMembers(sender, args);
             case "resetstats" -> handleResetStats(sender, args);
+            case "db" -> handleDb(sender, args);
             default -> {
                 sender.sendMessage(Component.text("Неизвестная команда. Используйте /clanadmin help", NamedTextColor.RED));
             }
@@ -88,6 +92,8 @@ public class ClanAdminCommand implements CommandExecutor, TabCompleter {
             .append(Component.text(" - Сбросить статистику", NamedTextColor.GRAY)));
         sender.sendMessage(Component.text("/clanadmin stats", NamedTextColor.YELLOW)
             .append(Component.text(" - Статистика БД", NamedTextColor.GRAY)));
+        sender.sendMessage(Component.text("/clanadmin db <explain|top>", NamedTextColor.YELLOW)
+            .append(Component.text(" - Планы запросов и самые долгие запросы", NamedTextColor.GRAY)));
         sender.sendMessage(Component.text("/clanadmin info <клан>", NamedTextColor.YELLOW)
             .append(Component.text(" - Детальная информация о клане", NamedTextColor.GRAY)));
         sender.sendMessage(Component.text("/clanadmin list", NamedTextColor.YELLOW)
@@ -95,11 +101,9 @@ public class ClanAdminCommand implements CommandExecutor, TabCompleter {
     }
     
     private void handleReload(CommandSender sender) {
-        plugin.reloadConfig();
+        // reloadSettings также обновляет отображение всех игроков в сети
+        plugin.reloadSettings();
         sender.sendMessage(Component.text("Конфигурация перезагружена", NamedTextColor.GREEN));
-        
-        // Обновляем отображение для всех игроков
-        plugin.getDisplayService().initialize();
         sender.sendMessage(Component.text("Отображение кланов обновлено", NamedTextColor.GREEN));
     }
     
@@ -121,26 +125,20 @@ public class ClanAdminCommand implements CommandExecutor, TabCompleter {
             
             ClanEntity clan = optClan.get();
             
-            // Уведомляем всех членов клана
-            return plugin.getData().getClanMembers(clan.getId()).thenCompose(members -> {
+            // Состав в сети берём до удаления: deleteClan очищает его
+            List<Player> online = plugin.getData().getRoster().onlineMembers(clan.getId());
+            
+            // Удаляем клан и уведомляем членов клана в сети
+            return plugin.getData().deleteClan(clan.getId()).thenApply(v -> {
                 plugin.getData().runSync(() -> {
-                    for (ClanPlayerEntity member : members) {
-                        Player player = plugin.getServer().getPlayer(member.getUuidAsUUID());
-                        if (player != null && player.isOnline()) {
-                            player.sendMessage(Component.text("Клан был распущен администратором", NamedTextColor.RED));
-                            plugin.getDisplayService().updatePlayerDisplay(player);
-                        }
+                    for (Player player : online) {
+                        player.sendMessage(Component.text("Клан был распущен администратором", NamedTextColor.RED));
+                        plugin.getDisplayService().updatePlayerDisplay(player);
                     }
+                    sender.sendMessage(Component.text("Клан \"" + clan.getName() + "\" распущен", NamedTextColor.GREEN));
+                    plugin.getDisplayService().removeClanTeam(clan.getId());
                 });
-                
-                // Удаляем клан
-                return plugin.getData().deleteClan(clan.getId()).thenApply(v -> {
-                    plugin.getData().runSync(() -> {
-                        sender.sendMessage(Component.text("Клан \"" + clan.getName() + "\" распущен", NamedTextColor.GREEN));
-                        plugin.getDisplayService().removeClanTeam(clan.getId());
-                    });
-                    return null;
-                });
+                return null;
             });
         });
     }
@@ -174,10 +172,8 @@ public class ClanAdminCommand implements CommandExecutor, TabCompleter {
             }
             
             ClanEntity clan = optClan.get();
-            clan.setClanLevel(level);
-            clan.setClanExp(0); // Сбрасываем опыт при установке уровня
-            
-            return plugin.getData().updateClan(clan).thenApply(updated -> {
+            // Опыт сбрасывается; несохранённая статистика записывается до изменения
+            return plugin.getData().setClanLevel(clan.getId(), level).thenApply(updated -> {
                 plugin.getData().runSync(() -> {
                     sender.sendMessage(Component.text("Уровень клана \"" + clan.getName() + "\" установлен на " + level, NamedTextColor.GREEN));
                     
@@ -275,6 +271,8 @@ public class ClanAdminCommand implements CommandExecutor, TabCompleter {
             
             player.setClan(null);
             player.setRole(ClanRole.MEMBER);
+            
+            player.setPermissions(0L);
             player.setJoinedAt(null);
             player.setClanContribution(0);
             
@@ -304,8 +302,49 @@ public class ClanAdminCommand implements CommandExecutor, TabCompleter {
                         .append(Component.text(clansCount, NamedTextColor.WHITE)));
                     sender.sendMessage(Component.text("Игроков в кланах: ", NamedTextColor.GRAY)
                         .append(Component.text(playersCount, NamedTextColor.WHITE)));
-                    sender.sendMessage(Component.text("Состояние пула: ", NamedTextColor.GRAY)
-                        .append(Component.text("DB: SQLite (lightweight)", NamedTextColor.AQUA)));
+                    for (var pool : plugin.getDatabase().getPoolStats()) {
+                        sender.sendMessage(Component.text("Пул " + pool.name() + ": ", NamedTextColor.GRAY)
+                            .append(Component.text(pool.open() + "/" + pool.size() + " соединений (открыто всего: " + pool.opened() + ")", NamedTextColor.AQUA)));
+                        sender.sendMessage(Component.text("  Кеш запросов: ", NamedTextColor.GRAY)
+                            .append(Component.text(pool.statementHits() + " попаданий / " + pool.statementMisses() + " промахов ("
+                                + String.format(java.util.Locale.ROOT, "%.1f", pool.hitRatio() * 100) + "%)", NamedTextColor.AQUA)));
+                    }
+                    for (var queue : plugin.getDatabase().getQueueStats()) {
+                        sender.sendMessage(Component.text("Очередь " + queue.name() + ": ", NamedTextColor.GRAY)
+                            .append(Component.text(queue.depth() + "/" + queue.capacity() + " задач (макс. " + queue.maxDepth()
+                                + "), ожидание " + String.format(java.util.Locale.ROOT, "%.1f", queue.averageWaitMillis()) + " мс в среднем, "
+                                + String.format(java.util.Locale.ROOT, "%.1f", queue.maxWaitNanos() / 1_000_000.0) + " мс макс.", NamedTextColor.AQUA)));
+                        if (queue.rejected() > 0 || queue.shed() > 0 || queue.waited() > 0) {
+                            sender.sendMessage(Component.text("  Отклонено: ", NamedTextColor.GRAY)
+                                .append(Component.text(queue.rejected() + ", отброшено фоновых: " + queue.shed()
+                                    + ", ждали места: " + queue.waited(), NamedTextColor.RED)));
+                        }
+                    }
+                    sender.sendMessage(Component.text("Медленных запросов: ", NamedTextColor.GRAY)
+                        .append(Component.text(plugin.getDatabase().getProfiler().slowQueryCount(), NamedTextColor.AQUA)));
+                    var agg = plugin.getData().getStatsAggregatorStats();
+                    sender.sendMessage(Component.text("Агрегатор статистики: ", NamedTextColor.GRAY)
+                        .append(Component.text(agg.recorded() + " событий, " + agg.flushes() + " сохранений", NamedTextColor.AQUA)));
+                    plugin.getData().getWriteBufferStats().ifPresent(buf ->
+                        sender.sendMessage(Component.text("Буфер записи: ", NamedTextColor.GRAY)
+                            .append(Component.text(buf.pending() + " ожидают, " + buf.coalesced() + " объединено, "
+                                + buf.written() + " записано", NamedTextColor.AQUA))));
+                    sender.sendMessage(Component.text("Сессии онлайн-игроков: ", NamedTextColor.GRAY)
+                        .append(Component.text(plugin.getData().getSessionCount(), NamedTextColor.AQUA)));
+                    for (var handler : plugin.getHandlerTimings().summaries()) {
+                        sender.sendMessage(Component.text("Обработчик " + handler.name() + ": ", NamedTextColor.GRAY)
+                            .append(Component.text(handler.calls() + " вызовов, "
+                                + String.format(java.util.Locale.ROOT, "%.1f", handler.averageMicros()) + " мкс в среднем, "
+                                + String.format(java.util.Locale.ROOT, "%.1f", handler.maxNanos() / 1_000.0) + " мкс макс.", NamedTextColor.AQUA)));
+                    }
+                    var display = plugin.getDisplayService().getStats();
+                    sender.sendMessage(Component.text("Отображение тегов: ", NamedTextColor.GRAY)
+                        .append(Component.text(display.applied() + " применено, " + display.skipped() + " пропущено без изменений, "
+                            + display.flushes() + " пакетных обновлений", NamedTextColor.AQUA)));
+                    var boards = plugin.getDisplayService().getBoardStats();
+                    sender.sendMessage(Component.text("Scoreboard кланов: ", NamedTextColor.GRAY)
+                        .append(Component.text(boards.views() + " представлений, " + boards.teams() + " команд, "
+                            + boards.entries() + " записей, " + boards.pushes() + " изменений команд", NamedTextColor.AQUA)));
                     sender.sendMessage(Component.text("Режим чата клана: ", NamedTextColor.GRAY)
                         .append(Component.text(plugin.getChatService().getClanChatModeCount() + " игроков", NamedTextColor.YELLOW)));
                 });
@@ -314,6 +353,43 @@ public class ClanAdminCommand implements CommandExecutor, TabCompleter {
         );
     }
     
+    private void handleDb(CommandSender sender, String[] args) {
+        String action = args.length < 2 ? "" : args[1].toLowerCase();
+        switch (action) {
+            case "explain" -> plugin.getDatabase().explainRegisteredStatements().thenAccept(plans -> {
+                plugin.getData().runSync(() -> {
+                    if (plans.isEmpty()) {
+                        sender.sendMessage(Component.text("Нет планов: нет выполненных запросов или EXPLAIN не поддерживается для этой БД", NamedTextColor.YELLOW));
+                        return;
+                    }
+                    long scans = plans.stream().filter(p -> p.fullScan()).count();
+                    sender.sendMessage(Component.text("===== Планы запросов (" + plans.size() + ", полных сканирований: " + scans + ") =====", NamedTextColor.GOLD, TextDecoration.BOLD));
+                    for (var plan : plans) {
+                        sender.sendMessage(Component.text(plan.fullScan() ? "[SCAN] " : "[OK] ", plan.fullScan() ? NamedTextColor.RED : NamedTextColor.GREEN)
+                            .append(Component.text(plan.sql(), NamedTextColor.WHITE)));
+                        for (String detail : plan.details()) {
+                            sender.sendMessage(Component.text("  " + detail, NamedTextColor.GRAY));
+                        }
+                    }
+                });
+            });
+            case "top" -> {
+                var top = plugin.getDatabase().getProfiler().top(10);
+                if (top.isEmpty()) {
+                    sender.sendMessage(Component.text("Статистика запросов пуста (включите debug.statistics)", NamedTextColor.YELLOW));
+                    return;
+                }
+                sender.sendMessage(Component.text("===== Самые долгие запросы =====", NamedTextColor.GOLD, TextDecoration.BOLD));
+                for (var q : top) {
+                    sender.sendMessage(Component.text(String.format(java.util.Locale.ROOT, "%d раз, %.2f мс в среднем, макс %.2f мс, строк %d: ",
+                            q.executions(), q.averageMillis(), q.maxNanos() / 1_000_000.0, q.rows()), NamedTextColor.AQUA)
+                        .append(Component.text(q.sql(), NamedTextColor.WHITE)));
+                }
+            }
+            default -> sender.sendMessage(Component.text("Использование: /clanadmin db <explain|top>", NamedTextColor.RED));
+        }
+    }
+    
     private void handleInfo(CommandSender sender, String[] args) {
         if (args.length < 2) {
             sender.sendMessage(Component.text("Использование: /clanadmin info <клан>", NamedTextColor.RED));
@@ -410,9 +486,8 @@ public class ClanAdminCommand implements CommandExecutor, TabCompleter {
             }
             
             ClanEntity clan = optClan.get();
-            clan.setMaxMembers(maxMembers);
             
-            return plugin.getData().updateClan(clan).thenApply(updated -> {
+            return plugin.getData().setClanMaxMembers(clan.getId(), maxMembers).thenApply(updated -> {
                 plugin.getData().runSync(() -> {
                     sender.sendMessage(Component.text("Лимит участников клана \"" + clan.getName() + "\" установлен на " + maxMembers, NamedTextColor.GREEN));
                 });
@@ -433,11 +508,9 @@ public class ClanAdminCommand implements CommandExecutor, TabCompleter {
         plugin.getData().findClanByName(target).thenAccept(optClan -> {
             if (optClan.isPresent()) {
                 ClanEntity clan = optClan.get();
-                clan.setTotalKills(0);
-                clan.setTotalDeaths(0);
-                clan.setClanExp(0);
                 
-                plugin.getData().updateClan(clan).thenRun(() -> {
+                // Сбрасывает и ещё не сохранённые убийства и опыт
+                plugin.getData().resetClanStats(clan.getId()).thenRun(() -> {
                     plugin.getData().runSync(() -> {
                         sender.sendMessage(Component.text("Статистика клана \"" + clan.getName() + "\" сброшена", NamedTextColor.GREEN));
                     });
@@ -447,11 +520,8 @@ public class ClanAdminCommand implements CommandExecutor, TabCompleter {
                 plugin.getData().findPlayerByName(target).thenAccept(optPlayer -> {
                     if (optPlayer.isPresent()) {
                         ClanPlayerEntity player = optPlayer.get();
-                        player.setKills(0);
-                        player.setDeaths(0);
-                        player.setClanContribution(0);
                         
-                        plugin.getData().savePlayer(player).thenRun(() -> {
+                        plugin.getData().resetPlayerStats(player.getUuidAsUUID()).thenRun(() -> {
                             plugin.getData().runSync(() -> {
                                 sender.sendMessage(Component.text("Статистика игрока " + target + " сброшена", NamedTextColor.GREEN));
                             });
@@ -474,25 +544,20 @@ public class ClanAdminCommand implements CommandExecutor, TabCompleter {
         
         if (args.length == 1) {
             return Arrays.asList("help", "reload", "disband", "setlevel", "addmember", 
-                                "removemember", "stats", "info", "list", "setmax", "resetstats");
+                                "removemember", "stats", "info", "list", "setmax", "resetstats", "db");
         }
         
         if (args.length == 2) {
             switch (args[0].toLowerCase()) {
                 case "disband", "setlevel", "info", "setmax", "resetstats" -> {
-                    try {
-                        String prefix = args[1].toLowerCase();
-                        return plugin.getData().getAllClanNames().join().stream()
-                                .filter(name -> name.toLowerCase().startsWith(prefix))
-                                .toList();
-                    } catch (Exception ignored) {}
+                    return plugin.getData().completeClanNames(args[1], TAB_COMPLETE_LIMIT);
+                }
+                case "db" -> {
+                    return Arrays.asList("explain", "top");
                 }
                 case "addmember", "removemember" -> {
-                    // Возвращаем список онлайн игроков
-                    return plugin.getServer().getOnlinePlayers().stream()
-                            .map(Player::getName)
-                            .filter(name -> name.toLowerCase().startsWith(args[1].toLowerCase()))
-                            .toList();
+                    // Все известные игроки, в том числе оффлайн
+                    return plugin.getData().completePlayerNames(args[1], TAB_COMPLETE_LIMIT);
                 }
             }
             // TODO: Возвращать список кланов
@@ -4,6 +4,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
+import org.bukkit.Material;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
@@ -13,6 +14,7 @@ import org.bukkit.entity.Player;
 import com.cruiser.clans.ClanPlugin;
 import com.cruiser.clans.orm.entity.ClanEntity;
 import com.cruiser.clans.orm.entity.ClanRole;
+import com.cruiser.clans.orm.entity.RegionFlag;
 
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.format.NamedTextColor;
@@ -24,6 +26,9 @@ import net.kyori.adventure.text.format.TextDecoration;
  */
 public class ClanCommand implements CommandExecutor, TabCompleter {
     
+    // Максимум вариантов автодополнения
+    private static final int TAB_COMPLETE_LIMIT = 50;
+
     private final ClanPlugin plugin;
     
     public ClanCommand(ClanPlugin plugin) {
@@ -105,7 +110,7 @@ public class ClanCommand implements CommandExecutor, TabCompleter {
         player.sendMessage(Component.text("/clan top", NamedTextColor.YELLOW)
             .append(Component.text(" - Топ кланов", NamedTextColor.GRAY)));
 
-        if (plugin.getConfig().getBoolean("regions.enabled", true)) {
+        if (plugin.getSettings().regionsEnabled()) {
             player.sendMessage(Component.text("/clan region <подкоманда>", NamedTextColor.YELLOW)
                 .append(Component.text(" - Управление регионом", NamedTextColor.GRAY)));
         }
@@ -344,7 +349,7 @@ public class ClanCommand implements CommandExecutor, TabCompleter {
     }
 
     private void handleRegion(Player player, String[] args) {
-        if (!plugin.getConfig().getBoolean("regions.enabled", true)) {
+        if (!plugin.getSettings().regionsEnabled()) {
             player.sendMessage(Component.text("Клановые регионы отключены", NamedTextColor.RED));
             return;
         }
@@ -360,6 +365,8 @@ public class ClanCommand implements CommandExecutor, TabCompleter {
             case "marker" -> handleRegionMarker(player, args);
             case "info" -> handleRegionInfo(player);
             case "remove" -> handleRegionRemove(player);
+            case "flag" -> handleRegionFlag(player, args);
+            case "perm" -> handleRegionPerm(player, args);
             default -> sendRegionHelp(player);
         }
     }
@@ -377,19 +384,19 @@ public class ClanCommand implements CommandExecutor, TabCompleter {
             .append(Component.text(" - Информация о регионе", NamedTextColor.GRAY)));
         player.sendMessage(Component.text("/clan region remove", NamedTextColor.YELLOW)
             .append(Component.text(" - Удалить регион", NamedTextColor.GRAY)));
+        player.sendMessage(Component.text("/clan region flag <флаг> <on|off>", NamedTextColor.YELLOW)
+            .append(Component.text(" - Разрешить или запретить действие гостям", NamedTextColor.GRAY)));
+        player.sendMessage(Component.text("/clan region perm <игрок> <флаг> <allow|deny|reset>", NamedTextColor.YELLOW)
+            .append(Component.text(" - Права участника в регионе", NamedTextColor.GRAY)));
+        player.sendMessage(Component.text("Флаги: ", NamedTextColor.AQUA)
+            .append(Component.text(String.join(", ", regionFlagNames()), NamedTextColor.WHITE)));
 
         player.sendMessage(Component.text("Доступные маркеры:", NamedTextColor.AQUA));
-        var markerSection = plugin.getConfig().getConfigurationSection("regions.marker-blocks");
-        if (markerSection != null) {
-            for (String markerType : markerSection.getKeys(false)) {
-                String displayName = markerSection.getString(markerType + ".display-name", markerType);
-                int minLevel = markerSection.getInt(markerType + ".min-clan-level", 1);
-                int maxRadius = markerSection.getInt(markerType + ".max-radius", 25);
-
-                player.sendMessage(Component.text("  " + markerType, NamedTextColor.WHITE)
-                    .append(Component.text(" - " + displayName, NamedTextColor.GRAY))
-                    .append(Component.text(" (Уровень " + minLevel + ", " + maxRadius + " блоков)", NamedTextColor.DARK_GRAY)));
-            }
+        for (Material material : plugin.getSettings().markerMaterials()) {
+            var marker = plugin.getSettings().marker(material);
+            player.sendMessage(Component.text("  " + material.name(), NamedTextColor.WHITE)
+                .append(Component.text(" - " + marker.displayName(), NamedTextColor.GRAY))
+                .append(Component.text(" (Уровень " + marker.minClanLevel() + ", " + marker.maxRadius() + " блоков)", NamedTextColor.DARK_GRAY)));
         }
     }
 
@@ -433,11 +440,46 @@ public class ClanCommand implements CommandExecutor, TabCompleter {
                         player.sendMessage(Component.text("Второй маркер: ", NamedTextColor.GRAY)
                             .append(Component.text(region.getMarker2X() + ", " + region.getMarker2Y() + ", " + region.getMarker2Z(), NamedTextColor.WHITE)));
                     }
+                    List<String> visitorFlags = Arrays.stream(RegionFlag.values())
+                        .filter(f -> (region.getFlags() & f.bit()) != 0)
+                        .map(RegionFlag::getDisplayName)
+                        .toList();
+                    player.sendMessage(Component.text("Гостям разрешено: ", NamedTextColor.GRAY)
+                        .append(Component.text(visitorFlags.isEmpty() ? "ничего" : String.join(", ", visitorFlags), NamedTextColor.WHITE)));
                 });
             });
         });
     }
 
+    private void handleRegionFlag(Player player, String[] args) {
+        RegionFlag flag = args.length < 4 ? null : RegionFlag.byName(args[2]);
+        String value = args.length < 4 ? "" : args[3].toLowerCase();
+        if (flag == null || !(value.equals("on") || value.equals("off"))) {
+            player.sendMessage(Component.text("Использование: /clan region flag <флаг> <on|off>", NamedTextColor.RED));
+            return;
+        }
+        plugin.getRegionService().setVisitorFlag(player, flag, value.equals("on"));
+    }
+
+    private void handleRegionPerm(Player player, String[] args) {
+        RegionFlag flag = args.length < 5 ? null : RegionFlag.byName(args[3]);
+        String value = args.length < 5 ? "" : args[4].toLowerCase();
+        Boolean allowed = switch (value) {
+            case "allow" -> Boolean.TRUE;
+            case "deny" -> Boolean.FALSE;
+            default -> null;
+        };
+        if (flag == null || allowed == null && !value.equals("reset")) {
+            player.sendMessage(Component.text("Использование: /clan region perm <игрок> <флаг> <allow|deny|reset>", NamedTextColor.RED));
+            return;
+        }
+        plugin.getRegionService().setMemberFlag(player, args[2], flag, allowed);
+    }
+
+    private static List<String> regionFlagNames() {
+        return Arrays.stream(RegionFlag.values()).map(f -> f.name().toLowerCase()).toList();
+    }
+
     private void handleRegionRemove(Player player) {
         plugin.getData().findPlayerByUuid(player.getUniqueId()).thenAccept(optPlayer -> {
             if (optPlayer.isEmpty() || !optPlayer.get().isInClan()) {
@@ -482,7 +524,7 @@ public class ClanCommand implements CommandExecutor, TabCompleter {
                 "list", "top"
             ));
 
-            if (plugin.getConfig().getBoolean("regions.enabled", true)) {
+            if (plugin.getSettings().regionsEnabled()) {
                 commands.add("region");
             }
 
@@ -492,7 +534,7 @@ public class ClanCommand implements CommandExecutor, TabCompleter {
         if (args.length == 2) {
             switch (args[0].toLowerCase()) {
                 case "region":
-                    return Arrays.asList("help", "marker", "info", "remove");
+                    return Arrays.asList("help", "marker", "info", "remove", "flag", "perm");
                 case "invite", "kick", "promote", "demote", "transfer":
                     // Возвращаем список онлайн игроков
                     return plugin.getServer().getOnlinePlayers().stream()
@@ -500,23 +542,28 @@ public class ClanCommand implements CommandExecutor, TabCompleter {
                         .filter(name -> name.toLowerCase().startsWith(args[1].toLowerCase()))
                         .toList();
                 case "info":
-                    try {
-                        return plugin.getData().getAllClanNames().join().stream()
-                            .filter(name -> name.toLowerCase().startsWith(args[1].toLowerCase()))
-                            .toList();
-                    } catch (Exception ignored) {
-                        return new ArrayList<>();
-                    }
+                    return plugin.getData().completeClanNames(args[1], TAB_COMPLETE_LIMIT);
             }
         }
 
         if (args.length == 3 && args[0].equalsIgnoreCase("region") && args[1].equalsIgnoreCase("marker")) {
-            var markerSection = plugin.getConfig().getConfigurationSection("regions.marker-blocks");
-            if (markerSection != null) {
-                return markerSection.getKeys(false).stream()
-                    .filter(key -> key.toLowerCase().startsWith(args[2].toLowerCase()))
-                    .toList();
-            }
+            return plugin.getSettings().markerMaterials().stream()
+                .map(Material::name)
+                .filter(key -> key.toLowerCase().startsWith(args[2].toLowerCase()))
+                .toList();
+        }
+
+        if (args.length >= 3 && args[0].equalsIgnoreCase("region")) {
+            String sub = args[1].toLowerCase();
+            String prefix = args[args.length - 1].toLowerCase();
+            List<String> options = switch (sub + ":" + args.length) {
+                case "flag:3", "perm:4" -> regionFlagNames();
+                case "flag:4" -> List.of("on", "off");
+                case "perm:5" -> List.of("allow", "deny", "reset");
+                case "perm:3" -> plugin.getServer().getOnlinePlayers().stream().map(Player::getName).toList();
+                default -> List.of();
+            };
+            return options.stream().filter(o -> o.toLowerCase().startsWith(prefix)).toList();
         }
 
         return new ArrayList<>();
@@ -0,0 +1,214 @@
+package com.cruiser.clans.config;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.logging.Logger;
+
+import org.bukkit.Material;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.FileConfiguration;
+
+import net.kyori.adventure.text.format.NamedTextColor;
+import net.kyori.adventure.text.format.TextColor;
+
+/**
+ * Неизменяемый типизированный снимок config.yml.
+ * Разбирается один раз при включении и при /clanadmin reload; плагин хранит его
+ * в volatile поле и заменяет целиком, поэтому обработчики событий читают настройки
+ * без блокировок и без обращений к YAML дереву.
+ */
+public final class ClanSettings {
+
+    /**
+     * Тип маркера региона из regions.marker-blocks.
+     */
+    public record Marker(Material material, String displayName, int minClanLevel, int maxRadius) {}
+
+    private final boolean regionsEnabled;
+    private final int bufferZone;
+    private final boolean regionNotifications;
+    private final boolean protectBlockBreak;
+    private final boolean protectBlockPlace;
+    private final boolean protectContainers;
+    private final boolean protectEntityDamage;
+    private final boolean protectExplosions;
+    private final boolean protectPistons;
+    private final boolean protectFluids;
+    private final boolean protectHoppers;
+    private final String noPermissionMessage;
+    private final Map<Material, Marker> markers;
+    private final Set<Material> markerMaterials;
+
+    private final boolean chatEnabled;
+    private final String chatFormat;
+    private final String chatPrefix;
+    private final boolean showTagsInChat;
+    private final boolean showInTablist;
+    private final NavigableMap<Integer, TextColor> tagColors;
+    private final TextColor ownClanColor;
+    private final boolean logActions;
+
+    private ClanSettings(FileConfiguration config, Logger logger) {
+        this.regionsEnabled = config.getBoolean("regions.enabled", true);
+        this.bufferZone = Math.max(0, config.getInt("regions.buffer-zone", 5));
+        this.regionNotifications = config.getBoolean("regions.notifications", true);
+        this.protectBlockBreak = config.getBoolean("regions.protection.block-break", true);
+        this.protectBlockPlace = config.getBoolean("regions.protection.block-place", true);
+        this.protectContainers = config.getBoolean("regions.protection.container-access", true);
+        this.protectEntityDamage = config.getBoolean("regions.protection.entity-damage", true);
+        this.protectExplosions = config.getBoolean("regions.protection.explosions", true);
+        this.protectPistons = config.getBoolean("regions.protection.pistons", true);
+        this.protectFluids = config.getBoolean("regions.protection.fluids", true);
+        this.protectHoppers = config.getBoolean("regions.protection.hoppers", true);
+        this.noPermissionMessage = config.getString("regions.protection.messages.no-permission",
+            "&cВы не можете делать это на территории %clan%");
+
+        Map<Material, Marker> parsed = new EnumMap<>(Material.class);
+        ConfigurationSection section = config.getConfigurationSection("regions.marker-blocks");
+        if (section != null) {
+            for (String key : section.getKeys(false)) {
+                Material material = Material.matchMaterial(key);
+                if (material == null) {
+                    logger.warning("Неизвестный материал маркера в regions.marker-blocks: " + key);
+                    continue;
+                }
+                ConfigurationSection m = section.getConfigurationSection(key);
+                parsed.put(material, new Marker(material,
+                    m == null ? key : m.getString("display-name", key),
+                    m == null ? 1 : m.getInt("min-clan-level", 1),
+                    m == null ? 25 : m.getInt("max-radius", 25)));
+            }
+        }
+        this.markers = Collections.unmodifiableMap(parsed);
+        this.markerMaterials = Collections.unmodifiableSet(
+            parsed.isEmpty() ? EnumSet.noneOf(Material.class) : EnumSet.copyOf(parsed.keySet()));
+
+        this.chatEnabled = config.getBoolean("chat.enabled", true);
+        this.chatFormat = config.getString("chat.format", "%prefix% &7%player%: &f%message%");
+        this.chatPrefix = config.getString("chat.prefix", "&7[&6CLAN&7]");
+        this.showTagsInChat = config.getBoolean("display.show-tags-in-chat", true);
+        this.showInTablist = config.getBoolean("display.show-in-tablist", true);
+        this.tagColors = Collections.unmodifiableNavigableMap(parseTagColors(
+            config.getConfigurationSection("display.tag-colors"), logger));
+        // Отдельные scoreboard'ы скрывают scoreboard'ы других плагинов, поэтому только по явной настройке
+        String own = config.getString("display.own-clan-color", "");
+        this.ownClanColor = own == null || own.isBlank() ? null
+            : parseColor(own, "display.own-clan-color", NamedTextColor.GREEN, logger);
+        this.logActions = config.getBoolean("debug.log-actions", false);
+    }
+
+    /**
+     * Разобрать текущую конфигурацию. Ошибки в отдельных ключах логируются и пропускаются.
+     */
+    public static ClanSettings load(FileConfiguration config, Logger logger) {
+        return new ClanSettings(config, logger);
+    }
+
+    // region Регионы
+
+    public boolean regionsEnabled() { return regionsEnabled; }
+    /**
+     * Минимальный зазор в блоках между регионами разных кланов.
+     */
+    public int bufferZone() { return bufferZone; }
+    public boolean regionNotifications() { return regionsEnabled && regionNotifications; }
+    public boolean protectBlockBreak() { return regionsEnabled && protectBlockBreak; }
+    public boolean protectBlockPlace() { return regionsEnabled && protectBlockPlace; }
+    public boolean protectContainers() { return regionsEnabled && protectContainers; }
+    public boolean protectEntityDamage() { return regionsEnabled && protectEntityDamage; }
+    public boolean protectExplosions() { return regionsEnabled && protectExplosions; }
+    public boolean protectPistons() { return regionsEnabled && protectPistons; }
+    public boolean protectFluids() { return regionsEnabled && protectFluids; }
+    public boolean protectHoppers() { return regionsEnabled && protectHoppers; }
+
+    /**
+     * Сообщение о запрете с подставленным именем клана.
+     */
+    public String noPermissionMessage(String clanName) {
+        return noPermissionMessage.replace("%clan%", clanName);
+    }
+
+    public boolean isMarkerMaterial(Material material) {
+        return markerMaterials.contains(material);
+    }
+
+    /**
+     * @return тип маркера или null, если материал не является маркером
+     */
+    public Marker marker(Material material) {
+        return markers.get(material);
+    }
+
+    public Set<Material> markerMaterials() { return markerMaterials; }
+
+    // endregion
+
+    // region Чат и отображение
+
+    public boolean chatEnabled() { return chatEnabled; }
+    public String chatFormat() { return chatFormat; }
+    public String chatPrefix() { return chatPrefix; }
+    public boolean showTagsInChat() { return showTagsInChat; }
+    public boolean showInTablist() { return showInTablist; }
+
+    /**
+     * Цвет тега для уровня клана: ближайший порог из display.tag-colors не выше уровня.
+     */
+    public TextColor tagColor(int level) {
+        Map.Entry<Integer, TextColor> e = tagColors.floorEntry(level);
+        return e == null ? NamedTextColor.GRAY : e.getValue();
+    }
+
+    /**
+     * Цвет тега своего клана для его участников; null — все видят цвета уровней.
+     */
+    public TextColor ownClanColor() { return ownClanColor; }
+
+    public boolean logActions() { return logActions; }
+
+    // endregion
+
+    private static NavigableMap<Integer, TextColor> parseTagColors(ConfigurationSection section, Logger logger) {
+        NavigableMap<Integer, TextColor> colors = new TreeMap<>();
+        if (section == null) {
+            // Значения по умолчанию совпадают с config.yml
+            colors.put(0, NamedTextColor.GRAY);
+            colors.put(5, NamedTextColor.AQUA);
+            colors.put(10, NamedTextColor.GREEN);
+            colors.put(20, NamedTextColor.YELLOW);
+            colors.put(30, NamedTextColor.GOLD);
+            colors.put(40, NamedTextColor.RED);
+            colors.put(50, NamedTextColor.DARK_RED);
+            return colors;
+        }
+        for (String key : section.getKeys(false)) {
+            int level;
+            try {
+                level = Integer.parseInt(key);
+            } catch (NumberFormatException ex) {
+                logger.warning("Неверный уровень в display.tag-colors: " + key);
+                continue;
+            }
+            String raw = section.getString(key, "gray");
+            colors.put(level, parseColor(raw, "display.tag-colors." + key, NamedTextColor.GRAY, logger));
+        }
+        return colors;
+    }
+
+    private static TextColor parseColor(String raw, String path, TextColor fallback, Logger logger) {
+        // Имя цвета (red, light_purple и т.п.) или HEX (#RRGGBB)
+        TextColor color = NamedTextColor.NAMES.value(raw.toLowerCase(Locale.ROOT));
+        if (color == null) color = TextColor.fromHexString(raw);
+        if (color == null) {
+            logger.warning("Неизвестный цвет в " + path + ": " + raw);
+            color = fallback;
+        }
+        return color;
+    }
+}
@@ -0,0 +1,43 @@
+package com.cruiser.clans.event;
+
+import org.bukkit.entity.Player;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.player.PlayerEvent;
+
+import com.cruiser.clans.cache.RegionBounds;
+
+/**
+ * Игрок вошёл на территорию клана.
+ * Вызывается в основном потоке только при смене региона, а не на каждое движение.
+ */
+public class ClanRegionEnterEvent extends PlayerEvent {
+
+    private static final HandlerList HANDLERS = new HandlerList();
+
+    private final RegionBounds region;
+
+    public ClanRegionEnterEvent(Player player, RegionBounds region) {
+        super(player);
+        this.region = region;
+    }
+
+    /**
+     * Границы региона и id клана-владельца.
+     */
+    public RegionBounds getRegion() {
+        return region;
+    }
+
+    public int getClanId() {
+        return region.clanId();
+    }
+
+    @Override
+    public HandlerList getHandlers() {
+        return HANDLERS;
+    }
+
+    public static HandlerList getHandlerList() {
+        return HANDLERS;
+    }
+}
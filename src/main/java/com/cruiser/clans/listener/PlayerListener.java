@@ -7,7 +7,9 @@ import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.entity.PlayerDeathEvent;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerLoginEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
 
 import com.cruiser.clans.ClanPlugin;
@@ -21,11 +23,49 @@ public class PlayerListener implements Listener {
         this.plugin = plugin;
     }
 
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPreLogin(AsyncPlayerPreLoginEvent event) {
+        if (event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) return;
+        // Runs off the main thread, so waiting here keeps join and protection checks free of DB I/O
+        try {
+            plugin.getData().openSession(event.getUniqueId()).join();
+        } catch (Exception ex) {
+            plugin.getLogger().warning("Error loading session for " + event.getName() + ": " + ex.getMessage());
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onLogin(PlayerLoginEvent event) {
+        if (event.getResult() != PlayerLoginEvent.Result.ALLOWED) {
+            plugin.getData().closeSession(event.getPlayer().getUniqueId());
+        } else {
+            // Sessions never claimed (connection lost before login) expire on a later pre-login
+            plugin.getData().claimSession(event.getPlayer().getUniqueId());
+        }
+    }
+
     @EventHandler(priority = EventPriority.HIGH)
     public void onPlayerJoin(PlayerJoinEvent event) {
         Player player = event.getPlayer();
 
+        // Session load failed at pre-login: retry in the background so region checks get the real role
+        if (!plugin.getData().hasSession(player.getUniqueId())) {
+            plugin.getData().openSession(player.getUniqueId()).thenRun(() -> plugin.getData().runSync(() -> {
+                // Quit while loading: do not keep the session
+                if (player.isOnline()) plugin.getData().claimSession(player.getUniqueId());
+                else plugin.getData().closeSession(player.getUniqueId());
+            })).exceptionally(ex -> {
+                plugin.getLogger().warning("Error loading session for " + player.getName() + ": " + ex.getMessage());
+                return null;
+            });
+        }
+
         plugin.getData().findPlayerByUuid(player.getUniqueId()).thenAccept(optPlayer -> {
+            Integer clanId = optPlayer.filter(ClanPlayerEntity::isInClan).map(p -> p.getClan().getId()).orElse(null);
+            // Quit runs on the main thread too, so a player who left meanwhile is not re-added
+            plugin.getData().runSync(() -> {
+                if (player.isOnline()) plugin.getData().getRoster().join(player, clanId);
+            });
             if (optPlayer.isEmpty()) {
                 ClanPlayerEntity newPlayer = new ClanPlayerEntity();
                 newPlayer.setUuid(player.getUniqueId());
@@ -41,7 +81,7 @@ public class PlayerListener implements Listener {
                 existingPlayer.setLastSeen(Instant.now());
 
                 plugin.getData().savePlayer(existingPlayer).thenRun(() -> {
-                    plugin.getData().runSync(() -> plugin.getDisplayService().updatePlayerDisplay(player));
+                    plugin.getDisplayService().updatePlayerDisplay(player);
                 });
             }
         }).exceptionally(ex -> {
@@ -67,6 +107,9 @@ public class PlayerListener implements Listener {
             plugin.getLogger().warning("Error processing player quit for " + player.getName() + ": " + ex.getMessage());
             return null;
         });
+        plugin.getData().closeSession(player.getUniqueId());
+        plugin.getData().getRoster().quit(player.getUniqueId());
+        plugin.getDisplayService().removePlayer(player);
     }
 
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
@@ -74,14 +117,14 @@ public class PlayerListener implements Listener {
         Player victim = event.getPlayer();
         Player killer = victim.getKiller();
 
-        // Update victim stats and clan total deaths
+        // Update victim stats and clan total deaths (aggregated, flushed periodically)
         plugin.getData().recordPlayerDeath(victim.getUniqueId());
 
-        // Update killer stats and clan; check for level up
+        // Update killer stats and clan; level-ups are checked against in-memory totals
         if (killer != null && killer != victim) {
             int expGain = calculateKillExp(victim, killer);
-            plugin.getData().recordPlayerKillAndReturnClan(killer.getUniqueId(), expGain)
-                .thenAccept(optClan -> optClan.ifPresent(this::checkClanLevelUp));
+            plugin.getData().recordPlayerKill(killer.getUniqueId(), expGain)
+                .thenAccept(optClan -> optClan.ifPresent(this::announceClanLevelUp));
         }
     }
 
@@ -90,37 +133,16 @@ public class PlayerListener implements Listener {
         return baseExp;
     }
 
-    private void checkClanLevelUp(com.cruiser.clans.orm.entity.ClanEntity clan) {
-        int currentLevel = clan.getClanLevel();
-        int currentExp = clan.getClanExp();
-        int requiredExp = getRequiredExpForLevel(currentLevel + 1);
-
-        if (currentExp >= requiredExp) {
-            clan.setClanLevel(currentLevel + 1);
-            clan.setClanExp(currentExp - requiredExp);
-
-            if ((currentLevel + 1) % 5 == 0) {
-                clan.setMaxMembers(clan.getMaxMembers() + 2);
+    private void announceClanLevelUp(com.cruiser.clans.orm.entity.ClanEntity clan) {
+        plugin.getData().runSync(() -> {
+            for (Player player : plugin.getData().getRoster().onlineMembers(clan.getId())) {
+                player.sendMessage(net.kyori.adventure.text.Component.text()
+                    .append(net.kyori.adventure.text.Component.text("Клан повысил уровень до ", net.kyori.adventure.text.format.NamedTextColor.GOLD))
+                    .append(net.kyori.adventure.text.Component.text(clan.getClanLevel() + "!", net.kyori.adventure.text.format.NamedTextColor.YELLOW))
+                    .build());
             }
-
-            plugin.getData().runSync(() -> {
-                plugin.getData().getClanMembers(clan.getId()).thenAccept(members -> {
-                    for (ClanPlayerEntity member : members) {
-                        Player player = plugin.getServer().getPlayer(member.getUuidAsUUID());
-                        if (player != null && player.isOnline()) {
-                            player.sendMessage(net.kyori.adventure.text.Component.text()
-                                .append(net.kyori.adventure.text.Component.text("Клан повысил уровень до ", net.kyori.adventure.text.format.NamedTextColor.GOLD))
-                                .append(net.kyori.adventure.text.Component.text(clan.getClanLevel() + "!", net.kyori.adventure.text.format.NamedTextColor.YELLOW))
-                                .build());
-                        }
-                    }
-                });
-            });
-        }
-    }
-
-    private int getRequiredExpForLevel(int level) {
-        return 100 * level + (level * level * 10);
+        });
+        // Tag color depends on clan level
+        plugin.getDisplayService().updateClanDisplay(clan.getId());
     }
 }
-
@@ -0,0 +1,194 @@
+package com.cruiser.clans.listener;
+
+import java.util.List;
+
+import org.bukkit.Location;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockFace;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.block.BlockExplodeEvent;
+import org.bukkit.event.block.BlockFromToEvent;
+import org.bukkit.event.block.BlockPistonEvent;
+import org.bukkit.event.block.BlockPistonExtendEvent;
+import org.bukkit.event.block.BlockPistonRetractEvent;
+import org.bukkit.event.entity.EntityExplodeEvent;
+import org.bukkit.event.inventory.InventoryMoveItemEvent;
+
+import com.cruiser.clans.ClanPlugin;
+import com.cruiser.clans.cache.RegionBounds;
+import com.cruiser.clans.cache.RegionIndex;
+import com.cruiser.clans.util.HandlerTimings;
+import com.cruiser.clans.util.LongObjectMap;
+
+/**
+ * Защита регионов от событий без игрока: взрывов, поршней, течения жидкостей и воронок.
+ * Эти события идут намного чаще действий игроков, поэтому каждая проверка — проба
+ * индекса чанков без выделения памяти; список блоков взрыва группируется по чанкам,
+ * и каждый чанк разрешается один раз. Все обработчики работают в основном потоке.
+ */
+public class RegionEnvironmentListener implements Listener {
+
+    // Владелец позиции вне регионов
+    private static final int NO_OWNER = -1;
+
+    private final ClanPlugin plugin;
+    private final RegionIndex index;
+    private final HandlerTimings.Timer explosionTimer;
+    private final HandlerTimings.Timer pistonTimer;
+    private final HandlerTimings.Timer fluidTimer;
+    private final HandlerTimings.Timer hopperTimer;
+    // Регионы чанков текущего взрыва; очищается перед каждым взрывом
+    private final LongObjectMap<RegionBounds[]> explosionChunks = new LongObjectMap<>(64);
+
+    public RegionEnvironmentListener(ClanPlugin plugin) {
+        this.plugin = plugin;
+        this.index = plugin.getData().getRegistry().regionIndex();
+        HandlerTimings timings = plugin.getHandlerTimings();
+        this.explosionTimer = timings.timer("Explosion");
+        this.pistonTimer = timings.timer("Piston");
+        this.fluidTimer = timings.timer("FluidFlow");
+        this.hopperTimer = timings.timer("HopperMove");
+    }
+
+    @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
+    public void onEntityExplode(EntityExplodeEvent event) {
+        if (!plugin.getSettings().protectExplosions()) return;
+        long start = System.nanoTime();
+        try {
+            filterExplosion(event.blockList());
+        } finally {
+            explosionTimer.record(start);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
+    public void onBlockExplode(BlockExplodeEvent event) {
+        if (!plugin.getSettings().protectExplosions()) return;
+        long start = System.nanoTime();
+        try {
+            filterExplosion(event.blockList());
+        } finally {
+            explosionTimer.record(start);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
+    public void onPistonExtend(BlockPistonExtendEvent event) {
+        if (!plugin.getSettings().protectPistons()) return;
+        long start = System.nanoTime();
+        try {
+            Block piston = event.getBlock();
+            // Голова поршня занимает соседний блок даже без сдвигаемых блоков
+            if (crossesRegion(event, event.getBlocks())
+                    || foreign(ownerAt(piston), piston.getRelative(event.getDirection()))) {
+                event.setCancelled(true);
+            }
+        } finally {
+            pistonTimer.record(start);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
+    public void onPistonRetract(BlockPistonRetractEvent event) {
+        if (!plugin.getSettings().protectPistons()) return;
+        long start = System.nanoTime();
+        try {
+            if (crossesRegion(event, event.getBlocks())) {
+                event.setCancelled(true);
+            }
+        } finally {
+            pistonTimer.record(start);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
+    public void onFluidFlow(BlockFromToEvent event) {
+        if (!plugin.getSettings().protectFluids()) return;
+        long start = System.nanoTime();
+        try {
+            // Течение вне регионов — одна проба индекса
+            Block to = event.getToBlock();
+            int toOwner = ownerAt(to);
+            if (toOwner != NO_OWNER && toOwner != ownerAt(event.getBlock())) {
+                event.setCancelled(true);
+            }
+        } finally {
+            fluidTimer.record(start);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
+    public void onHopperMove(InventoryMoveItemEvent event) {
+        if (!plugin.getSettings().protectHoppers()) return;
+        long start = System.nanoTime();
+        try {
+            Location source = event.getSource().getLocation();
+            if (source == null || source.getWorld() == null) return;
+            int sourceOwner = ownerAt(source.getWorld().getName(), source.getBlockX(), source.getBlockY(), source.getBlockZ());
+            if (sourceOwner == NO_OWNER) return;
+            Location dest = event.getDestination().getLocation();
+            int destOwner = dest == null || dest.getWorld() == null ? NO_OWNER
+                : ownerAt(dest.getWorld().getName(), dest.getBlockX(), dest.getBlockY(), dest.getBlockZ());
+            if (destOwner != sourceOwner) {
+                event.setCancelled(true);
+            }
+        } finally {
+            hopperTimer.record(start);
+        }
+    }
+
+    /**
+     * Убрать из списка взрыва блоки внутри регионов. Блоки группируются по чанкам:
+     * регионы каждого чанка берутся из индекса один раз на взрыв.
+     */
+    private void filterExplosion(List<Block> blocks) {
+        if (blocks.isEmpty()) return;
+        String world = blocks.get(0).getWorld().getName();
+        explosionChunks.clear();
+        blocks.removeIf(block -> {
+            int cx = block.getX() >> 4;
+            int cz = block.getZ() >> 4;
+            long key = LongObjectMap.pack(cx, cz);
+            RegionBounds[] cell = explosionChunks.get(key);
+            if (cell == null) {
+                cell = index.regionsInChunk(world, cx, cz);
+                explosionChunks.put(key, cell);
+            }
+            for (RegionBounds region : cell) {
+                if (region.contains(block.getX(), block.getY(), block.getZ())) return true;
+            }
+            return false;
+        });
+    }
+
+    /**
+     * Двигает ли поршень блоки из чужого региона или в чужой регион. Проверяются
+     * исходные позиции и позиции после сдвига.
+     */
+    private boolean crossesRegion(BlockPistonEvent event, List<Block> moved) {
+        int pistonOwner = ownerAt(event.getBlock());
+        BlockFace direction = event.getDirection();
+        for (Block block : moved) {
+            if (foreign(pistonOwner, block) || foreign(pistonOwner, block.getRelative(direction))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean foreign(int owner, Block block) {
+        int other = ownerAt(block);
+        return other != NO_OWNER && other != owner;
+    }
+
+    private int ownerAt(Block block) {
+        return ownerAt(block.getWorld().getName(), block.getX(), block.getY(), block.getZ());
+    }
+
+    private int ownerAt(String world, int x, int y, int z) {
+        RegionBounds region = index.regionAt(world, x, y, z);
+        return region == null ? NO_OWNER : region.clanId();
+    }
+}
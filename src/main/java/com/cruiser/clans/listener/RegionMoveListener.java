@@ -0,0 +1,139 @@
+package com.cruiser.clans.listener;
+
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerMoveEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.player.PlayerRespawnEvent;
+import org.bukkit.event.player.PlayerTeleportEvent;
+
+import com.cruiser.clans.ClanPlugin;
+import com.cruiser.clans.cache.RegionBounds;
+import com.cruiser.clans.cache.RegionIndex;
+import com.cruiser.clans.event.ClanRegionEnterEvent;
+import com.cruiser.clans.event.ClanRegionLeaveEvent;
+import com.cruiser.clans.util.HandlerTimings;
+import com.cruiser.clans.util.LongObjectMap;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.format.NamedTextColor;
+
+/**
+ * Отслеживание входа и выхода игроков из регионов кланов.
+ * Движения внутри одного блока отбрасываются сразу; остальные стоят одну пробу
+ * индекса чанков. Последний регион игрока хранится по id сущности, события
+ * вызываются только при смене региона. При переходе из региона прямо в соседний
+ * игрок видит только сообщение о входе. Все обработчики работают в основном потоке.
+ */
+public class RegionMoveListener implements Listener {
+
+    private final ClanPlugin plugin;
+    private final RegionIndex index;
+    private final HandlerTimings.Timer moveTimer;
+    private final HandlerTimings.Timer teleportTimer;
+    private final HandlerTimings.Timer respawnTimer;
+    // id сущности игрока -> текущий регион; игроков вне регионов в карте нет
+    private final LongObjectMap<RegionBounds> current = new LongObjectMap<>(256);
+
+    public RegionMoveListener(ClanPlugin plugin) {
+        this.plugin = plugin;
+        this.index = plugin.getData().getRegistry().regionIndex();
+        this.moveTimer = plugin.getHandlerTimings().timer("PlayerMove");
+        this.teleportTimer = plugin.getHandlerTimings().timer("PlayerTeleport");
+        this.respawnTimer = plugin.getHandlerTimings().timer("PlayerRespawn");
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlayerMove(PlayerMoveEvent event) {
+        if (!event.hasChangedBlock() || !plugin.getSettings().regionsEnabled()) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            update(event.getPlayer(), event.getTo());
+        } finally {
+            moveTimer.record(start);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlayerTeleport(PlayerTeleportEvent event) {
+        if (!plugin.getSettings().regionsEnabled()) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            update(event.getPlayer(), event.getTo());
+        } finally {
+            teleportTimer.record(start);
+        }
+    }
+
+    /**
+     * Возрождение перемещает игрока без PlayerMoveEvent и PlayerTeleportEvent
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerRespawn(PlayerRespawnEvent event) {
+        if (!plugin.getSettings().regionsEnabled()) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            update(event.getPlayer(), event.getRespawnLocation());
+        } finally {
+            respawnTimer.record(start);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        update(event.getPlayer(), event.getPlayer().getLocation());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        current.remove(event.getPlayer().getEntityId());
+    }
+
+    private void update(Player player, Location to) {
+        if (to == null || to.getWorld() == null) return;
+        long key = player.getEntityId();
+        RegionBounds previous = current.get(key);
+        RegionBounds now = index.regionAt(to.getWorld().getName(), to.getBlockX(), to.getBlockY(), to.getBlockZ());
+
+        if (previous == null && now == null) return;
+        if (previous != null && now != null && previous.regionId() == now.regionId()) {
+            // Тот же регион, но границы могли измениться после второго маркера
+            if (previous != now) current.put(key, now);
+            return;
+        }
+
+        if (now == null) current.remove(key);
+        else current.put(key, now);
+
+        boolean announce = plugin.getSettings().regionNotifications();
+        if (previous != null) {
+            new ClanRegionLeaveEvent(player, previous).callEvent();
+            // Из региона прямо в соседний: сообщение о входе заменит это в строке действий
+            if (announce && now == null) announce(player, previous, false);
+        }
+        if (now != null) {
+            new ClanRegionEnterEvent(player, now).callEvent();
+            if (announce) announce(player, now, true);
+        }
+    }
+
+    private void announce(Player player, RegionBounds region, boolean entered) {
+        var clan = plugin.getData().getRegistry().findClanById(region.clanId());
+        if (clan.isEmpty()) return;
+        Component prefix = plugin.getDisplayService().getClanDisplay(clan.get()).prefix();
+        player.sendActionBar(Component.text()
+            .append(Component.text(entered ? "Территория клана " : "Вы покинули территорию ", NamedTextColor.GRAY))
+            .append(prefix)
+            .build());
+    }
+}
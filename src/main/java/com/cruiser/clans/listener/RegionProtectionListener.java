@@ -1,12 +1,15 @@
 package com.cruiser.clans.listener;
 
-import java.util.Optional;
+import java.util.EnumMap;
+import java.util.Map;
 
-import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.block.Block;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
+import org.bukkit.event.block.Action;
 import org.bukkit.event.block.BlockBreakEvent;
 import org.bukkit.event.block.BlockPlaceEvent;
 import org.bukkit.event.entity.EntityDamageByEntityEvent;
@@ -14,145 +17,146 @@ import org.bukkit.event.player.PlayerInteractEvent;
 import org.bukkit.inventory.ItemStack;
 
 import com.cruiser.clans.ClanPlugin;
-import com.cruiser.clans.orm.entity.ClanRegionEntity;
+import com.cruiser.clans.cache.RegionBounds;
+import com.cruiser.clans.config.ClanSettings;
+import com.cruiser.clans.orm.entity.RegionFlag;
 import com.cruiser.clans.service.ClanRegionService;
+import com.cruiser.clans.util.HandlerTimings;
 
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.format.NamedTextColor;
 
 /**
- * Слушатель защиты регионов клана
+ * Слушатель защиты регионов клана.
+ * Все решения принимаются по данным в памяти (индекс регионов и сессии игроков),
+ * основной поток никогда не ждёт БД. Маркеры сохраняются асинхронно: событие
+ * отменяется, а блок ставится или ломается после подтверждения записи.
  */
 public class RegionProtectionListener implements Listener {
 
+    // Блоки, взаимодействие с которыми проверяется, и нужный для этого флаг региона
+    private static final Map<Material, RegionFlag> INTERACT_FLAGS = new EnumMap<>(Material.class);
+
+    static {
+        for (Material m : Material.values()) {
+            String name = m.name();
+            switch (m) {
+                case CHEST, TRAPPED_CHEST, BARREL, FURNACE, BLAST_FURNACE, SMOKER, DROPPER, DISPENSER, HOPPER ->
+                    INTERACT_FLAGS.put(m, RegionFlag.CONTAINERS);
+                case LEVER, REPEATER, COMPARATOR ->
+                    INTERACT_FLAGS.put(m, RegionFlag.REDSTONE);
+                default -> {
+                    if (name.endsWith("SHULKER_BOX")) {
+                        INTERACT_FLAGS.put(m, RegionFlag.CONTAINERS);
+                    } else if (name.endsWith("_DOOR") || name.endsWith("_TRAPDOOR") || name.endsWith("_FENCE_GATE")) {
+                        INTERACT_FLAGS.put(m, RegionFlag.DOORS);
+                    } else if (name.endsWith("_BUTTON") || name.endsWith("_PRESSURE_PLATE") || name.equals("DAYLIGHT_DETECTOR")) {
+                        INTERACT_FLAGS.put(m, RegionFlag.REDSTONE);
+                    }
+                }
+            }
+        }
+    }
+
     private final ClanPlugin plugin;
     private final ClanRegionService regionService;
+    private final HandlerTimings.Timer breakTimer;
+    private final HandlerTimings.Timer placeTimer;
+    private final HandlerTimings.Timer interactTimer;
+    private final HandlerTimings.Timer damageTimer;
 
     public RegionProtectionListener(ClanPlugin plugin) {
         this.plugin = plugin;
         this.regionService = plugin.getRegionService();
+        HandlerTimings timings = plugin.getHandlerTimings();
+        this.breakTimer = timings.timer("BlockBreak");
+        this.placeTimer = timings.timer("BlockPlace");
+        this.interactTimer = timings.timer("PlayerInteract");
+        this.damageTimer = timings.timer("EntityDamage");
     }
 
     @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
     public void onBlockBreak(BlockBreakEvent event) {
-        if (!plugin.getConfig().getBoolean("regions.enabled", true)) {
+        ClanSettings settings = plugin.getSettings();
+        if (!settings.regionsEnabled()) {
             return;
         }
-
-        Player player = event.getPlayer();
-        Location location = event.getBlock().getLocation();
-
+        long start = System.nanoTime();
         try {
-            Optional<ClanRegionEntity> optRegion = regionService.getRegionAtLocation(location).join();
-            if (optRegion.isPresent()) {
-                ClanRegionEntity region = optRegion.get();
-
-                boolean isMarker1 = location.getBlockX() == region.getMarker1X() &&
-                                   location.getBlockY() == region.getMarker1Y() &&
-                                   location.getBlockZ() == region.getMarker1Z();
-
-                boolean isMarker2 = region.hasSecondMarker() &&
-                                   location.getBlockX() == region.getMarker2X() &&
-                                   location.getBlockY() == region.getMarker2Y() &&
-                                   location.getBlockZ() == region.getMarker2Z();
-
-                if (isMarker1 || isMarker2) {
-                    boolean allowed = regionService.handleMarkerBreak(player, location).join();
-                    if (!allowed) {
-                        event.setCancelled(true);
-                        String message = plugin.getConfig().getString("regions.protection.messages.no-permission",
-                            "&cВы не можете делать это на территории %clan%")
-                            .replace("%clan%", region.getClan().getName());
-                        player.sendMessage(Component.text(message, NamedTextColor.RED));
-                    }
-                    return;
-                }
+            Block block = event.getBlock();
+            RegionBounds region = regionService.regionAt(block);
+            if (region == null) return;
 
-                if (plugin.getConfig().getBoolean("regions.protection.block-break", true)) {
-                    if (!checkRegionPermission(player, region)) {
-                        event.setCancelled(true);
-                    }
-                }
+            Player player = event.getPlayer();
+            if (region.isMarker(block.getX(), block.getY(), block.getZ())) {
+                event.setCancelled(true);
+                regionService.breakMarker(player, block, region);
+                return;
             }
-        } catch (Exception ex) {
-            plugin.getLogger().warning("Ошибка проверки защиты региона: " + ex.getMessage());
+
+            if (settings.protectBlockBreak() && !checkRegionPermission(player, region, RegionFlag.BREAK)) {
+                event.setCancelled(true);
+            }
+        } finally {
+            breakTimer.record(start);
         }
     }
 
     @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
     public void onBlockPlace(BlockPlaceEvent event) {
-        if (!plugin.getConfig().getBoolean("regions.enabled", true)) {
+        ClanSettings settings = plugin.getSettings();
+        if (!settings.regionsEnabled()) {
             return;
         }
+        long start = System.nanoTime();
+        try {
+            Player player = event.getPlayer();
+            ItemStack item = event.getItemInHand();
 
-        Player player = event.getPlayer();
-        Location location = event.getBlock().getLocation();
-        ItemStack item = event.getItemInHand();
-
-        if (regionService.isClanMarker(item)) {
-            boolean success = regionService.handleMarkerPlacement(player, location, item).join();
-            if (!success) {
+            if (regionService.isClanMarker(item)) {
                 event.setCancelled(true);
+                regionService.placeMarker(player, event.getBlock(), item);
+                return;
             }
-            return;
-        }
 
-        if (plugin.getConfig().getBoolean("regions.protection.block-place", true)) {
-            try {
-                Optional<ClanRegionEntity> optRegion = regionService.getRegionAtLocation(location).join();
-                if (optRegion.isPresent()) {
-                    if (!checkRegionPermission(player, optRegion.get())) {
-                        event.setCancelled(true);
-                    }
+            if (settings.protectBlockPlace()) {
+                RegionBounds region = regionService.regionAt(event.getBlock());
+                if (region != null && !checkRegionPermission(player, region, RegionFlag.BUILD)) {
+                    event.setCancelled(true);
                 }
-            } catch (Exception ex) {
-                plugin.getLogger().warning("Ошибка проверки защиты региона: " + ex.getMessage());
             }
+        } finally {
+            placeTimer.record(start);
         }
     }
 
     @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
     public void onPlayerInteract(PlayerInteractEvent event) {
-        if (!plugin.getConfig().getBoolean("regions.enabled", true) ||
-            !plugin.getConfig().getBoolean("regions.protection.container-access", true)) {
-            return;
-        }
+        Block block = event.getClickedBlock();
+        if (block == null) return;
 
-        if (event.getClickedBlock() == null) return;
-
-        switch (event.getClickedBlock().getType()) {
-            case CHEST,
-                 TRAPPED_CHEST,
-                 BARREL,
-                 SHULKER_BOX,
-                 FURNACE,
-                 BLAST_FURNACE,
-                 SMOKER,
-                 DROPPER,
-                 DISPENSER,
-                 HOPPER -> {
-                Player player = event.getPlayer();
-                Location location = event.getClickedBlock().getLocation();
-                try {
-                    Optional<ClanRegionEntity> optRegion = regionService.getRegionAtLocation(location).join();
-                    if (optRegion.isPresent()) {
-                        if (!checkRegionPermission(player, optRegion.get())) {
-                            event.setCancelled(true);
-                        }
-                    }
-                } catch (Exception ex) {
-                    plugin.getLogger().warning("Ошибка проверки защиты региона: " + ex.getMessage());
-                }
-            }
-            default -> {
+        RegionFlag flag = INTERACT_FLAGS.get(block.getType());
+        if (flag == null || !plugin.getSettings().regionsEnabled()) return;
+        if (flag == RegionFlag.CONTAINERS && !plugin.getSettings().protectContainers()) return;
+
+        long start = System.nanoTime();
+        try {
+            RegionBounds region = regionService.regionAt(block);
+            if (region == null) return;
+            // Нажимные плиты срабатывают при ходьбе: запрещаем без сообщения
+            boolean physical = event.getAction() == Action.PHYSICAL;
+            if (physical ? !regionService.isAllowed(event.getPlayer(), region, flag)
+                         : !checkRegionPermission(event.getPlayer(), region, flag)) {
+                event.setCancelled(true);
             }
+        } finally {
+            interactTimer.record(start);
         }
     }
 
     @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
     public void onEntityDamage(EntityDamageByEntityEvent event) {
-        if (!plugin.getConfig().getBoolean("regions.enabled", true) ||
-            !plugin.getConfig().getBoolean("regions.protection.entity-damage", true)) {
+        if (!plugin.getSettings().protectEntityDamage()) {
             return;
         }
 
@@ -160,36 +164,26 @@ public class RegionProtectionListener implements Listener {
             return;
         }
 
-        Location location = event.getEntity().getLocation();
-
+        long start = System.nanoTime();
         try {
-            Optional<ClanRegionEntity> optRegion = regionService.getRegionAtLocation(location).join();
-            if (optRegion.isPresent()) {
-                if (!checkRegionPermission(player, optRegion.get())) {
-                    event.setCancelled(true);
-                }
+            var location = event.getEntity().getLocation();
+            RegionBounds region = plugin.getData().getRegistry().regionIndex().regionAt(
+                location.getWorld().getName(), location.getBlockX(), location.getBlockY(), location.getBlockZ());
+            RegionFlag flag = event.getEntity() instanceof Player ? RegionFlag.PVP : RegionFlag.ENTITY_DAMAGE;
+            if (region != null && !checkRegionPermission(player, region, flag)) {
+                event.setCancelled(true);
             }
-        } catch (Exception ex) {
-            plugin.getLogger().warning("Ошибка проверки защиты региона: " + ex.getMessage());
+        } finally {
+            damageTimer.record(start);
         }
     }
 
-    private boolean checkRegionPermission(Player player, ClanRegionEntity region) {
-        try {
-            Optional<com.cruiser.clans.orm.entity.ClanPlayerEntity> optPlayer =
-                plugin.getData().findPlayerByUuid(player.getUniqueId()).join();
-            boolean hasPermission = optPlayer.isPresent() && optPlayer.get().isInClan() &&
-                optPlayer.get().getClan().getId().equals(region.getClan().getId());
-            if (!hasPermission) {
-                String message = plugin.getConfig().getString("regions.protection.messages.no-permission",
-                    "&cВы не можете делать это на территории %clan%")
-                    .replace("%clan%", region.getClan().getName());
-                player.sendMessage(Component.text(message, NamedTextColor.RED));
-            }
-            return hasPermission;
-        } catch (Exception ex) {
-            plugin.getLogger().warning("Ошибка проверки прав игрока: " + ex.getMessage());
+    private boolean checkRegionPermission(Player player, RegionBounds region, RegionFlag flag) {
+        if (regionService.isAllowed(player, region, flag)) {
             return true;
         }
+        String message = plugin.getSettings().noPermissionMessage(regionService.clanName(region.clanId()));
+        player.sendMessage(Component.text(message, NamedTextColor.RED));
+        return false;
     }
 }
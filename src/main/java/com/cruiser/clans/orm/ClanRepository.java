@@ -0,0 +1,111 @@
+package com.cruiser.clans.orm;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import com.cruiser.clans.orm.entity.ClanEntity;
+import com.cruiser.clans.orm.entity.ClanPlayerEntity;
+import com.cruiser.clans.orm.entity.ClanRegionEntity;
+
+/**
+ * Storage operations for clans, players and regions.
+ * All methods are asynchronous; futures complete off the main thread.
+ * {@link DataManager} is the JDBC implementation for every {@link SqlDialect}.
+ */
+public interface ClanRepository {
+
+    // region Clans
+
+    CompletableFuture<Optional<ClanEntity>> findClanById(Integer id);
+
+    CompletableFuture<Optional<ClanEntity>> findClanByName(String name);
+
+    CompletableFuture<Optional<ClanEntity>> findClanByTag(String tag);
+
+    CompletableFuture<List<ClanEntity>> getTopClansByKills(int limit);
+
+    CompletableFuture<List<ClanEntity>> getAllClansOrderedByLevelAndKills();
+
+    CompletableFuture<List<ClanEntity>> getClansOrderedByLevelAndKills(int limit);
+
+    CompletableFuture<List<String>> getAllClanNames();
+
+    CompletableFuture<ClanEntity> createClan(ClanEntity clan);
+
+    CompletableFuture<ClanEntity> updateClan(ClanEntity clan);
+
+    /**
+     * Set the clan level and clear its experience.
+     *
+     * @return the clan row after the update
+     */
+    CompletableFuture<ClanEntity> setClanLevel(Integer clanId, int level);
+
+    CompletableFuture<ClanEntity> setClanMaxMembers(Integer clanId, int maxMembers);
+
+    /**
+     * Clear the clan's kills, deaths and experience, including counters not yet flushed.
+     */
+    CompletableFuture<ClanEntity> resetClanStats(Integer clanId);
+
+    CompletableFuture<Void> deleteClan(Integer clanId);
+
+    // endregion
+
+    // region Players
+
+    CompletableFuture<Optional<ClanPlayerEntity>> findPlayerByUuid(UUID uuid);
+
+    CompletableFuture<Optional<ClanPlayerEntity>> findPlayerByName(String name);
+
+    CompletableFuture<List<ClanPlayerEntity>> getClanMembers(Integer clanId);
+
+    CompletableFuture<ClanPlayerEntity> savePlayer(ClanPlayerEntity player);
+
+    /**
+     * Clear the player's kills, deaths and contribution, including counters not yet flushed.
+     */
+    CompletableFuture<Void> resetPlayerStats(UUID uuid);
+
+    CompletableFuture<List<ClanPlayerEntity>> findPlayersWithExpiredInvites(Instant now);
+
+    CompletableFuture<Void> recordPlayerDeath(UUID victimUuid);
+
+    /**
+     * @return the killer's clan if this kill made it level up
+     */
+    CompletableFuture<Optional<ClanEntity>> recordPlayerKill(UUID killerUuid, int expGain);
+
+    CompletableFuture<Boolean> transferLeadership(ClanPlayerEntity oldLeader, ClanPlayerEntity newLeader, ClanEntity clan);
+
+    // endregion
+
+    // region Regions
+
+    CompletableFuture<ClanRegionEntity> createRegion(ClanRegionEntity region);
+
+    CompletableFuture<ClanRegionEntity> updateRegion(ClanRegionEntity region);
+
+    CompletableFuture<Void> deleteRegion(Integer regionId);
+
+    CompletableFuture<Optional<ClanRegionEntity>> findRegionById(Integer id);
+
+    CompletableFuture<Optional<ClanRegionEntity>> findClanRegion(Integer clanId);
+
+    CompletableFuture<List<ClanRegionEntity>> findRegionsByWorld(String worldName);
+
+    // endregion
+
+    // region Counts
+
+    CompletableFuture<Long> getClansCount();
+
+    CompletableFuture<Long> getPlayersInClansCount();
+
+    CompletableFuture<Long> getRegionsCount();
+
+    // endregion
+}
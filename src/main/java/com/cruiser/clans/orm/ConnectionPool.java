@@ -0,0 +1,146 @@
+package com.cruiser.clans.orm;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed-size pool of long-lived {@link PooledConnection}s.
+ * Connections are opened lazily up to {@code size}, get their per-connection
+ * setup applied once by the factory and are reused until the pool is closed.
+ * Connections idle for longer than a few seconds are validated before reuse, so
+ * server-side idle timeouts of networked databases are handled transparently.
+ */
+public final class ConnectionPool implements AutoCloseable {
+
+    private static final long ACQUIRE_TIMEOUT_SECONDS = 10;
+    private static final long VALIDATE_AFTER_IDLE_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    @FunctionalInterface
+    public interface ConnectionFactory {
+        Connection open() throws SQLException;
+    }
+
+    private final String name;
+    private final int size;
+    private final ConnectionFactory factory;
+    private final QueryProfiler profiler;
+    private final BlockingQueue<PooledConnection> idle;
+    private final AtomicInteger allocated = new AtomicInteger();
+    private final LongAdder opened = new LongAdder();
+    private final LongAdder statementHits = new LongAdder();
+    private final LongAdder statementMisses = new LongAdder();
+    private volatile boolean closed;
+
+    public ConnectionPool(String name, int size, ConnectionFactory factory, QueryProfiler profiler) {
+        this.name = name;
+        this.size = Math.max(1, size);
+        this.factory = factory;
+        this.profiler = profiler;
+        this.idle = new ArrayBlockingQueue<>(this.size);
+    }
+
+    /**
+     * Borrow a connection. Opens a new one while the pool is below its size,
+     * otherwise waits for a connection to be released.
+     */
+    public PooledConnection acquire() throws SQLException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(ACQUIRE_TIMEOUT_SECONDS);
+        while (true) {
+            if (closed) throw new SQLException("Connection pool '" + name + "' is closed");
+
+            PooledConnection c = validated(idle.poll());
+            if (c != null) return c;
+
+            if (allocated.incrementAndGet() <= size) {
+                try {
+                    Connection raw = factory.open();
+                    opened.increment();
+                    return new PooledConnection(this, raw);
+                } catch (SQLException | RuntimeException e) {
+                    allocated.decrementAndGet();
+                    throw e;
+                }
+            }
+            allocated.decrementAndGet();
+
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) throw new SQLException("Timed out waiting for a connection from '" + name + "'");
+            try {
+                c = idle.poll(remaining, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for a connection from '" + name + "'", e);
+            }
+            c = validated(c);
+            if (c != null) return c;
+        }
+    }
+
+    /**
+     * Returns the connection if it can be reused; a dead idle connection is closed
+     * and null returned so the caller opens a replacement.
+     */
+    private PooledConnection validated(PooledConnection c) {
+        if (c == null || c.idleNanos() < VALIDATE_AFTER_IDLE_NANOS || c.isUsable()) return c;
+        c.close();
+        allocated.decrementAndGet();
+        return null;
+    }
+
+    /**
+     * Return a borrowed connection. Broken connections are closed and replaced on demand.
+     */
+    public void release(PooledConnection c, boolean broken) {
+        if (broken || closed) {
+            c.close();
+            allocated.decrementAndGet();
+            return;
+        }
+        c.markReleased();
+        if (!idle.offer(c)) {
+            c.close();
+            allocated.decrementAndGet();
+        }
+    }
+
+    QueryProfiler profiler() {
+        return profiler;
+    }
+
+    void recordStatementHit() {
+        statementHits.increment();
+    }
+
+    void recordStatementMiss() {
+        statementMisses.increment();
+    }
+
+    public Stats stats() {
+        return new Stats(name, size, allocated.get(), opened.sum(), statementHits.sum(), statementMisses.sum());
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        PooledConnection c;
+        while ((c = idle.poll()) != null) {
+            c.close();
+            allocated.decrementAndGet();
+        }
+    }
+
+    /**
+     * Snapshot of pool counters.
+     */
+    public record Stats(String name, int size, int open, long opened, long statementHits, long statementMisses) {
+        public double hitRatio() {
+            long total = statementHits + statementMisses;
+            return total == 0 ? 0.0 : (double) statementHits / total;
+        }
+    }
+}
@@ -1,75 +1,287 @@
 package com.cruiser.clans.orm;
 
 import com.cruiser.clans.ClanPlugin;
+import com.cruiser.clans.cache.ClanRegistry;
+import com.cruiser.clans.cache.ClanRoster;
+import com.cruiser.clans.cache.NameIndex;
+import com.cruiser.clans.cache.PlayerSessionCache;
 import com.cruiser.clans.orm.entity.ClanEntity;
 import com.cruiser.clans.orm.entity.ClanPlayerEntity;
 import com.cruiser.clans.orm.entity.ClanRegionEntity;
 import com.cruiser.clans.orm.entity.ClanRole;
 import org.bukkit.Bukkit;
+import org.bukkit.scheduler.BukkitTask;
 
 import java.sql.*;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
-public final class DataManager {
+public final class DataManager implements ClanRepository {
+
+    static final List<String> PLAYER_UPSERT_COLUMNS = List.of(
+        "uuid", "name", "clan_id", "role", "joined_at", "last_seen", "player_level", "kills", "deaths",
+        "clan_contribution", "invited_by_uuid", "invite_pending_clan_id", "invite_expires_at", "permissions");
+
+    // Explicit projections; the mappers read them by position, so keep the order in sync
+    private static final String CLAN_COLUMNS =
+        "c.id, c.name, c.tag, c.description, c.leader_uuid, c.created_at, c.updated_at, c.max_members, " +
+        "c.is_public, c.min_level, c.total_kills, c.total_deaths, c.clan_level, c.clan_exp";
+    private static final String PLAYER_COLUMNS =
+        "p.uuid, p.name, p.role, p.joined_at, p.last_seen, p.player_level, p.kills, p.deaths, " +
+        "p.clan_contribution, p.invited_by_uuid, p.invite_pending_clan_id, p.invite_expires_at, p.permissions";
+    private static final int PLAYER_COLUMN_COUNT = 13;
+    private static final String REGION_COLUMNS =
+        "r.id, r.world_name, r.marker_type, r.marker1_x, r.marker1_y, r.marker1_z, r.marker2_x, r.marker2_y, r.marker2_z, r.flags";
+    private static final int REGION_COLUMN_COUNT = 10;
+    private static final int REGISTRY_FETCH_SIZE = 500;
+
+    // Queries and mappers below are package-private for RowMappingBenchmark
+    static final String SELECT_CLAN = "SELECT " + CLAN_COLUMNS + " FROM clans c ";
+    static final String SELECT_PLAYER_WITH_CLAN =
+        "SELECT " + PLAYER_COLUMNS + ", " + CLAN_COLUMNS + " FROM clan_players p LEFT JOIN clans c ON c.id = p.clan_id ";
+    private static final String SELECT_REGION_WITH_CLAN =
+        "SELECT " + REGION_COLUMNS + ", " + CLAN_COLUMNS + " FROM clan_regions r JOIN clans c ON c.id = r.clan_id ";
 
     private final ClanPlugin plugin;
     private final Database db;
+    // Dialect-specific upsert, column order matches bindPlayer
+    private final String upsertPlayerSql;
+    // Write-behind buffer for savePlayer; null when database.write-behind.enabled is false
+    private final PlayerWriteBuffer writeBuffer;
+    private BukkitTask flushTask;
+    // Kill/death counters, flushed every statistics.save-interval minutes
+    private final StatsAggregator stats = new StatsAggregator();
+    private final BukkitTask statsTask;
+    // True when other servers write to the same database (MariaDB/PostgreSQL)
+    private final boolean shared;
+    // Periodic registry reload for a shared database; null otherwise
+    private BukkitTask refreshTask;
+
+    // All clans and regions; serves clan/region lookups once loaded. With a shared
+    // database it is refreshed every database.registry-refresh seconds and misses
+    // fall through to the database
+    private final ClanRegistry registry = new ClanRegistry();
+    // Online players per clan, for message fan-out
+    private final ClanRoster roster = new ClanRoster();
+    // Known player names -> UUID, loaded with the registry
+    private final NameIndex<String> playerNames = new NameIndex<>();
+    // Rows of online players; always on, region checks and marker actions rely on it
+    private final PlayerSessionCache sessions;
 
     public DataManager(ClanPlugin plugin, Database db) {
         this.plugin = plugin;
         this.db = db;
+        this.upsertPlayerSql = db.getDialect().upsert("clan_players", "uuid", PLAYER_UPSERT_COLUMNS);
+        this.sessions = new PlayerSessionCache(registry, plugin.getConfig().getLong("performance.cache-ttl", 60));
+        if (plugin.getConfig().getBoolean("database.write-behind.enabled", false)) {
+            this.writeBuffer = new PlayerWriteBuffer();
+            long periodTicks = Math.max(1, plugin.getConfig().getLong("database.write-behind.flush-interval", 5)) * 20L;
+            this.flushTask = Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, () ->
+                flushPendingPlayers().exceptionally(ex -> {
+                    plugin.getLogger().warning("Ошибка отложенной записи игроков: " + ex.getMessage());
+                    return null;
+                }), periodTicks, periodTicks);
+        } else {
+            this.writeBuffer = null;
+        }
+        long statsTicks = Math.max(1, plugin.getConfig().getLong("statistics.save-interval", 5)) * 60L * 20L;
+        this.statsTask = Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, () ->
+            flushStats().exceptionally(ex -> {
+                plugin.getLogger().warning("Ошибка сохранения статистики: " + ex.getMessage());
+                return null;
+            }), statsTicks, statsTicks);
+        this.shared = db.getDialect().isNetworked();
+        long refreshSeconds = plugin.getConfig().getLong("database.registry-refresh", 30);
+        if (shared && refreshSeconds > 0) {
+            this.refreshTask = Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, () ->
+                refreshRegistry().exceptionally(ex -> {
+                    plugin.getLogger().warning("Ошибка обновления реестра кланов: " + ex.getMessage());
+                    return null;
+                }), refreshSeconds * 20L, refreshSeconds * 20L);
+        }
+    }
+
+    /**
+     * Stop background flushing and write everything still buffered or aggregated.
+     * Called from onDisable before the database is stopped.
+     */
+    public void shutdown() {
+        if (flushTask != null) flushTask.cancel();
+        if (refreshTask != null) refreshTask.cancel();
+        statsTask.cancel();
+        try {
+            flushStats().join();
+            flushPendingPlayers().join();
+        } catch (Exception ex) {
+            plugin.getLogger().log(java.util.logging.Level.SEVERE, "Failed to flush buffered data on shutdown", ex);
+        }
+    }
+
+    /**
+     * Load every clan and region into the registry in one streaming pass.
+     * Called once from onEnable; until it completes lookups go to the database.
+     */
+    public CompletableFuture<ClanRegistry> loadRegistry() {
+        return db.read("loadRegistry", this::readRegistry);
+    }
+
+    /**
+     * Reload the registry to pick up clans and regions written by other servers sharing
+     * the database. Runs on the writer thread: every local write queued before it is in
+     * the snapshot, and every later one is applied to the registry after it.
+     */
+    public CompletableFuture<ClanRegistry> refreshRegistry() {
+        return db.withConnection(TaskPriority.LOW, "refreshRegistry", this::readRegistry);
+    }
+
+    private ClanRegistry readRegistry(PooledConnection c) {
+        List<ClanEntity> clans = new ArrayList<>();
+        List<ClanRegionEntity> regions = new ArrayList<>();
+        try {
+            PreparedStatement ps = c.prepare(SELECT_CLAN);
+            ps.setFetchSize(REGISTRY_FETCH_SIZE);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) clans.add(mapClan(rs, 0));
+            }
+            PreparedStatement rps = c.prepare("SELECT " + REGION_COLUMNS + ", r.clan_id FROM clan_regions r");
+            rps.setFetchSize(REGISTRY_FETCH_SIZE);
+            try (ResultSet rs = rps.executeQuery()) {
+                while (rs.next()) {
+                    // Registry attaches the cached clan by id
+                    ClanEntity ref = new ClanEntity();
+                    ref.setId(rs.getInt(REGION_COLUMN_COUNT + 1));
+                    regions.add(mapRegion(rs, ref));
+                }
+            }
+            // Player rows are never deleted; a rename replaces the previous name
+            PreparedStatement nps = c.prepare("SELECT p.uuid, p.name FROM clan_players p");
+            nps.setFetchSize(REGISTRY_FETCH_SIZE);
+            try (ResultSet rs = nps.executeQuery()) {
+                while (rs.next()) playerNames.put(rs.getString(2), rs.getString(1));
+            }
+        } catch (SQLException e) { throw new RuntimeException(e); }
+        registry.load(clans, regions);
+        for (ClanEntity clan : clans) {
+            // Keep level-ups not flushed yet on top of the reloaded row
+            StatsAggregator.Progress view = stats.refresh(clan);
+            if (view != null) registry.applyProgress(clan.getId(), view.level(), view.exp(), view.maxMembers());
+        }
+        return registry;
+    }
+
+    public ClanRegistry getRegistry() {
+        return registry;
+    }
+
+    public ClanRoster getRoster() {
+        return roster;
+    }
+
+    /**
+     * Clan names starting with {@code prefix}, ignoring case. No I/O; for tab completion.
+     */
+    public List<String> completeClanNames(String prefix, int limit) {
+        return registry.completeClanNames(prefix, limit);
+    }
+
+    /**
+     * Known player names starting with {@code prefix}, ignoring case. No I/O; for tab completion.
+     */
+    public List<String> completePlayerNames(String prefix, int limit) {
+        return playerNames.complete(prefix, limit);
+    }
+
+    public int getKnownPlayerCount() {
+        return playerNames.size();
+    }
+
+    /**
+     * Case-insensitive check against the registry. With a shared database a name taken on
+     * another server since the last refresh is caught by the UNIQUE constraint on insert.
+     */
+    public boolean isClanNameTaken(String name) {
+        return registry.isNameTaken(name);
+    }
+
+    public boolean isClanTagTaken(String tag) {
+        return registry.isTagTaken(tag);
     }
 
     // region Clan queries
 
+    @Override
     public CompletableFuture<Optional<ClanEntity>> findClanById(Integer id) {
-        return db.withConnection(c -> {
-            try (PreparedStatement ps = c.prepareStatement("SELECT * FROM clans WHERE id = ?")) {
+        if (registry.isLoaded()) {
+            Optional<ClanEntity> cached = registry.findClanById(id);
+            if (cached.isPresent() || !shared) return CompletableFuture.completedFuture(cached);
+        }
+        return db.<Optional<ClanEntity>>read("findClanById", c -> {
+            try {
+                PreparedStatement ps = c.prepare(SELECT_CLAN + "WHERE c.id = ?");
                 ps.setInt(1, id);
                 try (ResultSet rs = ps.executeQuery()) {
-                    if (rs.next()) return Optional.of(mapClan(rs));
+                    if (rs.next()) return Optional.of(mapClan(rs, 0));
                     return Optional.empty();
                 }
             } catch (SQLException e) { throw new RuntimeException(e); }
-        });
+        }).thenApply(this::cacheLoadedClan);
     }
 
+    @Override
     public CompletableFuture<Optional<ClanEntity>> findClanByName(String name) {
-        return db.withConnection(c -> {
-            try (PreparedStatement ps = c.prepareStatement("SELECT * FROM clans WHERE name = ? LIMIT 1")) {
+        if (registry.isLoaded()) {
+            Optional<ClanEntity> cached = registry.findClanByName(name);
+            if (cached.isPresent() || !shared) return CompletableFuture.completedFuture(cached);
+        }
+        return db.<Optional<ClanEntity>>read("findClanByName", c -> {
+            try {
+                PreparedStatement ps = c.prepare(SELECT_CLAN + "WHERE c.name = ? LIMIT 1");
                 ps.setString(1, name);
                 try (ResultSet rs = ps.executeQuery()) {
-                    if (rs.next()) return Optional.of(mapClan(rs));
+                    if (rs.next()) return Optional.of(mapClan(rs, 0));
                     return Optional.empty();
                 }
             } catch (SQLException e) { throw new RuntimeException(e); }
-        });
+        }).thenApply(this::cacheLoadedClan);
     }
 
+    @Override
     public CompletableFuture<Optional<ClanEntity>> findClanByTag(String tag) {
-        return db.withConnection(c -> {
-            try (PreparedStatement ps = c.prepareStatement("SELECT * FROM clans WHERE tag = ? LIMIT 1")) {
+        if (registry.isLoaded()) {
+            Optional<ClanEntity> cached = registry.findClanByTag(tag);
+            if (cached.isPresent() || !shared) return CompletableFuture.completedFuture(cached);
+        }
+        return db.<Optional<ClanEntity>>read("findClanByTag", c -> {
+            try {
+                PreparedStatement ps = c.prepare(SELECT_CLAN + "WHERE c.tag = ? LIMIT 1");
                 ps.setString(1, tag);
                 try (ResultSet rs = ps.executeQuery()) {
-                    if (rs.next()) return Optional.of(mapClan(rs));
+                    if (rs.next()) return Optional.of(mapClan(rs, 0));
                     return Optional.empty();
                 }
             } catch (SQLException e) { throw new RuntimeException(e); }
-        });
+        }).thenApply(this::cacheLoadedClan);
     }
 
+    @Override
     public CompletableFuture<List<ClanEntity>> getTopClansByKills(int limit) {
-        return db.withConnection(c -> {
+        return db.read(TaskPriority.LOW, "getTopClansByKills", c -> {
             List<ClanEntity> list = new ArrayList<>();
-            try (PreparedStatement ps = c.prepareStatement("SELECT * FROM clans ORDER BY total_kills DESC LIMIT ?")) {
+            try {
+                PreparedStatement ps = c.prepare(SELECT_CLAN + "ORDER BY c.total_kills DESC LIMIT ?");
                 ps.setInt(1, limit);
                 try (ResultSet rs = ps.executeQuery()) {
-                    while (rs.next()) list.add(mapClan(rs));
+                    while (rs.next()) list.add(mapClan(rs, 0));
                 }
             } catch (SQLException e) { throw new RuntimeException(e); }
             return list;
@@ -79,12 +291,15 @@ public final class DataManager {
     /**
      * Returns all clans ordered by level DESC, then kills DESC.
      */
+    @Override
     public CompletableFuture<List<ClanEntity>> getAllClansOrderedByLevelAndKills() {
-        return db.withConnection(c -> {
+        return db.read(TaskPriority.LOW, "getAllClansOrderedByLevelAndKills", c -> {
             List<ClanEntity> list = new ArrayList<>();
-            try (PreparedStatement ps = c.prepareStatement("SELECT * FROM clans ORDER BY clan_level DESC, total_kills DESC");
-                 ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) list.add(mapClan(rs));
+            try {
+                PreparedStatement ps = c.prepare(SELECT_CLAN + "ORDER BY c.clan_level DESC, c.total_kills DESC");
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) list.add(mapClan(rs, 0));
+                }
             } catch (SQLException e) { throw new RuntimeException(e); }
             return list;
         });
@@ -93,34 +308,43 @@ public final class DataManager {
     /**
      * Returns top N clans ordered by level DESC, then kills DESC.
      */
+    @Override
     public CompletableFuture<List<ClanEntity>> getClansOrderedByLevelAndKills(int limit) {
-        return db.withConnection(c -> {
+        return db.read(TaskPriority.LOW, "getClansOrderedByLevelAndKills", c -> {
             List<ClanEntity> list = new ArrayList<>();
-            try (PreparedStatement ps = c.prepareStatement("SELECT * FROM clans ORDER BY clan_level DESC, total_kills DESC LIMIT ?")) {
+            try {
+                PreparedStatement ps = c.prepare(SELECT_CLAN + "ORDER BY c.clan_level DESC, c.total_kills DESC LIMIT ?");
                 ps.setInt(1, limit);
                 try (ResultSet rs = ps.executeQuery()) {
-                    while (rs.next()) list.add(mapClan(rs));
+                    while (rs.next()) list.add(mapClan(rs, 0));
                 }
             } catch (SQLException e) { throw new RuntimeException(e); }
             return list;
         });
     }
 
+    @Override
     public CompletableFuture<List<String>> getAllClanNames() {
-        return db.withConnection(c -> {
+        if (registry.isLoaded()) return CompletableFuture.completedFuture(registry.clanNames());
+        return db.read(TaskPriority.LOW, "getAllClanNames", c -> {
             List<String> list = new ArrayList<>();
-            try (PreparedStatement ps = c.prepareStatement("SELECT name FROM clans"); ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) list.add(rs.getString(1));
+            try {
+                PreparedStatement ps = c.prepare("SELECT name FROM clans");
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) list.add(rs.getString(1));
+                }
             } catch (SQLException e) { throw new RuntimeException(e); }
             return list;
         });
     }
 
+    @Override
     public CompletableFuture<ClanEntity> createClan(ClanEntity clan) {
-        return db.inTransaction(c -> {
-            try (PreparedStatement ps = c.prepareStatement(
-                "INSERT INTO clans(name, tag, description, leader_uuid, created_at, updated_at, max_members, is_public, min_level, total_kills, total_deaths, clan_level, clan_exp) VALUES(?,?,?,?,?,?,?,?,?,?,?,?,?)",
-                Statement.RETURN_GENERATED_KEYS)) {
+        return db.inTransaction("createClan", c -> {
+            try {
+                PreparedStatement ps = c.prepare(
+                    "INSERT INTO clans(name, tag, description, leader_uuid, created_at, updated_at, max_members, is_public, min_level, total_kills, total_deaths, clan_level, clan_exp) VALUES(?,?,?,?,?,?,?,?,?,?,?,?,?)",
+                    Statement.RETURN_GENERATED_KEYS);
                 ps.setString(1, clan.getName());
                 ps.setString(2, clan.getTag());
                 ps.setString(3, clan.getDescription());
@@ -140,13 +364,15 @@ public final class DataManager {
                 }
                 return clan;
             } catch (SQLException e) { throw new RuntimeException(e); }
-        });
+        }).thenApply(this::cacheClan);
     }
 
+    @Override
     public CompletableFuture<ClanEntity> updateClan(ClanEntity clan) {
-        return db.inTransaction(c -> {
-            try (PreparedStatement ps = c.prepareStatement(
-                "UPDATE clans SET name=?, tag=?, description=?, leader_uuid=?, created_at=?, updated_at=?, max_members=?, is_public=?, min_level=?, total_kills=?, total_deaths=?, clan_level=?, clan_exp=? WHERE id=?")) {
+        return db.inTransaction("updateClan", c -> {
+            try {
+                PreparedStatement ps = c.prepare(
+                    "UPDATE clans SET name=?, tag=?, description=?, leader_uuid=?, created_at=?, updated_at=?, max_members=?, is_public=?, min_level=?, total_kills=?, total_deaths=?, clan_level=?, clan_exp=? WHERE id=?");
                 ps.setString(1, clan.getName());
                 ps.setString(2, clan.getTag());
                 ps.setString(3, clan.getDescription());
@@ -162,28 +388,81 @@ public final class DataManager {
                 ps.setInt(13, nvl(clan.getClanExp(), 0));
                 ps.setInt(14, clan.getId());
                 ps.executeUpdate();
+                // Explicit updates become the new progression totals
+                stats.reset(clan);
                 return clan;
             } catch (SQLException e) { throw new RuntimeException(e); }
-        });
+        }).thenApply(this::cacheClan);
+    }
+
+    @Override
+    public CompletableFuture<ClanEntity> setClanLevel(Integer clanId, int level) {
+        return updateClanColumns("setClanLevel", clanId, "clan_level=?, clan_exp=0", level);
+    }
+
+    @Override
+    public CompletableFuture<ClanEntity> setClanMaxMembers(Integer clanId, int maxMembers) {
+        return updateClanColumns("setClanMaxMembers", clanId, "max_members=?", maxMembers);
+    }
+
+    @Override
+    public CompletableFuture<ClanEntity> resetClanStats(Integer clanId) {
+        return updateClanColumns("resetClanStats", clanId, "total_kills=0, total_deaths=0, clan_exp=0");
     }
 
+    /**
+     * Update only the given clan columns. Aggregated counters are written first in the
+     * same transaction, so pending kills and experience land before the update instead of
+     * overwriting or being added on top of it. The row is read back and becomes the new
+     * progression total.
+     */
+    private CompletableFuture<ClanEntity> updateClanColumns(String operation, int clanId, String assignments, int... values) {
+        return inPlayerTransaction(operation, c -> {
+            try {
+                PreparedStatement ps = c.prepare("UPDATE clans SET " + assignments + " WHERE id=?");
+                int i = 1;
+                for (int value : values) ps.setInt(i++, value);
+                ps.setInt(i, clanId);
+                if (ps.executeUpdate() == 0) throw new IllegalStateException("Clan " + clanId + " not found");
+                PreparedStatement read = c.prepare(SELECT_CLAN + "WHERE c.id = ?");
+                read.setInt(1, clanId);
+                try (ResultSet rs = read.executeQuery()) {
+                    rs.next();
+                    ClanEntity clan = mapClan(rs, 0);
+                    stats.reset(clan);
+                    return clan;
+                }
+            } catch (SQLException e) { throw new RuntimeException(e); }
+        }).thenApply(this::cacheClan);
+    }
+
+    @Override
     public CompletableFuture<Void> deleteClan(Integer clanId) {
-        return db.inTransaction(c -> {
-            try (PreparedStatement clearPlayers = c.prepareStatement(
-                    "UPDATE clan_players SET clan_id=NULL, role='MEMBER', joined_at=NULL, clan_contribution=0 WHERE clan_id=?");
-                 PreparedStatement delRegion = c.prepareStatement(
-                    "DELETE FROM clan_regions WHERE clan_id=?");
-                 PreparedStatement delClan = c.prepareStatement(
-                    "DELETE FROM clans WHERE id=?");
-            ) {
+        return inPlayerTransaction("deleteClan", c -> {
+            try {
+                PreparedStatement clearPlayers = c.prepare(
+                    "UPDATE clan_players SET clan_id=NULL, role='MEMBER', joined_at=NULL, clan_contribution=0, permissions=0 WHERE clan_id=?");
+                PreparedStatement delRegion = c.prepare("DELETE FROM clan_regions WHERE clan_id=?");
+                PreparedStatement delClan = c.prepare("DELETE FROM clans WHERE id=?");
                 clearPlayers.setInt(1, clanId);
                 clearPlayers.executeUpdate();
                 delRegion.setInt(1, clanId);
                 delRegion.executeUpdate();
                 delClan.setInt(1, clanId);
                 delClan.executeUpdate();
+                stats.forgetClan(clanId);
                 return null;
             } catch (SQLException e) { throw new RuntimeException(e); }
+        }).thenRun(() -> {
+            registry.removeClan(clanId);
+            roster.disband(clanId);
+            sessions.updateClanMembers(clanId, p -> {
+                p.setClan(null);
+                p.setRole(ClanRole.MEMBER);
+                p.setJoinedAt(null);
+                p.setClanContribution(0);
+                p.setPermissions(0L);
+            });
         });
     }
 
@@ -191,10 +470,105 @@ public final class DataManager {
 
     // region Player queries
 
+    @Override
     public CompletableFuture<Optional<ClanPlayerEntity>> findPlayerByUuid(UUID uuid) {
-        return db.withConnection(c -> {
-            try (PreparedStatement ps = c.prepareStatement(
-                "SELECT p.*, c.* FROM clan_players p LEFT JOIN clans c ON c.id = p.clan_id WHERE p.uuid = ? LIMIT 1")) {
+        if (sessions.isFresh(uuid)) {
+            return CompletableFuture.completedFuture(sessions.get(uuid));
+        }
+        if (writeBuffer != null) {
+            ClanPlayerEntity buffered = writeBuffer.get(uuid.toString());
+            if (buffered != null) return CompletableFuture.completedFuture(Optional.of(buffered));
+        }
+        if (!sessions.isOnline(uuid)) return loadPlayer(uuid);
+        // Stale session: reload it
+        long started = System.nanoTime();
+        return loadPlayer(uuid).thenApply(row -> {
+            sessions.refresh(uuid, row, started);
+            return row;
+        });
+    }
+
+    /**
+     * Player row of an online player without waiting for the database. A stale session
+     * is refreshed in the background. Empty if the player has no session (its load
+     * failed or has not finished yet); callers that must not miss the row use
+     * {@link #findPlayerByUuid} instead.
+     */
+    public Optional<ClanPlayerEntity> getOnlinePlayer(UUID uuid) {
+        Optional<ClanPlayerEntity> cached = sessions.get(uuid);
+        if (cached == null) return Optional.empty();
+        if (!sessions.isFresh(uuid)) findPlayerByUuid(uuid);
+        return cached;
+    }
+
+    /**
+     * True if the player's session is loaded. Never touches the database.
+     */
+    public boolean hasSession(UUID uuid) {
+        return sessions.isOnline(uuid);
+    }
+
+    /**
+     * Cached row of an online player; empty if there is no session. Never touches the database.
+     */
+    public Optional<ClanPlayerEntity> getSessionPlayer(UUID uuid) {
+        Optional<ClanPlayerEntity> cached = sessions.get(uuid);
+        return cached == null ? Optional.empty() : cached;
+    }
+
+    /**
+     * Clan id of an online player from memory, or null. Constant time, safe on the main thread.
+     */
+    public Integer getOnlineClanId(UUID uuid) {
+        Integer clanId = sessions.clanId(uuid);
+        return clanId != null ? clanId : roster.clanOf(uuid);
+    }
+
+    /**
+     * Effective region flags of an online member, resolved when the session row changed.
+     * Every online player has a session; only while a failed pre-login load is retried
+     * does the member get the plain member defaults.
+     */
+    public long getOnlineRegionFlags(UUID uuid) {
+        long fallback = ClanRole.MEMBER.getRegionFlags();
+        return sessions.regionFlags(uuid, fallback);
+    }
+
+    /**
+     * Load the session of a player who is logging in. Called from the async pre-login event.
+     */
+    public CompletableFuture<Void> openSession(UUID uuid) {
+        stats.playerJoined(uuid.toString());
+        if (writeBuffer != null) {
+            ClanPlayerEntity buffered = writeBuffer.get(uuid.toString());
+            if (buffered != null) {
+                sessions.open(uuid, Optional.of(buffered));
+                return CompletableFuture.completedFuture(null);
+            }
+        }
+        return loadPlayer(uuid).thenAccept(row -> sessions.open(uuid, row));
+    }
+
+    /**
+     * The login completed; the session is kept until quit.
+     */
+    public void claimSession(UUID uuid) {
+        sessions.claim(uuid);
+    }
+
+    public void closeSession(UUID uuid) {
+        sessions.close(uuid);
+        stats.playerLeft(uuid.toString());
+    }
+
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    private CompletableFuture<Optional<ClanPlayerEntity>> loadPlayer(UUID uuid) {
+        return db.read(TaskPriority.HIGH, "findPlayerByUuid", c -> {
+            try {
+                PreparedStatement ps = c.prepare(SELECT_PLAYER_WITH_CLAN + "WHERE p.uuid = ? LIMIT 1");
                 ps.setString(1, uuid.toString());
                 try (ResultSet rs = ps.executeQuery()) {
                     if (rs.next()) return Optional.of(mapPlayerWithClan(rs));
@@ -204,147 +578,201 @@ public final class DataManager {
         });
     }
 
+    @Override
     public CompletableFuture<Optional<ClanPlayerEntity>> findPlayerByName(String name) {
-        return db.withConnection(c -> {
-            try (PreparedStatement ps = c.prepareStatement(
-                "SELECT p.*, c.* FROM clan_players p LEFT JOIN clans c ON c.id = p.clan_id WHERE p.name = ? LIMIT 1")) {
+        if (registry.isLoaded()) {
+            // Every player row is indexed, so a miss means the player is unknown
+            String uuid = playerNames.get(name);
+            if (uuid == null) return CompletableFuture.completedFuture(Optional.empty());
+            return findPlayerByUuid(UUID.fromString(uuid));
+        }
+        if (writeBuffer != null) {
+            ClanPlayerEntity buffered = writeBuffer.findByName(name);
+            if (buffered != null) return CompletableFuture.completedFuture(Optional.of(buffered));
+        }
+        return db.<Optional<ClanPlayerEntity>>read("findPlayerByName", c -> {
+            try {
+                PreparedStatement ps = c.prepare(SELECT_PLAYER_WITH_CLAN + "WHERE p.name = ? LIMIT 1");
                 ps.setString(1, name);
                 try (ResultSet rs = ps.executeQuery()) {
                     if (rs.next()) return Optional.of(mapPlayerWithClan(rs));
                     return Optional.empty();
                 }
             } catch (SQLException e) { throw new RuntimeException(e); }
-        });
+        }).thenApply(this::preferBuffered);
     }
 
+    @Override
     public CompletableFuture<List<ClanPlayerEntity>> getClanMembers(Integer clanId) {
-        return db.withConnection(c -> {
+        return db.read("getClanMembers", c -> {
             List<ClanPlayerEntity> list = new ArrayList<>();
-            try (PreparedStatement ps = c.prepareStatement(
-                "SELECT p.*, c.* FROM clan_players p JOIN clans c ON c.id = p.clan_id WHERE p.clan_id = ?")) {
+            try {
+                PreparedStatement ps = c.prepare(
+                    "SELECT " + PLAYER_COLUMNS + ", " + CLAN_COLUMNS + " FROM clan_players p JOIN clans c ON c.id = p.clan_id WHERE p.clan_id = ?");
                 ps.setInt(1, clanId);
                 try (ResultSet rs = ps.executeQuery()) {
                     while (rs.next()) list.add(mapPlayerWithClan(rs));
                 }
             } catch (SQLException e) { throw new RuntimeException(e); }
             return list;
-        });
+        }).thenApply(list -> overlayBuffered(list, p -> p.isInClan() && clanId.equals(p.getClan().getId())));
     }
 
+    /**
+     * Upsert a player row. In write-behind mode the row is only buffered and
+     * written by the next flush, coalesced with other saves for the same UUID.
+     */
+    @Override
     public CompletableFuture<ClanPlayerEntity> savePlayer(ClanPlayerEntity player) {
-        return db.inTransaction(c -> {
-            try (PreparedStatement ps = c.prepareStatement(
-                "INSERT INTO clan_players(uuid, name, clan_id, role, joined_at, last_seen, player_level, kills, deaths, clan_contribution, invited_by_uuid, invite_pending_clan_id, invite_expires_at, permissions) " +
-                "VALUES(?,?,?,?,?,?,?,?,?,?,?,?,?,?) " +
-                "ON CONFLICT(uuid) DO UPDATE SET name=excluded.name, clan_id=excluded.clan_id, role=excluded.role, joined_at=excluded.joined_at, last_seen=excluded.last_seen, player_level=excluded.player_level, kills=excluded.kills, deaths=excluded.deaths, clan_contribution=excluded.clan_contribution, invited_by_uuid=excluded.invited_by_uuid, invite_pending_clan_id=excluded.invite_pending_clan_id, invite_expires_at=excluded.invite_expires_at, permissions=excluded.permissions"
-            )) {
-                ps.setString(1, player.getUuid());
-                ps.setString(2, player.getName());
-                if (player.getClan() != null) ps.setInt(3, player.getClan().getId()); else ps.setNull(3, Types.INTEGER);
-                ps.setString(4, player.getRole() == null ? ClanRole.MEMBER.name() : player.getRole().name());
-                ps.setObject(5, player.getJoinedAt() == null ? null : toEpoch(player.getJoinedAt()), Types.BIGINT);
-                ps.setLong(6, toEpoch(nvl(player.getLastSeen(), Instant.now())));
-                ps.setInt(7, nvl(player.getPlayerLevel(), 1));
-                ps.setInt(8, nvl(player.getKills(), 0));
-                ps.setInt(9, nvl(player.getDeaths(), 0));
-                ps.setInt(10, nvl(player.getClanContribution(), 0));
-                ps.setString(11, player.getInvitedByUuid());
-                if (player.getInvitePendingClanId() != null) ps.setInt(12, player.getInvitePendingClanId()); else ps.setNull(12, Types.INTEGER);
-                ps.setObject(13, player.getInviteExpiresAt() == null ? null : toEpoch(player.getInviteExpiresAt()), Types.BIGINT);
-                ps.setLong(14, nvl(player.getPermissions(), 0L));
+        playerNames.put(player.getName(), player.getUuid());
+        if (writeBuffer != null) {
+            writeBuffer.put(player);
+            playerSaved(player);
+            return CompletableFuture.completedFuture(player);
+        }
+        return db.inTransaction("savePlayer", c -> {
+            try {
+                PreparedStatement ps = c.prepare(upsertPlayerSql);
+                bindPlayer(ps, player);
                 ps.executeUpdate();
                 return player;
             } catch (SQLException e) { throw new RuntimeException(e); }
+        }).thenApply(saved -> {
+            playerSaved(saved);
+            return saved;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> resetPlayerStats(UUID uuid) {
+        String id = uuid.toString();
+        // Buffered rows and pending deltas are written first, then cleared by the UPDATE
+        return inPlayerTransaction("resetPlayerStats", c -> {
+            try {
+                PreparedStatement ps = c.prepare("UPDATE clan_players SET kills=0, deaths=0, clan_contribution=0 WHERE uuid=?");
+                ps.setString(1, id);
+                ps.executeUpdate();
+                return null;
+            } catch (SQLException e) { throw new RuntimeException(e); }
+        }).thenRun(() -> {
+            Consumer<ClanPlayerEntity> clear = p -> {
+                p.setKills(0);
+                p.setDeaths(0);
+                p.setClanContribution(0);
+            };
+            sessions.updatePlayer(id, clear);
+            if (writeBuffer != null) {
+                ClanPlayerEntity buffered = writeBuffer.get(id);
+                if (buffered != null) clear.accept(buffered);
+            }
         });
     }
 
+    /**
+     * Write all buffered player rows in one batched transaction.
+     */
+    public CompletableFuture<Void> flushPendingPlayers() {
+        if (writeBuffer == null || writeBuffer.isEmpty()) return CompletableFuture.completedFuture(null);
+        return inPlayerTransaction("flushPendingPlayers", c -> null);
+    }
+
+    public Optional<PlayerWriteBuffer.Stats> getWriteBufferStats() {
+        return writeBuffer == null ? Optional.empty() : Optional.of(writeBuffer.stats());
+    }
+
+    @Override
     public CompletableFuture<List<ClanPlayerEntity>> findPlayersWithExpiredInvites(Instant now) {
-        return db.withConnection(c -> {
+        Predicate<ClanPlayerEntity> expired = p -> p.getInviteExpiresAt() != null && p.getInviteExpiresAt().isBefore(now);
+        return db.read(TaskPriority.LOW, "findPlayersWithExpiredInvites", c -> {
             List<ClanPlayerEntity> list = new ArrayList<>();
-            try (PreparedStatement ps = c.prepareStatement(
-                "SELECT * FROM clan_players WHERE invite_expires_at IS NOT NULL AND invite_expires_at < ?")) {
+            try {
+                PreparedStatement ps = c.prepare(
+                    "SELECT " + PLAYER_COLUMNS + " FROM clan_players p WHERE p.invite_expires_at IS NOT NULL AND p.invite_expires_at < ?");
                 ps.setLong(1, toEpoch(now));
                 try (ResultSet rs = ps.executeQuery()) {
-                    while (rs.next()) list.add(mapPlayer(rs));
+                    while (rs.next()) list.add(mapPlayer(rs, 0));
                 }
             } catch (SQLException e) { throw new RuntimeException(e); }
             return list;
-        });
+        }).thenApply(list -> overlayBuffered(list, expired));
     }
 
+    /**
+     * Count a death. Only the in-memory aggregator is updated; the delta is written
+     * by the next statistics flush.
+     */
+    @Override
     public CompletableFuture<Void> recordPlayerDeath(UUID victimUuid) {
-        return db.inTransaction(c -> {
-            try (PreparedStatement incDeaths = c.prepareStatement("UPDATE clan_players SET deaths=deaths+1 WHERE uuid=?");
-                 PreparedStatement getClan = c.prepareStatement("SELECT clan_id FROM clan_players WHERE uuid=?");
-                 PreparedStatement incClan = c.prepareStatement("UPDATE clans SET total_deaths=total_deaths+1 WHERE id=?");
-            ) {
-                incDeaths.setString(1, victimUuid.toString());
-                incDeaths.executeUpdate();
-                getClan.setString(1, victimUuid.toString());
-                try (ResultSet rs = getClan.executeQuery()) {
-                    if (rs.next()) {
-                        int clanId = rs.getInt(1);
-                        if (!rs.wasNull()) {
-                            incClan.setInt(1, clanId);
-                            incClan.executeUpdate();
-                        }
-                    }
-                }
-                return null;
-            } catch (SQLException e) { throw new RuntimeException(e); }
+        return findPlayerByUuid(victimUuid).thenAccept(opt -> {
+            Integer clanId = opt.filter(ClanPlayerEntity::isInClan).map(p -> p.getClan().getId()).orElse(null);
+            stats.recordDeath(victimUuid.toString(), clanId);
         });
     }
 
-    public CompletableFuture<Optional<ClanEntity>> recordPlayerKillAndReturnClan(UUID killerUuid, int expGain) {
-        return db.inTransaction(c -> {
-            try (PreparedStatement incKills = c.prepareStatement("UPDATE clan_players SET kills=kills+1 WHERE uuid=?");
-                 PreparedStatement getClan = c.prepareStatement("SELECT clan_id FROM clan_players WHERE uuid=?");
-                 PreparedStatement incClan = c.prepareStatement("UPDATE clans SET total_kills=total_kills+1, clan_exp=clan_exp+? WHERE id=?");
-                 PreparedStatement incContr = c.prepareStatement("UPDATE clan_players SET clan_contribution=clan_contribution+? WHERE uuid=?");
-                 PreparedStatement getClanRow = c.prepareStatement("SELECT * FROM clans WHERE id=?");
-            ) {
-                incKills.setString(1, killerUuid.toString());
-                incKills.executeUpdate();
-                getClan.setString(1, killerUuid.toString());
-                try (ResultSet rs = getClan.executeQuery()) {
-                    if (rs.next()) {
-                        int clanId = rs.getInt(1);
-                        if (!rs.wasNull()) {
-                            incClan.setInt(1, expGain);
-                            incClan.setInt(2, clanId);
-                            incClan.executeUpdate();
-                            incContr.setInt(1, expGain);
-                            incContr.setString(2, killerUuid.toString());
-                            incContr.executeUpdate();
-                            getClanRow.setInt(1, clanId);
-                            try (ResultSet crs = getClanRow.executeQuery()) {
-                                if (crs.next()) return Optional.of(mapClan(crs));
-                            }
-                        }
-                    }
-                }
-                return Optional.empty();
-            } catch (SQLException e) { throw new RuntimeException(e); }
+    /**
+     * Count a kill and add clan experience. Level-ups are checked against the in-memory
+     * progression totals and persisted by the next statistics flush.
+     *
+     * @return the killer's clan with updated level, exp and member limit if it levelled up
+     */
+    @Override
+    public CompletableFuture<Optional<ClanEntity>> recordPlayerKill(UUID killerUuid, int expGain) {
+        String uuid = killerUuid.toString();
+        return findPlayerByUuid(killerUuid).thenCompose(opt -> {
+            if (opt.isEmpty() || !opt.get().isInClan()) {
+                stats.recordKill(uuid, null, expGain);
+                return CompletableFuture.completedFuture(Optional.<ClanEntity>empty());
+            }
+            ClanEntity clan = opt.get().getClan();
+            int clanId = clan.getId();
+            stats.recordKill(uuid, clanId, expGain);
+            CompletableFuture<Void> seeded = stats.isSeeded(clanId)
+                ? CompletableFuture.completedFuture(null)
+                : findClanById(clanId).thenAccept(row -> row.ifPresent(stats::seed));
+            return seeded.thenApply(v -> {
+                StatsAggregator.ExpGain gain = stats.addExp(clanId, expGain);
+                if (gain == null || gain.levelsGained() == 0) return Optional.<ClanEntity>empty();
+                // The registry serves tag colors; do not wait for the flush to show the new level
+                StatsAggregator.Progress progress = gain.progress();
+                registry.applyProgress(clanId, progress.level(), progress.exp(), progress.maxMembers());
+                clan.setClanLevel(gain.progress().level());
+                clan.setClanExp(gain.progress().exp());
+                clan.setMaxMembers(gain.progress().maxMembers());
+                return Optional.of(clan);
+            });
         });
     }
 
+    /**
+     * Write aggregated kill/death counters in one batched transaction.
+     */
+    public CompletableFuture<Void> flushStats() {
+        if (stats.isEmpty()) return CompletableFuture.completedFuture(null);
+        return inPlayerTransaction("flushStats", c -> null);
+    }
+
+    public StatsAggregator.Stats getStatsAggregatorStats() {
+        return stats.stats();
+    }
+
     /**
      * Transfer clan leadership: demote old leader to OFFICER, promote new leader to LEADER,
      * and update clan leader_uuid. All within a single transaction.
      */
+    @Override
     public CompletableFuture<Boolean> transferLeadership(ClanPlayerEntity oldLeader, ClanPlayerEntity newLeader, ClanEntity clan) {
-        return db.inTransaction(c -> {
-            try (PreparedStatement demote = c.prepareStatement("UPDATE clan_players SET role=? WHERE uuid=?");
-                 PreparedStatement promote = c.prepareStatement("UPDATE clan_players SET role=? WHERE uuid=?");
-                 PreparedStatement updClan = c.prepareStatement("UPDATE clans SET leader_uuid=? WHERE id=?");
-            ) {
-                demote.setString(1, ClanRole.OFFICER.name());
-                demote.setString(2, oldLeader.getUuid());
-                demote.executeUpdate();
-
-                promote.setString(1, ClanRole.LEADER.name());
-                promote.setString(2, newLeader.getUuid());
-                promote.executeUpdate();
+        return inPlayerTransaction("transferLeadership", c -> {
+            try {
+                // Same cached statement for both role changes
+                PreparedStatement setRole = c.prepare("UPDATE clan_players SET role=? WHERE uuid=?");
+                PreparedStatement updClan = c.prepare("UPDATE clans SET leader_uuid=? WHERE id=?");
+                setRole.setString(1, ClanRole.OFFICER.name());
+                setRole.setString(2, oldLeader.getUuid());
+                setRole.executeUpdate();
+
+                setRole.setString(1, ClanRole.LEADER.name());
+                setRole.setString(2, newLeader.getUuid());
+                setRole.executeUpdate();
 
                 updClan.setString(1, newLeader.getUuid());
                 updClan.setInt(2, clan.getId());
@@ -352,6 +780,15 @@ public final class DataManager {
 
                 return true;
             } catch (SQLException e) { throw new RuntimeException(e); }
+        }).thenApply(ok -> {
+            // Only after commit, so a failed transfer leaves the entities untouched;
+            // later buffered saves of these rows then carry the new roles
+            oldLeader.setRole(ClanRole.OFFICER);
+            newLeader.setRole(ClanRole.LEADER);
+            registry.setLeader(clan.getId(), newLeader.getUuid());
+            sessions.updatePlayer(oldLeader.getUuid(), p -> p.setRole(ClanRole.OFFICER));
+            sessions.updatePlayer(newLeader.getUuid(), p -> p.setRole(ClanRole.LEADER));
+            return ok;
         });
     }
 
@@ -359,11 +796,13 @@ public final class DataManager {
 
     // region Regions
 
+    @Override
     public CompletableFuture<ClanRegionEntity> createRegion(ClanRegionEntity region) {
-        return db.inTransaction(c -> {
-            try (PreparedStatement ps = c.prepareStatement(
-                "INSERT INTO clan_regions(clan_id, world_name, marker_type, marker1_x, marker1_y, marker1_z, marker2_x, marker2_y, marker2_z) VALUES (?,?,?,?,?,?,?,?,?)",
-                Statement.RETURN_GENERATED_KEYS)) {
+        return db.inTransaction("createRegion", c -> {
+            try {
+                PreparedStatement ps = c.prepare(
+                    "INSERT INTO clan_regions(clan_id, world_name, marker_type, marker1_x, marker1_y, marker1_z, marker2_x, marker2_y, marker2_z, flags) VALUES (?,?,?,?,?,?,?,?,?,?)",
+                    Statement.RETURN_GENERATED_KEYS);
                 ps.setInt(1, region.getClan().getId());
                 ps.setString(2, region.getWorldName());
                 ps.setString(3, region.getMarkerType());
@@ -373,19 +812,22 @@ public final class DataManager {
                 if (region.getMarker2X() != null) ps.setInt(7, region.getMarker2X()); else ps.setNull(7, Types.INTEGER);
                 if (region.getMarker2Y() != null) ps.setInt(8, region.getMarker2Y()); else ps.setNull(8, Types.INTEGER);
                 if (region.getMarker2Z() != null) ps.setInt(9, region.getMarker2Z()); else ps.setNull(9, Types.INTEGER);
+                ps.setLong(10, region.getFlags());
                 ps.executeUpdate();
                 try (ResultSet keys = ps.getGeneratedKeys()) {
                     if (keys.next()) region.setId(keys.getInt(1));
                 }
                 return region;
             } catch (SQLException e) { throw new RuntimeException(e); }
-        });
+        }).thenApply(this::cacheRegion);
     }
 
+    @Override
     public CompletableFuture<ClanRegionEntity> updateRegion(ClanRegionEntity region) {
-        return db.inTransaction(c -> {
-            try (PreparedStatement ps = c.prepareStatement(
-                "UPDATE clan_regions SET clan_id=?, world_name=?, marker_type=?, marker1_x=?, marker1_y=?, marker1_z=?, marker2_x=?, marker2_y=?, marker2_z=? WHERE id=?")) {
+        return db.inTransaction("updateRegion", c -> {
+            try {
+                PreparedStatement ps = c.prepare(
+                    "UPDATE clan_regions SET clan_id=?, world_name=?, marker_type=?, marker1_x=?, marker1_y=?, marker1_z=?, marker2_x=?, marker2_y=?, marker2_z=?, flags=? WHERE id=?");
                 ps.setInt(1, region.getClan().getId());
                 ps.setString(2, region.getWorldName());
                 ps.setString(3, region.getMarkerType());
@@ -395,54 +837,69 @@ public final class DataManager {
                 if (region.getMarker2X() != null) ps.setInt(7, region.getMarker2X()); else ps.setNull(7, Types.INTEGER);
                 if (region.getMarker2Y() != null) ps.setInt(8, region.getMarker2Y()); else ps.setNull(8, Types.INTEGER);
                 if (region.getMarker2Z() != null) ps.setInt(9, region.getMarker2Z()); else ps.setNull(9, Types.INTEGER);
-                ps.setInt(10, region.getId());
+                ps.setLong(10, region.getFlags());
+                ps.setInt(11, region.getId());
                 ps.executeUpdate();
                 return region;
             } catch (SQLException e) { throw new RuntimeException(e); }
-        });
+        }).thenApply(this::cacheRegion);
     }
 
+    @Override
     public CompletableFuture<Void> deleteRegion(Integer regionId) {
-        return db.inTransaction(c -> {
-            try (PreparedStatement ps = c.prepareStatement("DELETE FROM clan_regions WHERE id=?")) {
+        return db.inTransaction("deleteRegion", c -> {
+            try {
+                PreparedStatement ps = c.prepare("DELETE FROM clan_regions WHERE id=?");
                 ps.setInt(1, regionId);
                 ps.executeUpdate();
                 return null;
             } catch (SQLException e) { throw new RuntimeException(e); }
-        });
+        }).thenRun(() -> registry.removeRegion(regionId));
     }
 
+    @Override
     public CompletableFuture<Optional<ClanRegionEntity>> findRegionById(Integer id) {
-        return db.withConnection(c -> {
-            try (PreparedStatement ps = c.prepareStatement(
-                "SELECT r.*, c.* FROM clan_regions r JOIN clans c ON c.id = r.clan_id WHERE r.id = ? LIMIT 1")) {
+        if (registry.isLoaded()) {
+            Optional<ClanRegionEntity> cached = registry.findRegionById(id);
+            if (cached.isPresent() || !shared) return CompletableFuture.completedFuture(cached);
+        }
+        return db.<Optional<ClanRegionEntity>>read("findRegionById", c -> {
+            try {
+                PreparedStatement ps = c.prepare(SELECT_REGION_WITH_CLAN + "WHERE r.id = ? LIMIT 1");
                 ps.setInt(1, id);
                 try (ResultSet rs = ps.executeQuery()) {
                     if (rs.next()) return Optional.of(mapRegionWithClan(rs));
                     return Optional.empty();
                 }
             } catch (SQLException e) { throw new RuntimeException(e); }
-        });
+        }).thenApply(this::cacheLoadedRegion);
     }
 
+    @Override
     public CompletableFuture<Optional<ClanRegionEntity>> findClanRegion(Integer clanId) {
-        return db.withConnection(c -> {
-            try (PreparedStatement ps = c.prepareStatement(
-                "SELECT r.*, c.* FROM clan_regions r JOIN clans c ON c.id = r.clan_id WHERE r.clan_id = ? LIMIT 1")) {
+        if (registry.isLoaded()) {
+            Optional<ClanRegionEntity> cached = registry.findClanRegion(clanId);
+            if (cached.isPresent() || !shared) return CompletableFuture.completedFuture(cached);
+        }
+        return db.<Optional<ClanRegionEntity>>read(TaskPriority.HIGH, "findClanRegion", c -> {
+            try {
+                PreparedStatement ps = c.prepare(SELECT_REGION_WITH_CLAN + "WHERE r.clan_id = ? LIMIT 1");
                 ps.setInt(1, clanId);
                 try (ResultSet rs = ps.executeQuery()) {
                     if (rs.next()) return Optional.of(mapRegionWithClan(rs));
                     return Optional.empty();
                 }
             } catch (SQLException e) { throw new RuntimeException(e); }
-        });
+        }).thenApply(this::cacheLoadedRegion);
     }
 
+    @Override
     public CompletableFuture<List<ClanRegionEntity>> findRegionsByWorld(String worldName) {
-        return db.withConnection(c -> {
+        if (registry.isLoaded()) return CompletableFuture.completedFuture(registry.findRegionsByWorld(worldName));
+        return db.read(TaskPriority.HIGH, "findRegionsByWorld", c -> {
             List<ClanRegionEntity> list = new ArrayList<>();
-            try (PreparedStatement ps = c.prepareStatement(
-                "SELECT r.*, c.* FROM clan_regions r JOIN clans c ON c.id = r.clan_id WHERE r.world_name = ?")) {
+            try {
+                PreparedStatement ps = c.prepare(SELECT_REGION_WITH_CLAN + "WHERE r.world_name = ?");
                 ps.setString(1, worldName);
                 try (ResultSet rs = ps.executeQuery()) {
                     while (rs.next()) list.add(mapRegionWithClan(rs));
@@ -456,32 +913,235 @@ public final class DataManager {
 
     // region Stats
 
+    @Override
     public CompletableFuture<Long> getClansCount() {
-        return db.withConnection(c -> {
-            try (PreparedStatement ps = c.prepareStatement("SELECT COUNT(*) FROM clans"); ResultSet rs = ps.executeQuery()) {
-                return rs.next() ? rs.getLong(1) : 0L;
+        if (registry.isLoaded()) return CompletableFuture.completedFuture((long) registry.clanCount());
+        return db.read(TaskPriority.LOW, "getClansCount", c -> {
+            try {
+                PreparedStatement ps = c.prepare("SELECT COUNT(*) FROM clans");
+                try (ResultSet rs = ps.executeQuery()) {
+                    return rs.next() ? rs.getLong(1) : 0L;
+                }
             } catch (SQLException e) { throw new RuntimeException(e); }
         });
     }
 
+    @Override
     public CompletableFuture<Long> getPlayersInClansCount() {
-        return db.withConnection(c -> {
-            try (PreparedStatement ps = c.prepareStatement("SELECT COUNT(*) FROM clan_players WHERE clan_id IS NOT NULL"); ResultSet rs = ps.executeQuery()) {
-                return rs.next() ? rs.getLong(1) : 0L;
+        // A count cannot be overlaid with buffered rows, so flush them first
+        return flushPendingPlayers().thenCompose(v -> db.read(TaskPriority.LOW, "getPlayersInClansCount", c -> {
+            try {
+                PreparedStatement ps = c.prepare("SELECT COUNT(*) FROM clan_players WHERE clan_id IS NOT NULL");
+                try (ResultSet rs = ps.executeQuery()) {
+                    return rs.next() ? rs.getLong(1) : 0L;
+                }
             } catch (SQLException e) { throw new RuntimeException(e); }
-        });
+        }));
     }
 
+    @Override
     public CompletableFuture<Long> getRegionsCount() {
-        return db.withConnection(c -> {
-            try (PreparedStatement ps = c.prepareStatement("SELECT COUNT(*) FROM clan_regions"); ResultSet rs = ps.executeQuery()) {
-                return rs.next() ? rs.getLong(1) : 0L;
+        if (registry.isLoaded()) return CompletableFuture.completedFuture((long) registry.regionCount());
+        return db.read(TaskPriority.LOW, "getRegionsCount", c -> {
+            try {
+                PreparedStatement ps = c.prepare("SELECT COUNT(*) FROM clan_regions");
+                try (ResultSet rs = ps.executeQuery()) {
+                    return rs.next() ? rs.getLong(1) : 0L;
+                }
             } catch (SQLException e) { throw new RuntimeException(e); }
         });
     }
 
     // endregion
 
+    // region Write-behind
+
+    /**
+     * Run a writer transaction that touches clan_players. Buffered player rows and
+     * aggregated counters are written first in the same transaction, so SQL updates
+     * below never race with (or get overwritten by) an older buffered state.
+     * Counters drained for a transaction that rolls back are put back.
+     */
+    private <T> CompletableFuture<T> inPlayerTransaction(String operation, Function<PooledConnection, T> op) {
+        AtomicReference<List<Map.Entry<String, PlayerWriteBuffer.Pending>>> written = new AtomicReference<>(List.of());
+        AtomicReference<StatsAggregator.Batch> counters = new AtomicReference<>();
+        AtomicReference<Map<Integer, StatsAggregator.Progress>> stored = new AtomicReference<>(Map.of());
+        return db.inTransaction(operation, c -> {
+            if (writeBuffer != null) written.set(writePending(c));
+            StatsAggregator.Batch batch = stats.drain();
+            counters.set(batch);
+            stored.set(writeCounters(c, batch));
+            return op.apply(c);
+        }).whenComplete((res, ex) -> {
+            if (ex == null) {
+                if (writeBuffer != null) writeBuffer.acknowledge(written.get());
+                applyFlushed(counters.get(), stored.get());
+            } else if (counters.get() != null) {
+                stats.restore(counters.get());
+            }
+        });
+    }
+
+    /**
+     * Apply committed counters to the registry and online sessions.
+     * {@code stored} holds the progression read back for clans that gained experience.
+     */
+    private void applyFlushed(StatsAggregator.Batch batch, Map<Integer, StatsAggregator.Progress> stored) {
+        for (StatsAggregator.PlayerDelta d : batch.players()) {
+            sessions.updatePlayer(d.uuid(), p -> {
+                p.setKills((int) (p.getKills() + d.kills()));
+                p.setDeaths((int) (p.getDeaths() + d.deaths()));
+                p.setClanContribution((int) (p.getClanContribution() + d.contribution()));
+            });
+        }
+        for (StatsAggregator.ClanDelta d : batch.clans()) {
+            registry.applyCounters(d.clanId(), d.kills(), d.deaths());
+            StatsAggregator.Progress progress = stored.get(d.clanId());
+            if (progress == null) continue;
+            // Stored totals include other servers' experience; gains after the drain stay on top
+            progress = stats.rebase(d.clanId(), progress);
+            registry.applyProgress(d.clanId(), progress.level(), progress.exp(), progress.maxMembers());
+        }
+    }
+
+    /**
+     * Sync the session cache and roster with a saved (or buffered) player row.
+     */
+    private void playerSaved(ClanPlayerEntity player) {
+        sessions.update(player);
+        roster.move(player.getUuidAsUUID(), player.isInClan() ? player.getClan().getId() : null);
+    }
+
+    private ClanEntity cacheClan(ClanEntity clan) {
+        registry.putClan(clan);
+        return clan;
+    }
+
+    private ClanRegionEntity cacheRegion(ClanRegionEntity region) {
+        registry.putRegion(region);
+        return region;
+    }
+
+    /**
+     * Add a clan another server created since the last registry refresh.
+     */
+    private Optional<ClanEntity> cacheLoadedClan(Optional<ClanEntity> row) {
+        if (shared && registry.isLoaded()) row.ifPresent(registry::putClan);
+        return row;
+    }
+
+    private Optional<ClanRegionEntity> cacheLoadedRegion(Optional<ClanRegionEntity> row) {
+        if (shared && registry.isLoaded()) {
+            row.ifPresent(r -> {
+                registry.putClan(r.getClan());
+                registry.putRegion(r);
+            });
+        }
+        return row;
+    }
+
+    /**
+     * Add the drained deltas to the stored counters. Experience is added too, then the
+     * level is settled from the stored value while the row is locked by this transaction,
+     * so gains flushed by other servers sharing the database are kept.
+     *
+     * @return the stored progression of each clan that gained experience
+     */
+    private Map<Integer, StatsAggregator.Progress> writeCounters(PooledConnection c, StatsAggregator.Batch batch) {
+        if (batch.isEmpty()) return Map.of();
+        Map<Integer, StatsAggregator.Progress> stored = new HashMap<>();
+        try {
+            if (!batch.players().isEmpty()) {
+                PreparedStatement ps = c.prepare(
+                    "UPDATE clan_players SET kills=kills+?, deaths=deaths+?, clan_contribution=clan_contribution+? WHERE uuid=?");
+                for (StatsAggregator.PlayerDelta d : batch.players()) {
+                    ps.setLong(1, d.kills());
+                    ps.setLong(2, d.deaths());
+                    ps.setLong(3, d.contribution());
+                    ps.setString(4, d.uuid());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+            if (!batch.clans().isEmpty()) {
+                PreparedStatement counts = c.prepare(
+                    "UPDATE clans SET total_kills=total_kills+?, total_deaths=total_deaths+?, clan_exp=clan_exp+? WHERE id=?");
+                for (StatsAggregator.ClanDelta d : batch.clans()) {
+                    counts.setLong(1, d.kills());
+                    counts.setLong(2, d.deaths());
+                    counts.setInt(3, d.exp());
+                    counts.setInt(4, d.clanId());
+                    counts.addBatch();
+                }
+                counts.executeBatch();
+                PreparedStatement read = c.prepare("SELECT clan_level, clan_exp, max_members FROM clans WHERE id=?");
+                PreparedStatement progress = c.prepare(
+                    "UPDATE clans SET clan_level=?, clan_exp=?, max_members=? WHERE id=?");
+                boolean anyLevelUp = false;
+                for (StatsAggregator.ClanDelta d : batch.clans()) {
+                    if (d.exp() == 0) continue;
+                    read.setInt(1, d.clanId());
+                    StatsAggregator.Progress settled;
+                    int storedExp;
+                    try (ResultSet rs = read.executeQuery()) {
+                        // Deleted in the meantime
+                        if (!rs.next()) continue;
+                        storedExp = rs.getInt(2);
+                        settled = StatsAggregator.settle(rs.getInt(1), storedExp, rs.getInt(3));
+                    }
+                    stored.put(d.clanId(), settled);
+                    // Settling only lowers exp, so the same value means no level-up
+                    if (settled.exp() == storedExp) continue;
+                    progress.setInt(1, settled.level());
+                    progress.setInt(2, settled.exp());
+                    progress.setInt(3, settled.maxMembers());
+                    progress.setInt(4, d.clanId());
+                    progress.addBatch();
+                    anyLevelUp = true;
+                }
+                if (anyLevelUp) progress.executeBatch();
+            }
+        } catch (SQLException e) { throw new RuntimeException(e); }
+        return stored;
+    }
+
+    private List<Map.Entry<String, PlayerWriteBuffer.Pending>> writePending(PooledConnection c) {
+        List<Map.Entry<String, PlayerWriteBuffer.Pending>> batch = writeBuffer.snapshot();
+        if (batch.isEmpty()) return batch;
+        try {
+            PreparedStatement ps = c.prepare(upsertPlayerSql);
+            for (Map.Entry<String, PlayerWriteBuffer.Pending> e : batch) {
+                bindPlayer(ps, e.getValue().player());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        } catch (SQLException e) { throw new RuntimeException(e); }
+        return batch;
+    }
+
+    /**
+     * Buffered rows replace their stale DB versions; buffered rows that now match
+     * (or no longer match) the query are added (or removed).
+     */
+    private List<ClanPlayerEntity> overlayBuffered(List<ClanPlayerEntity> rows, Predicate<ClanPlayerEntity> matches) {
+        if (writeBuffer == null || writeBuffer.isEmpty()) return rows;
+        Map<String, ClanPlayerEntity> byUuid = new HashMap<>();
+        for (ClanPlayerEntity p : rows) byUuid.put(p.getUuid(), p);
+        for (ClanPlayerEntity p : writeBuffer.players()) {
+            if (matches.test(p)) byUuid.put(p.getUuid(), p);
+            else byUuid.remove(p.getUuid());
+        }
+        return new ArrayList<>(byUuid.values());
+    }
+
+    private Optional<ClanPlayerEntity> preferBuffered(Optional<ClanPlayerEntity> row) {
+        if (writeBuffer == null || row.isEmpty()) return row;
+        ClanPlayerEntity buffered = writeBuffer.get(row.get().getUuid());
+        return buffered != null ? Optional.of(buffered) : row;
+    }
+
+    // endregion
+
     // region Threading helper
 
     public void runSync(Runnable task) {
@@ -493,70 +1153,102 @@ public final class DataManager {
 
     // region Mappers
 
-    private static ClanEntity mapClan(ResultSet rs) throws SQLException {
+    private static void bindPlayer(PreparedStatement ps, ClanPlayerEntity player) throws SQLException {
+        ps.setString(1, player.getUuid());
+        ps.setString(2, player.getName());
+        if (player.getClan() != null) ps.setInt(3, player.getClan().getId()); else ps.setNull(3, Types.INTEGER);
+        ps.setString(4, player.getRole() == null ? ClanRole.MEMBER.name() : player.getRole().name());
+        ps.setObject(5, player.getJoinedAt() == null ? null : toEpoch(player.getJoinedAt()), Types.BIGINT);
+        ps.setLong(6, toEpoch(nvl(player.getLastSeen(), Instant.now())));
+        ps.setInt(7, nvl(player.getPlayerLevel(), 1));
+        ps.setInt(8, nvl(player.getKills(), 0));
+        ps.setInt(9, nvl(player.getDeaths(), 0));
+        ps.setInt(10, nvl(player.getClanContribution(), 0));
+        ps.setString(11, player.getInvitedByUuid());
+        if (player.getInvitePendingClanId() != null) ps.setInt(12, player.getInvitePendingClanId()); else ps.setNull(12, Types.INTEGER);
+        ps.setObject(13, player.getInviteExpiresAt() == null ? null : toEpoch(player.getInviteExpiresAt()), Types.BIGINT);
+        ps.setLong(14, nvl(player.getPermissions(), 0L));
+    }
+
+    /**
+     * Map {@link #CLAN_COLUMNS} starting after column {@code offset}.
+     */
+    static ClanEntity mapClan(ResultSet rs, int offset) throws SQLException {
         ClanEntity c = new ClanEntity();
-        c.setId(rs.getInt("id"));
-        c.setName(rs.getString("name"));
-        c.setTag(rs.getString("tag"));
-        c.setDescription(rs.getString("description"));
-        c.setLeaderUuid(rs.getString("leader_uuid"));
-        c.setCreatedAt(fromEpoch(rs.getLong("created_at")));
-        long upd = rs.getLong("updated_at");
+        c.setId(rs.getInt(offset + 1));
+        c.setName(rs.getString(offset + 2));
+        c.setTag(rs.getString(offset + 3));
+        c.setDescription(rs.getString(offset + 4));
+        c.setLeaderUuid(rs.getString(offset + 5));
+        c.setCreatedAt(fromEpoch(rs.getLong(offset + 6)));
+        long upd = rs.getLong(offset + 7);
         if (!rs.wasNull()) c.setUpdatedAt(fromEpoch(upd));
-        c.setMaxMembers(rs.getInt("max_members"));
-        c.setIsPublic(rs.getInt("is_public") != 0);
-        c.setMinLevel(rs.getInt("min_level"));
-        c.setTotalKills(rs.getInt("total_kills"));
-        c.setTotalDeaths(rs.getInt("total_deaths"));
-        c.setClanLevel(rs.getInt("clan_level"));
-        c.setClanExp(rs.getInt("clan_exp"));
+        c.setMaxMembers(rs.getInt(offset + 8));
+        c.setIsPublic(rs.getInt(offset + 9) != 0);
+        c.setMinLevel(rs.getInt(offset + 10));
+        c.setTotalKills(rs.getInt(offset + 11));
+        c.setTotalDeaths(rs.getInt(offset + 12));
+        c.setClanLevel(rs.getInt(offset + 13));
+        c.setClanExp(rs.getInt(offset + 14));
         return c;
     }
 
-    private static ClanPlayerEntity mapPlayer(ResultSet rs) throws SQLException {
+    /**
+     * Map {@link #PLAYER_COLUMNS} starting after column {@code offset}.
+     */
+    private static ClanPlayerEntity mapPlayer(ResultSet rs, int offset) throws SQLException {
         ClanPlayerEntity p = new ClanPlayerEntity();
-        p.setUuid(rs.getString("uuid"));
-        p.setName(rs.getString("name"));
-        String role = rs.getString("role");
+        p.setUuid(rs.getString(offset + 1));
+        p.setName(rs.getString(offset + 2));
+        String role = rs.getString(offset + 3);
         p.setRole(role == null ? ClanRole.MEMBER : ClanRole.valueOf(role));
-        long js = rs.getLong("joined_at"); if (!rs.wasNull()) p.setJoinedAt(fromEpoch(js));
-        p.setLastSeen(fromEpoch(rs.getLong("last_seen")));
-        p.setPlayerLevel(rs.getInt("player_level"));
-        p.setKills(rs.getInt("kills"));
-        p.setDeaths(rs.getInt("deaths"));
-        p.setClanContribution(rs.getInt("clan_contribution"));
-        p.setInvitedByUuid(rs.getString("invited_by_uuid"));
-        int ipc = rs.getInt("invite_pending_clan_id"); if (!rs.wasNull()) p.setInvitePendingClanId(ipc);
-        long iea = rs.getLong("invite_expires_at"); if (!rs.wasNull()) p.setInviteExpiresAt(fromEpoch(iea));
-        p.setPermissions(rs.getLong("permissions"));
+        long js = rs.getLong(offset + 4); if (!rs.wasNull()) p.setJoinedAt(fromEpoch(js));
+        p.setLastSeen(fromEpoch(rs.getLong(offset + 5)));
+        p.setPlayerLevel(rs.getInt(offset + 6));
+        p.setKills(rs.getInt(offset + 7));
+        p.setDeaths(rs.getInt(offset + 8));
+        p.setClanContribution(rs.getInt(offset + 9));
+        p.setInvitedByUuid(rs.getString(offset + 10));
+        int ipc = rs.getInt(offset + 11); if (!rs.wasNull()) p.setInvitePendingClanId(ipc);
+        long iea = rs.getLong(offset + 12); if (!rs.wasNull()) p.setInviteExpiresAt(fromEpoch(iea));
+        p.setPermissions(rs.getLong(offset + 13));
         return p;
     }
 
-    private static ClanPlayerEntity mapPlayerWithClan(ResultSet rs) throws SQLException {
-        ClanPlayerEntity p = mapPlayer(rs);
-        // If the result set also contains clan columns (due to JOIN)
-        int clanId = 0;
-        try { clanId = rs.getInt("id"); } catch (SQLException ignored) {}
-        if (clanId != 0 && !rs.wasNull()) {
-            ClanEntity c = mapClan(rs);
-            p.setClan(c);
-        }
+    /**
+     * Map {@link #PLAYER_COLUMNS} followed by {@link #CLAN_COLUMNS}; the clan columns
+     * are NULL for players outside a clan (LEFT JOIN).
+     */
+    static ClanPlayerEntity mapPlayerWithClan(ResultSet rs) throws SQLException {
+        ClanPlayerEntity p = mapPlayer(rs, 0);
+        rs.getInt(PLAYER_COLUMN_COUNT + 1);
+        if (!rs.wasNull()) p.setClan(mapClan(rs, PLAYER_COLUMN_COUNT));
         return p;
     }
 
+    /**
+     * Map {@link #REGION_COLUMNS} followed by {@link #CLAN_COLUMNS}.
+     */
     private static ClanRegionEntity mapRegionWithClan(ResultSet rs) throws SQLException {
+        return mapRegion(rs, mapClan(rs, REGION_COLUMN_COUNT));
+    }
+
+    /**
+     * Map {@link #REGION_COLUMNS} and attach the given clan.
+     */
+    private static ClanRegionEntity mapRegion(ResultSet rs, ClanEntity clan) throws SQLException {
         ClanRegionEntity r = new ClanRegionEntity();
-        r.setId(rs.getInt("id"));
-        ClanEntity c = mapClan(rs);
-        r.setClan(c);
-        r.setWorldName(rs.getString("world_name"));
-        r.setMarkerType(rs.getString("marker_type"));
-        r.setMarker1X(rs.getInt("marker1_x"));
-        r.setMarker1Y(rs.getInt("marker1_y"));
-        r.setMarker1Z(rs.getInt("marker1_z"));
-        int m2x = rs.getInt("marker2_x"); if (!rs.wasNull()) r.setMarker2X(m2x);
-        int m2y = rs.getInt("marker2_y"); if (!rs.wasNull()) r.setMarker2Y(m2y);
-        int m2z = rs.getInt("marker2_z"); if (!rs.wasNull()) r.setMarker2Z(m2z);
+        r.setId(rs.getInt(1));
+        r.setWorldName(rs.getString(2));
+        r.setMarkerType(rs.getString(3));
+        r.setMarker1X(rs.getInt(4));
+        r.setMarker1Y(rs.getInt(5));
+        r.setMarker1Z(rs.getInt(6));
+        int m2x = rs.getInt(7); if (!rs.wasNull()) r.setMarker2X(m2x);
+        int m2y = rs.getInt(8); if (!rs.wasNull()) r.setMarker2Y(m2y);
+        int m2z = rs.getInt(9); if (!rs.wasNull()) r.setMarker2Z(m2z);
+        r.setFlags(rs.getLong(10));
+        r.setClan(clan);
         return r;
     }
 
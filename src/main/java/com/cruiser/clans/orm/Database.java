@@ -5,154 +5,277 @@ import com.cruiser.clans.ClanPlugin;
 import java.io.File;
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 
 /**
- * Lightweight JDBC database manager for SQLite.
+ * Lightweight JDBC database manager for SQLite (default), MariaDB/MySQL and PostgreSQL.
  * Replaces Hibernate/Hikari to reduce jar size and RAM usage.
+ * Connections are long-lived and pooled; per-connection setup is applied once.
+ * <p>
+ * Writes are serialized on the single {@code clans-db} thread. Pure reads go to a
+ * separate pool of read-only connections with their own executor: in WAL mode
+ * readers see the last committed snapshot and never wait on the writer.
+ * <p>
+ * Both executors have bounded priority queues ({@code database.queue-capacity});
+ * see {@link DbExecutor} for how tasks are ordered and shed. A full reader queue
+ * rejects reads, a full writer queue slows writers down but never drops a write.
  */
 public final class Database {
 
     private final ClanPlugin plugin;
-    private final ExecutorService executor;
+    private final DbExecutor executor;
+    private final DbExecutor readExecutor;
+    private final int readPoolSize;
+    private final SqlDialect dialect;
+    private final QueryProfiler profiler;
     private String jdbcUrl;
+    private String username;
+    private String password;
+    private ConnectionPool pool;
+    private ConnectionPool readPool;
 
     public Database(ClanPlugin plugin) {
         this.plugin = plugin;
-        // Single-thread executor is enough for SQLite and avoids write contention
-        this.executor = Executors.newSingleThreadExecutor(r -> {
+        this.dialect = SqlDialect.fromConfig(plugin.getConfig().getString("database.type", "sqlite"));
+        this.profiler = new QueryProfiler(plugin.getLogger(),
+            plugin.getConfig().getBoolean("debug.show-sql", false),
+            plugin.getConfig().getBoolean("debug.statistics", false),
+            plugin.getConfig().getLong("debug.slow-query-ms", 100));
+        int queueCapacity = Math.max(2, plugin.getConfig().getInt("database.queue-capacity", 1000));
+        // Single-thread executor avoids write contention and keeps writes ordered
+        this.executor = new DbExecutor("writer", 1, queueCapacity, true, plugin.getLogger(), r -> {
             Thread t = new Thread(r, "clans-db");
             t.setDaemon(true);
             return t;
         });
+        // One reader thread per read connection
+        this.readPoolSize = Math.max(1, plugin.getConfig().getInt("database.read-pool-size", 2));
+        AtomicInteger readerIds = new AtomicInteger();
+        this.readExecutor = new DbExecutor("reader", readPoolSize, queueCapacity, false, plugin.getLogger(), r -> {
+            Thread t = new Thread(r, "clans-db-read-" + readerIds.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
     }
 
     /**
      * Initialize database and schema.
      */
     public void start() {
-        File dbFile = new File(plugin.getDataFolder(), plugin.getConfig().getString("database.filename", "clans.db"));
-        if (!plugin.getDataFolder().exists()) plugin.getDataFolder().mkdirs();
-        this.jdbcUrl = "jdbc:sqlite:" + dbFile.getAbsolutePath();
-
-        try (Connection conn = newConnection()) {
-            // Create/upgrade schema within an explicit transaction.
-            conn.setAutoCommit(false);
-            try (Statement st = conn.createStatement()) {
-                // Schema
-                st.execute("""
-                    CREATE TABLE IF NOT EXISTS clans (
-                      id INTEGER PRIMARY KEY AUTOINCREMENT,
-                      name TEXT NOT NULL UNIQUE,
-                      tag TEXT NOT NULL UNIQUE,
-                      description TEXT,
-                      leader_uuid TEXT NOT NULL,
-                      created_at INTEGER NOT NULL,
-                      updated_at INTEGER,
-                      max_members INTEGER NOT NULL DEFAULT 10,
-                      is_public INTEGER NOT NULL DEFAULT 1,
-                      min_level INTEGER DEFAULT 0,
-                      total_kills INTEGER NOT NULL DEFAULT 0,
-                      total_deaths INTEGER NOT NULL DEFAULT 0,
-                      clan_level INTEGER NOT NULL DEFAULT 1,
-                      clan_exp INTEGER NOT NULL DEFAULT 0
-                    );
-                """);
-
-                st.execute("""
-                    CREATE TABLE IF NOT EXISTS clan_players (
-                      uuid TEXT PRIMARY KEY,
-                      name TEXT NOT NULL,
-                      clan_id INTEGER REFERENCES clans(id) ON DELETE SET NULL,
-                      role TEXT NOT NULL DEFAULT 'MEMBER',
-                      joined_at INTEGER,
-                      last_seen INTEGER NOT NULL,
-                      player_level INTEGER NOT NULL DEFAULT 1,
-                      kills INTEGER NOT NULL DEFAULT 0,
-                      deaths INTEGER NOT NULL DEFAULT 0,
-                      clan_contribution INTEGER NOT NULL DEFAULT 0,
-                      invited_by_uuid TEXT,
-                      invite_pending_clan_id INTEGER,
-                      invite_expires_at INTEGER,
-                      permissions INTEGER NOT NULL DEFAULT 0
-                    );
-                """);
-
-                st.execute("CREATE INDEX IF NOT EXISTS idx_clan_players_name ON clan_players(name);");
-                st.execute("CREATE INDEX IF NOT EXISTS idx_clan_players_clan ON clan_players(clan_id);");
-
-                st.execute("""
-                    CREATE TABLE IF NOT EXISTS clan_regions (
-                      id INTEGER PRIMARY KEY AUTOINCREMENT,
-                      clan_id INTEGER NOT NULL UNIQUE REFERENCES clans(id) ON DELETE CASCADE,
-                      world_name TEXT NOT NULL,
-                      marker_type TEXT NOT NULL,
-                      marker1_x INTEGER NOT NULL,
-                      marker1_y INTEGER NOT NULL,
-                      marker1_z INTEGER NOT NULL,
-                      marker2_x INTEGER,
-                      marker2_y INTEGER,
-                      marker2_z INTEGER
-                    );
-                """);
-            }
-            conn.commit();
+        if (dialect.isNetworked()) {
+            this.jdbcUrl = dialect.networkUrl(
+                plugin.getConfig().getString("database.host", "localhost"),
+                plugin.getConfig().getInt("database.port", 0),
+                plugin.getConfig().getString("database.name", "clans"));
+            this.username = plugin.getConfig().getString("database.username", "clans");
+            this.password = plugin.getConfig().getString("database.password", "");
+        } else {
+            File dbFile = new File(plugin.getDataFolder(), plugin.getConfig().getString("database.filename", "clans.db"));
+            if (!plugin.getDataFolder().exists()) plugin.getDataFolder().mkdirs();
+            this.jdbcUrl = "jdbc:sqlite:" + dbFile.getAbsolutePath();
+        }
+        try {
+            // Drivers come from plugin.yml libraries and must be registered explicitly
+            Class.forName(dialect.driverClass());
+        } catch (ClassNotFoundException e) {
+            throw new RuntimeException("JDBC driver not found for database type " + dialect.id(), e);
+        }
+        // The single clans-db thread is the only regular borrower, so one writer connection is enough
+        this.pool = new ConnectionPool(dialect.id() + "-writer", 1, () -> newConnection(false), profiler);
+        this.readPool = new ConnectionPool(dialect.id() + "-reader", readPoolSize, () -> newConnection(true), profiler);
+
+        PooledConnection pc = null;
+        boolean broken = false;
+        try {
+            pc = pool.acquire();
+            int version = SchemaMigrations.migrate(pc.raw(), dialect, plugin.getLogger());
+            plugin.getLogger().info("Database schema version: " + version);
         } catch (SQLException e) {
+            broken = true;
             plugin.getLogger().log(java.util.logging.Level.SEVERE, "Failed to initialize database", e);
             throw new RuntimeException(e);
+        } finally {
+            if (pc != null) pool.release(pc, broken);
         }
     }
 
     /**
-     * Close the executor.
+     * Drain the executor, run dialect maintenance (WAL checkpoint for SQLite) and close pooled connections.
      */
     public void stop() {
-        executor.shutdownNow();
-        // Optionally run checkpoint
-        try (Connection conn = newConnection()) {
-            try (Statement st = conn.createStatement()) {
-                st.execute("PRAGMA optimize;");
-                st.execute("PRAGMA wal_checkpoint(TRUNCATE);");
+        readExecutor.shutdown();
+        executor.shutdown();
+        awaitTermination(readExecutor);
+        awaitTermination(executor);
+        if (readPool != null) readPool.close();
+        if (pool == null) return;
+        try {
+            PooledConnection pc = pool.acquire();
+            try {
+                dialect.beforeClose(pc.raw());
+            } finally {
+                pool.release(pc, false);
             }
         } catch (Exception ignored) {}
+        pool.close();
     }
 
-    public Connection newConnection() throws SQLException {
-        Connection c = DriverManager.getConnection(jdbcUrl);
-        // Apply per-connection PRAGMAs outside of a transaction
-        try (Statement st = c.createStatement()) {
-            st.execute("PRAGMA foreign_keys = ON;");
-            st.execute("PRAGMA journal_mode = WAL;");
-            st.execute("PRAGMA synchronous = NORMAL;");
-            st.execute("PRAGMA wal_autocheckpoint = 1000;");
-            st.execute("PRAGMA temp_store = MEMORY;");
+    private static void awaitTermination(ExecutorService service) {
+        try {
+            if (!service.awaitTermination(5, TimeUnit.SECONDS)) service.shutdownNow();
+        } catch (InterruptedException e) {
+            service.shutdownNow();
+            Thread.currentThread().interrupt();
         }
-        return c;
     }
 
-    public <T> CompletableFuture<T> withConnection(Function<Connection, T> op) {
-        return CompletableFuture.supplyAsync(() -> {
-            try (Connection c = newConnection()) {
-                c.setAutoCommit(true);
-                return op.apply(c);
-            } catch (SQLException e) {
-                plugin.getLogger().log(java.util.logging.Level.SEVERE, "DB error", e);
-                throw new RuntimeException(e);
+    /**
+     * Pool counters: connections opened and prepared statement cache hits/misses.
+     */
+    public List<ConnectionPool.Stats> getPoolStats() {
+        return List.of(pool.stats(), readPool.stats());
+    }
+
+    /**
+     * Queue counters of the writer and reader executors.
+     */
+    public List<DbExecutor.Stats> getQueueStats() {
+        return List.of(executor.stats(), readExecutor.stats());
+    }
+
+    public SqlDialect getDialect() {
+        return dialect;
+    }
+
+    public QueryProfiler getProfiler() {
+        return profiler;
+    }
+
+    /**
+     * Query plan of one registered statement; {@code fullScan} is set when a table is
+     * scanned without an index.
+     */
+    public record Plan(String sql, List<String> details, boolean fullScan) {}
+
+    /**
+     * Explain every registered SELECT/UPDATE/DELETE statement. Empty when the dialect
+     * cannot plan unbound statements.
+     */
+    public CompletableFuture<List<Plan>> explainRegisteredStatements() {
+        String prefix = dialect.explainPrefix();
+        if (prefix == null) return CompletableFuture.completedFuture(List.of());
+        return withConnection("explain", c -> {
+            List<Plan> plans = new ArrayList<>();
+            for (String sql : profiler.registeredStatements()) {
+                String verb = sql.stripLeading().toUpperCase(Locale.ROOT);
+                if (!verb.startsWith("SELECT") && !verb.startsWith("UPDATE") && !verb.startsWith("DELETE")) continue;
+                List<String> details = new ArrayList<>();
+                boolean fullScan = false;
+                // Not through the statement cache: plan queries are one-off and must not be profiled
+                try (PreparedStatement ps = c.raw().prepareStatement(prefix + sql);
+                     ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        String detail = rs.getString("detail");
+                        details.add(detail);
+                        if (detail.startsWith("SCAN ") && !detail.contains(" USING ")) fullScan = true;
+                    }
+                } catch (SQLException e) {
+                    details.add("error: " + e.getMessage());
+                }
+                plans.add(new Plan(sql, details, fullScan));
             }
-        }, executor);
+            return plans;
+        });
+    }
+
+    private Connection newConnection(boolean readOnly) throws SQLException {
+        Connection c = dialect.isNetworked()
+            ? DriverManager.getConnection(jdbcUrl, username, password)
+            : DriverManager.getConnection(jdbcUrl);
+        // Apply per-connection setup outside of a transaction, once per pooled connection
+        try {
+            dialect.configure(c, readOnly);
+        } catch (SQLException e) {
+            try { c.close(); } catch (SQLException ignored) {}
+            throw e;
+        }
+        return c;
+    }
+
+    /**
+     * Run a read-only operation on the reader pool, in parallel with writes.
+     * {@code operation} names the call in timing and slow-query logs.
+     */
+    public <T> CompletableFuture<T> read(String operation, Function<PooledConnection, T> op) {
+        return read(TaskPriority.NORMAL, operation, op);
+    }
+
+    /**
+     * Read with an explicit queue priority: {@link TaskPriority#HIGH} for lookups a
+     * player waits on, {@link TaskPriority#LOW} for listings that may be shed.
+     */
+    public <T> CompletableFuture<T> read(TaskPriority priority, String operation, Function<PooledConnection, T> op) {
+        long submitted = System.nanoTime();
+        return readExecutor.submit(priority, () -> borrow(operation, submitted, readPool, op));
     }
 
-    public <T> CompletableFuture<T> inTransaction(Function<Connection, T> op) {
-        return CompletableFuture.supplyAsync(() -> {
-            try (Connection c = newConnection()) {
+    /**
+     * Run an auto-commit operation on the serialized writer connection.
+     */
+    public <T> CompletableFuture<T> withConnection(String operation, Function<PooledConnection, T> op) {
+        return withConnection(TaskPriority.NORMAL, operation, op);
+    }
+
+    /**
+     * Auto-commit operation on the writer connection with an explicit queue priority.
+     */
+    public <T> CompletableFuture<T> withConnection(TaskPriority priority, String operation, Function<PooledConnection, T> op) {
+        long submitted = System.nanoTime();
+        return executor.submit(priority, () -> borrow(operation, submitted, pool, op));
+    }
+
+    private <T> T borrow(String operation, long submitted, ConnectionPool from, Function<PooledConnection, T> op) {
+        profiler.beginOperation(operation, System.nanoTime() - submitted);
+        PooledConnection pc = null;
+        boolean broken = false;
+        try {
+            pc = from.acquire();
+            return op.apply(pc);
+        } catch (SQLException e) {
+            broken = true;
+            plugin.getLogger().log(java.util.logging.Level.SEVERE, "DB error", e);
+            throw new RuntimeException(e);
+        } catch (RuntimeException e) {
+            broken = pc != null && !pc.isUsable();
+            throw e;
+        } finally {
+            if (pc != null) from.release(pc, broken);
+            profiler.endOperation();
+        }
+    }
+
+    public <T> CompletableFuture<T> inTransaction(String operation, Function<PooledConnection, T> op) {
+        long submitted = System.nanoTime();
+        return executor.submit(TaskPriority.NORMAL, () -> {
+            profiler.beginOperation(operation, System.nanoTime() - submitted);
+            PooledConnection pc = null;
+            boolean broken = false;
+            try {
+                pc = pool.acquire();
+                Connection c = pc.raw();
                 c.setAutoCommit(false);
                 try {
-                    T res = op.apply(c);
+                    T res = op.apply(pc);
                     c.commit();
                     return res;
                 } catch (RuntimeException ex) {
@@ -161,11 +284,20 @@ public final class Database {
                 } catch (Exception ex) {
                     try { c.rollback(); } catch (SQLException ignored) {}
                     throw new RuntimeException(ex);
+                } finally {
+                    c.setAutoCommit(true);
                 }
             } catch (SQLException e) {
+                broken = true;
                 plugin.getLogger().log(java.util.logging.Level.SEVERE, "DB tx error", e);
                 throw new RuntimeException(e);
+            } catch (RuntimeException e) {
+                broken = pc != null && !pc.isUsable();
+                throw e;
+            } finally {
+                if (pc != null) pool.release(pc, broken);
+                profiler.endOperation();
             }
-        }, executor);
+        });
     }
 }
@@ -0,0 +1,225 @@
+package com.cruiser.clans.orm;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * Fixed thread pool for database tasks with a bounded priority queue.
+ * <p>
+ * Tasks are ordered by {@link TaskPriority}, then by submission order, so a single
+ * thread still runs tasks of one priority in order. {@link TaskPriority#LOW} tasks are
+ * shed at half capacity so player-facing work keeps its headroom. What happens to other
+ * tasks on a full queue depends on the executor:
+ * <ul>
+ * <li>a read executor rejects them, the caller can retry or report the failure;</li>
+ * <li>a write executor never drops them: the submitting thread waits up to
+ * {@link #MAX_BACKPRESSURE_MILLIS} for room and then queues the task anyway. Tasks
+ * submitted from the executor's own threads are queued without waiting.</li>
+ * </ul>
+ * Rejected tasks, and tasks still queued when {@link #shutdownNow()} runs, complete
+ * exceptionally with a {@link RejectedExecutionException}.
+ */
+public final class DbExecutor extends ThreadPoolExecutor {
+
+    private static final long WARN_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
+    /** Longest a write submission waits for room before it is queued over capacity. */
+    static final long MAX_BACKPRESSURE_MILLIS = 2_000;
+
+    private final String name;
+    private final int capacity;
+    private final boolean writes;
+    private final Logger logger;
+    private final Set<Thread> workers;
+    // Waiting writers are woken through this monitor whenever a task leaves the queue
+    private final Object room = new Object();
+    private final AtomicInteger waiters = new AtomicInteger();
+    private final AtomicInteger depth = new AtomicInteger();
+    private final AtomicLong sequence = new AtomicLong();
+    private final LongAccumulator maxDepth = new LongAccumulator(Math::max, 0);
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder shed = new LongAdder();
+    private final LongAdder waited = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final LongAccumulator maxWaitNanos = new LongAccumulator(Math::max, 0);
+    private final AtomicLong lastWarning = new AtomicLong(System.nanoTime() - WARN_INTERVAL_NANOS);
+
+    /**
+     * @param writes true for an executor that runs mutations: only {@link TaskPriority#LOW}
+     *               tasks are shed, the others wait for room instead of being rejected
+     */
+    public DbExecutor(String name, int threads, int capacity, boolean writes, Logger logger, ThreadFactory threadFactory) {
+        this(name, threads, capacity, writes, logger, threadFactory, ConcurrentHashMap.newKeySet());
+    }
+
+    private DbExecutor(String name, int threads, int capacity, boolean writes, Logger logger,
+                       ThreadFactory threadFactory, Set<Thread> workers) {
+        super(threads, threads, 0L, TimeUnit.MILLISECONDS, new PriorityBlockingQueue<>(), r -> {
+            Thread t = threadFactory.newThread(r);
+            workers.add(t);
+            return t;
+        });
+        this.name = name;
+        this.capacity = Math.max(2, capacity);
+        this.writes = writes;
+        this.logger = logger;
+        this.workers = workers;
+    }
+
+    /**
+     * Queue a task. On a full queue the returned future fails right away, except for
+     * non-{@link TaskPriority#LOW} tasks on a write executor, which wait for room.
+     */
+    public <T> CompletableFuture<T> submit(TaskPriority priority, Supplier<T> body) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        boolean backpressure = writes && priority != TaskPriority.LOW;
+        if (backpressure && depth.get() >= capacity && !workers.contains(Thread.currentThread())) {
+            awaitRoom(priority);
+        }
+        int limit = backpressure ? Integer.MAX_VALUE : priority == TaskPriority.LOW ? capacity / 2 : capacity;
+        int queued = depth.incrementAndGet();
+        if (queued > limit) {
+            depth.decrementAndGet();
+            (priority == TaskPriority.LOW ? shed : rejected).increment();
+            warnRejected(priority, queued - 1);
+            future.completeExceptionally(new RejectedExecutionException(
+                "Database queue '" + name + "' is full (" + (queued - 1) + " tasks), " + priority + " task rejected"));
+            return future;
+        }
+        maxDepth.accumulate(queued);
+        try {
+            execute(new Task<>(priority, sequence.getAndIncrement(), body, future));
+        } catch (RejectedExecutionException e) {
+            // Shut down
+            depth.decrementAndGet();
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Block the submitting thread until the queue has room, the executor shuts down or
+     * {@link #MAX_BACKPRESSURE_MILLIS} pass.
+     */
+    private void awaitRoom(TaskPriority priority) {
+        waited.increment();
+        warnRejected(priority, depth.get());
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(MAX_BACKPRESSURE_MILLIS);
+        synchronized (room) {
+            waiters.incrementAndGet();
+            try {
+                // Registered as a waiter before re-reading depth, so a finishing task cannot miss us
+                while (depth.get() >= capacity && !isShutdown()) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) return;
+                    TimeUnit.NANOSECONDS.timedWait(room, remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                waiters.decrementAndGet();
+            }
+        }
+    }
+
+    private void signalRoom() {
+        if (waiters.get() == 0) return;
+        synchronized (room) {
+            room.notifyAll();
+        }
+    }
+
+    /**
+     * Stop the threads and fail every task that never ran, so no caller waits on it forever.
+     */
+    @Override
+    public List<Runnable> shutdownNow() {
+        List<Runnable> pending = super.shutdownNow();
+        for (Runnable r : pending) {
+            if (r instanceof Task<?> task) {
+                depth.decrementAndGet();
+                task.future.completeExceptionally(new RejectedExecutionException(
+                    "Database queue '" + name + "' shut down before the task ran"));
+            }
+        }
+        signalRoom();
+        return pending;
+    }
+
+    private void warnRejected(TaskPriority priority, int queued) {
+        long now = System.nanoTime();
+        long last = lastWarning.get();
+        if (now - last < WARN_INTERVAL_NANOS || !lastWarning.compareAndSet(last, now)) return;
+        logger.warning("Database queue '" + name + "' is overloaded (" + queued + "/" + capacity
+            + " tasks), " + (writes && priority != TaskPriority.LOW ? "delaying " : "rejecting ") + priority
+            + " tasks. Rejected so far: " + rejected.sum() + ", shed: " + shed.sum() + ", delayed: " + waited.sum());
+    }
+
+    /**
+     * Queue counters. Wait time is measured from submission until a thread picks the task up;
+     * {@code waited} counts submissions that had to wait for room first.
+     */
+    public record Stats(String name, int capacity, int depth, long maxDepth, long completed,
+                        long rejected, long shed, long waited, long totalWaitNanos, long maxWaitNanos) {
+        public double averageWaitMillis() {
+            return completed == 0 ? 0.0 : totalWaitNanos / 1_000_000.0 / completed;
+        }
+    }
+
+    public Stats stats() {
+        return new Stats(name, capacity, depth.get(), maxDepth.get(), completed.sum(),
+            rejected.sum(), shed.sum(), waited.sum(), totalWaitNanos.sum(), maxWaitNanos.get());
+    }
+
+    private final class Task<T> implements Runnable, Comparable<Task<?>> {
+        private final TaskPriority priority;
+        private final long seq;
+        private final long submitted = System.nanoTime();
+        private final Supplier<T> body;
+        private final CompletableFuture<T> future;
+
+        Task(TaskPriority priority, long seq, Supplier<T> body, CompletableFuture<T> future) {
+            this.priority = priority;
+            this.seq = seq;
+            this.body = body;
+            this.future = future;
+        }
+
+        @Override
+        public int compareTo(Task<?> o) {
+            int byPriority = priority.compareTo(o.priority);
+            return byPriority != 0 ? byPriority : Long.compare(seq, o.seq);
+        }
+
+        @Override
+        public void run() {
+            depth.decrementAndGet();
+            signalRoom();
+            long wait = System.nanoTime() - submitted;
+            totalWaitNanos.add(wait);
+            maxWaitNanos.accumulate(wait);
+            try {
+                future.complete(body.get());
+            } catch (Throwable t) {
+                // Same shape as CompletableFuture.supplyAsync failures
+                future.completeExceptionally(t instanceof CompletionException ? t : new CompletionException(t));
+            } finally {
+                completed.increment();
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.cruiser.clans.orm;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.cruiser.clans.orm.entity.ClanPlayerEntity;
+
+/**
+ * Write-behind buffer for player rows.
+ * Saves for the same UUID are coalesced; only the latest state is written on flush.
+ * Entries stay visible to readers until the transaction that wrote them commits.
+ */
+public final class PlayerWriteBuffer {
+
+    /**
+     * One buffered save. Compared by identity: a new instance is created per save,
+     * so an acknowledge never drops a save that arrived while the flush was running.
+     */
+    static final class Pending {
+        private final ClanPlayerEntity player;
+
+        Pending(ClanPlayerEntity player) { this.player = player; }
+
+        ClanPlayerEntity player() { return player; }
+    }
+
+    private final Map<String, Pending> pending = new ConcurrentHashMap<>();
+    private final LongAdder buffered = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder written = new LongAdder();
+
+    void put(ClanPlayerEntity player) {
+        buffered.increment();
+        if (pending.put(player.getUuid(), new Pending(player)) != null) {
+            coalesced.increment();
+        }
+    }
+
+    ClanPlayerEntity get(String uuid) {
+        Pending p = pending.get(uuid);
+        return p == null ? null : p.player();
+    }
+
+    ClanPlayerEntity findByName(String name) {
+        for (Pending p : pending.values()) {
+            if (name.equals(p.player().getName())) return p.player();
+        }
+        return null;
+    }
+
+    boolean isEmpty() {
+        return pending.isEmpty();
+    }
+
+    int size() {
+        return pending.size();
+    }
+
+    /**
+     * Entries to write in the next flush. They remain readable until acknowledged.
+     */
+    List<Map.Entry<String, Pending>> snapshot() {
+        return new ArrayList<>(pending.entrySet());
+    }
+
+    /**
+     * Drop entries that were committed, unless they were replaced in the meantime.
+     */
+    void acknowledge(List<Map.Entry<String, Pending>> committed) {
+        for (Map.Entry<String, Pending> e : committed) {
+            if (pending.remove(e.getKey(), e.getValue())) written.increment();
+        }
+    }
+
+    /**
+     * Copy of all buffered players, for overlaying onto query results.
+     */
+    List<ClanPlayerEntity> players() {
+        List<ClanPlayerEntity> list = new ArrayList<>(pending.size());
+        for (Pending p : pending.values()) list.add(p.player());
+        return list;
+    }
+
+    Stats stats() {
+        return new Stats(pending.size(), buffered.sum(), coalesced.sum(), written.sum());
+    }
+
+    /**
+     * Buffer counters: rows waiting, saves received, saves coalesced away and rows written.
+     */
+    public record Stats(int pending, long buffered, long coalesced, long written) {}
+}
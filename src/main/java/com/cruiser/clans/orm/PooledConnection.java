@@ -0,0 +1,104 @@
+package com.cruiser.clans.orm;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Long-lived JDBC connection owned by a {@link ConnectionPool}.
+ * Keeps a small LRU cache of prepared statements keyed by SQL text, so hot
+ * queries are compiled once per connection instead of once per call.
+ * <p>
+ * A pooled connection is used by one thread at a time. Statements returned by
+ * {@link #prepare(String)} belong to the cache and must not be closed by callers;
+ * only their result sets should be closed.
+ */
+public final class PooledConnection implements AutoCloseable {
+
+    private static final int MAX_CACHED_STATEMENTS = 64;
+    private static final String GENERATED_KEYS_PREFIX = "#keys#";
+
+    private final ConnectionPool pool;
+    private final Connection connection;
+    private final Map<String, PreparedStatement> statements;
+    private volatile long releasedAt = System.nanoTime();
+
+    PooledConnection(ConnectionPool pool, Connection connection) {
+        this.pool = pool;
+        this.connection = connection;
+        this.statements = new LinkedHashMap<>(32, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() <= MAX_CACHED_STATEMENTS) return false;
+                closeQuietly(eldest.getValue());
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Returns a cached prepared statement for the given SQL, preparing it on first use.
+     */
+    public PreparedStatement prepare(String sql) throws SQLException {
+        return prepare(sql, Statement.NO_GENERATED_KEYS);
+    }
+
+    /**
+     * Returns a cached prepared statement, optionally configured to return generated keys.
+     */
+    public PreparedStatement prepare(String sql, int autoGeneratedKeys) throws SQLException {
+        String key = autoGeneratedKeys == Statement.RETURN_GENERATED_KEYS ? GENERATED_KEYS_PREFIX + sql : sql;
+        PreparedStatement ps = statements.get(key);
+        if (ps != null && !ps.isClosed()) {
+            pool.recordStatementHit();
+            ps.clearParameters();
+            return ps;
+        }
+        pool.recordStatementMiss();
+        pool.profiler().register(sql);
+        ps = pool.profiler().wrap(connection.prepareStatement(sql, autoGeneratedKeys), sql);
+        statements.put(key, ps);
+        return ps;
+    }
+
+    /**
+     * Underlying JDBC connection, for transaction control and ad-hoc statements.
+     */
+    public Connection raw() {
+        return connection;
+    }
+
+    public int cachedStatements() {
+        return statements.size();
+    }
+
+    void markReleased() {
+        releasedAt = System.nanoTime();
+    }
+
+    long idleNanos() {
+        return System.nanoTime() - releasedAt;
+    }
+
+    boolean isUsable() {
+        try {
+            return !connection.isClosed() && connection.isValid(1);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public void close() {
+        for (PreparedStatement ps : statements.values()) closeQuietly(ps);
+        statements.clear();
+        try { connection.close(); } catch (SQLException ignored) {}
+    }
+
+    private static void closeQuietly(PreparedStatement ps) {
+        try { ps.close(); } catch (SQLException ignored) {}
+    }
+}
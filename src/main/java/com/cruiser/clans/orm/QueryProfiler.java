@@ -0,0 +1,224 @@
+package com.cruiser.clans.orm;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * Per-statement timing for the database executors.
+ * Every SQL text prepared through a {@link PooledConnection} is registered here.
+ * When timing is enabled, cached statements are wrapped so each execution records
+ * execution time and rows together with the {@link Database} operation it ran in
+ * and how long that operation waited in the executor queue.
+ * <p>
+ * Driven by {@code debug.show-sql} (log every statement), {@code debug.statistics}
+ * (collect per-statement totals) and {@code debug.slow-query-ms} (slow-query log).
+ */
+public final class QueryProfiler {
+
+    private static final String NO_OPERATION = "-";
+
+    /** Database operation currently running on this thread. */
+    private record Operation(String name, long queueNanos) {}
+
+    static final class SqlStats {
+        final LongAdder executions = new LongAdder();
+        final LongAdder totalNanos = new LongAdder();
+        final LongAdder rows = new LongAdder();
+        final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+    }
+
+    /** Totals of one registered statement. */
+    public record Summary(String sql, long executions, long totalNanos, long maxNanos, long rows) {
+        public double averageMillis() {
+            return executions == 0 ? 0.0 : totalNanos / 1_000_000.0 / executions;
+        }
+    }
+
+    private final Logger logger;
+    private final boolean logAll;
+    private final boolean collect;
+    private final long slowNanos;
+    private final Map<String, SqlStats> statements = new ConcurrentHashMap<>();
+    private final ThreadLocal<Operation> current = new ThreadLocal<>();
+    private final LongAdder slowQueries = new LongAdder();
+
+    public QueryProfiler(Logger logger, boolean logAll, boolean collect, long slowQueryMillis) {
+        this.logger = logger;
+        this.logAll = logAll;
+        this.collect = collect;
+        this.slowNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, slowQueryMillis));
+    }
+
+    /**
+     * True when statements should be wrapped for timing.
+     */
+    public boolean isTiming() {
+        return logAll || collect || slowNanos > 0;
+    }
+
+    void register(String sql) {
+        statements.computeIfAbsent(sql, k -> new SqlStats());
+    }
+
+    void beginOperation(String name, long queueNanos) {
+        current.set(new Operation(name, queueNanos));
+    }
+
+    void endOperation() {
+        current.remove();
+    }
+
+    /**
+     * Wrap a freshly prepared statement so its executions are timed.
+     */
+    PreparedStatement wrap(PreparedStatement ps, String sql) {
+        if (!isTiming()) return ps;
+        return (PreparedStatement) Proxy.newProxyInstance(
+            PreparedStatement.class.getClassLoader(),
+            new Class<?>[] { PreparedStatement.class },
+            new StatementHandler(ps, sql));
+    }
+
+    void record(String sql, long execNanos, long rows) {
+        if (collect) {
+            SqlStats s = statements.computeIfAbsent(sql, k -> new SqlStats());
+            s.executions.increment();
+            s.totalNanos.add(execNanos);
+            s.rows.add(rows);
+            s.maxNanos.accumulate(execNanos);
+        }
+        boolean slow = slowNanos > 0 && execNanos >= slowNanos;
+        if (slow) slowQueries.increment();
+        if (!slow && !logAll) return;
+
+        Operation op = current.get();
+        String line = String.format(Locale.ROOT, "[%s] %.2f ms exec, %.2f ms queued, %d rows: %s",
+            op == null ? NO_OPERATION : op.name(),
+            execNanos / 1_000_000.0,
+            op == null ? 0.0 : op.queueNanos() / 1_000_000.0,
+            rows, sql);
+        if (slow) logger.warning("Slow query " + line);
+        else logger.info("SQL " + line);
+    }
+
+    /**
+     * SQL texts of all statements prepared so far.
+     */
+    public List<String> registeredStatements() {
+        List<String> list = new ArrayList<>(statements.keySet());
+        list.sort(Comparator.naturalOrder());
+        return list;
+    }
+
+    /**
+     * Statements with the highest total execution time. Empty unless {@code debug.statistics} is on.
+     */
+    public List<Summary> top(int limit) {
+        List<Summary> list = new ArrayList<>();
+        for (Map.Entry<String, SqlStats> e : statements.entrySet()) {
+            SqlStats s = e.getValue();
+            long executions = s.executions.sum();
+            if (executions == 0) continue;
+            list.add(new Summary(e.getKey(), executions, s.totalNanos.sum(), s.maxNanos.get(), s.rows.sum()));
+        }
+        list.sort(Comparator.comparingLong(Summary::totalNanos).reversed());
+        return list.size() > limit ? list.subList(0, limit) : list;
+    }
+
+    public long slowQueryCount() {
+        return slowQueries.sum();
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private final class StatementHandler implements InvocationHandler {
+        private final PreparedStatement delegate;
+        private final String sql;
+
+        StatementHandler(PreparedStatement delegate, String sql) {
+            this.delegate = delegate;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            // Only the parameterless execute methods run the prepared SQL
+            if (args != null && args.length > 0 || !name.startsWith("execute")) {
+                return QueryProfiler.invoke(delegate, method, args);
+            }
+            long start = System.nanoTime();
+            Object result = QueryProfiler.invoke(delegate, method, args);
+            switch (name) {
+                case "executeQuery" -> {
+                    // Rows are stepped lazily, so the timing ends when the result set is closed
+                    return Proxy.newProxyInstance(
+                        ResultSet.class.getClassLoader(),
+                        new Class<?>[] { ResultSet.class },
+                        new ResultSetHandler((ResultSet) result, sql, start));
+                }
+                case "executeUpdate", "executeLargeUpdate" ->
+                    record(sql, System.nanoTime() - start, ((Number) result).longValue());
+                case "executeBatch" -> {
+                    long rows = 0;
+                    for (int n : (int[]) result) if (n > 0) rows += n;
+                    record(sql, System.nanoTime() - start, rows);
+                }
+                default -> record(sql, System.nanoTime() - start, Math.max(0, delegate.getUpdateCount()));
+            }
+            return result;
+        }
+    }
+
+    private final class ResultSetHandler implements InvocationHandler {
+        private final ResultSet delegate;
+        private final String sql;
+        private final long start;
+        private long rows;
+        private boolean recorded;
+
+        ResultSetHandler(ResultSet delegate, String sql, long start) {
+            this.delegate = delegate;
+            this.sql = sql;
+            this.start = start;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = QueryProfiler.invoke(delegate, method, args);
+            switch (method.getName()) {
+                case "next" -> {
+                    if ((Boolean) result) rows++;
+                }
+                case "close" -> {
+                    if (!recorded) {
+                        recorded = true;
+                        record(sql, System.nanoTime() - start, rows);
+                    }
+                }
+                default -> {}
+            }
+            return result;
+        }
+    }
+}
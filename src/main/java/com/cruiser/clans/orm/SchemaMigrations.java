@@ -0,0 +1,152 @@
+package com.cruiser.clans.orm;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.List;
+import java.util.logging.Logger;
+
+import com.cruiser.clans.orm.entity.RegionFlag;
+
+/**
+ * Numbered schema migrations, tracked in the {@code schema_version} table.
+ * Each pending migration runs in its own transaction together with its version row,
+ * so a failed migration leaves the schema at the previous version.
+ * <p>
+ * Migrations are append-only: never edit a released one, add a new version instead.
+ * DDL uses the {@link SqlDialect#ddl(String)} type placeholders.
+ */
+final class SchemaMigrations {
+
+    record Migration(int version, String description, List<String> statements) {}
+
+    static final List<Migration> MIGRATIONS = List.of(
+        // Idempotent, so installs created before versioning are adopted as version 1
+        new Migration(1, "base schema", List.of(
+            """
+            CREATE TABLE IF NOT EXISTS clans (
+              id {pk},
+              name {key} NOT NULL UNIQUE,
+              tag {key} NOT NULL UNIQUE,
+              description {text},
+              leader_uuid {uuid} NOT NULL,
+              created_at {long} NOT NULL,
+              updated_at {long},
+              max_members INTEGER NOT NULL DEFAULT 10,
+              is_public INTEGER NOT NULL DEFAULT 1,
+              min_level INTEGER DEFAULT 0,
+              total_kills INTEGER NOT NULL DEFAULT 0,
+              total_deaths INTEGER NOT NULL DEFAULT 0,
+              clan_level INTEGER NOT NULL DEFAULT 1,
+              clan_exp INTEGER NOT NULL DEFAULT 0
+            )
+            """,
+            """
+            CREATE TABLE IF NOT EXISTS clan_players (
+              uuid {uuid} PRIMARY KEY,
+              name {key} NOT NULL,
+              clan_id INTEGER REFERENCES clans(id) ON DELETE SET NULL,
+              role {key} NOT NULL DEFAULT 'MEMBER',
+              joined_at {long},
+              last_seen {long} NOT NULL,
+              player_level INTEGER NOT NULL DEFAULT 1,
+              kills INTEGER NOT NULL DEFAULT 0,
+              deaths INTEGER NOT NULL DEFAULT 0,
+              clan_contribution INTEGER NOT NULL DEFAULT 0,
+              invited_by_uuid {uuid},
+              invite_pending_clan_id INTEGER,
+              invite_expires_at {long},
+              permissions {long} NOT NULL DEFAULT 0
+            )
+            """,
+            "CREATE INDEX IF NOT EXISTS idx_clan_players_name ON clan_players(name)",
+            "CREATE INDEX IF NOT EXISTS idx_clan_players_clan ON clan_players(clan_id)",
+            """
+            CREATE TABLE IF NOT EXISTS clan_regions (
+              id {pk},
+              clan_id INTEGER NOT NULL UNIQUE REFERENCES clans(id) ON DELETE CASCADE,
+              world_name {key} NOT NULL,
+              marker_type {key} NOT NULL,
+              marker1_x INTEGER NOT NULL,
+              marker1_y INTEGER NOT NULL,
+              marker1_z INTEGER NOT NULL,
+              marker2_x INTEGER,
+              marker2_y INTEGER,
+              marker2_z INTEGER
+            )
+            """
+        )),
+        new Migration(2, "indexes for top lists, region lookup and invite expiry", List.of(
+            // getTopClansByKills: ORDER BY total_kills DESC
+            "CREATE INDEX IF NOT EXISTS idx_clans_total_kills ON clans(total_kills)",
+            // get*ClansOrderedByLevelAndKills: ORDER BY clan_level DESC, total_kills DESC
+            "CREATE INDEX IF NOT EXISTS idx_clans_level_kills ON clans(clan_level, total_kills)",
+            // findRegionsByWorld: WHERE world_name = ?
+            "CREATE INDEX IF NOT EXISTS idx_clan_regions_world ON clan_regions(world_name)",
+            // findPlayersWithExpiredInvites: range scan every minute
+            "CREATE INDEX IF NOT EXISTS idx_clan_players_invite_expires ON clan_players(invite_expires_at)"
+        )),
+        new Migration(3, "region visitor flags", List.of(
+            // RegionFlag mask of what non-members may do in the region; 0 = nothing
+            "ALTER TABLE clan_regions ADD COLUMN flags {long} NOT NULL DEFAULT 0"
+        )),
+        new Migration(4, "default region visitor flags", List.of(
+            // Visitors could always use doors and redstone before flags existed; keep that for existing regions
+            "UPDATE clan_regions SET flags = " + RegionFlag.VISITOR_DEFAULT + " WHERE flags = 0"
+        ))
+    );
+
+    private SchemaMigrations() {}
+
+    /**
+     * Apply all migrations newer than the recorded version. Leaves auto-commit enabled.
+     *
+     * @return the schema version after migrating
+     */
+    static int migrate(Connection conn, SqlDialect dialect, Logger logger) throws SQLException {
+        conn.setAutoCommit(true);
+        try (Statement st = conn.createStatement()) {
+            st.execute(dialect.ddl("""
+                CREATE TABLE IF NOT EXISTS schema_version (
+                  version INTEGER PRIMARY KEY,
+                  description {text} NOT NULL,
+                  applied_at {long} NOT NULL
+                )
+                """));
+        }
+
+        int current = currentVersion(conn);
+        for (Migration m : MIGRATIONS) {
+            if (m.version() <= current) continue;
+            conn.setAutoCommit(false);
+            try (Statement st = conn.createStatement();
+                 PreparedStatement record = conn.prepareStatement(
+                     "INSERT INTO schema_version(version, description, applied_at) VALUES(?,?,?)")) {
+                for (String sql : m.statements()) st.execute(dialect.ddl(sql));
+                record.setInt(1, m.version());
+                record.setString(2, m.description());
+                record.setLong(3, Instant.now().getEpochSecond());
+                record.executeUpdate();
+                conn.commit();
+            } catch (SQLException e) {
+                try { conn.rollback(); } catch (SQLException ignored) {}
+                throw new SQLException("Schema migration " + m.version() + " (" + m.description() + ") failed", e);
+            } finally {
+                conn.setAutoCommit(true);
+            }
+            logger.info("Applied schema migration " + m.version() + ": " + m.description());
+            current = m.version();
+        }
+        return current;
+    }
+
+    private static int currentVersion(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT MAX(version) FROM schema_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+}
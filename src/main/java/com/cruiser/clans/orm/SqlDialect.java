@@ -0,0 +1,167 @@
+package com.cruiser.clans.orm;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+/**
+ * SQL differences between supported backends.
+ * Queries in {@link DataManager} are portable; only DDL column types, the upsert
+ * clause, JDBC URLs and per-connection setup differ.
+ * <p>
+ * DDL passed to {@link #ddl(String)} uses placeholders: {@code {pk}} auto-increment
+ * primary key, {@code {key}} short indexed string, {@code {uuid}} UUID string,
+ * {@code {text}} free text and {@code {long}} 64-bit integer.
+ */
+public enum SqlDialect {
+
+    SQLITE("sqlite", "org.sqlite.JDBC", 0,
+        "INTEGER PRIMARY KEY AUTOINCREMENT", "TEXT", "TEXT", "TEXT", "INTEGER"),
+
+    // Also used for MySQL servers through the MariaDB driver
+    MARIADB("mariadb", "org.mariadb.jdbc.Driver", 3306,
+        "INT AUTO_INCREMENT PRIMARY KEY", "VARCHAR(64)", "VARCHAR(36)", "TEXT", "BIGINT"),
+
+    POSTGRESQL("postgresql", "org.postgresql.Driver", 5432,
+        "INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY", "VARCHAR(64)", "VARCHAR(36)", "TEXT", "BIGINT");
+
+    private final String id;
+    private final String driverClass;
+    private final int defaultPort;
+    private final String pkType;
+    private final String keyType;
+    private final String uuidType;
+    private final String textType;
+    private final String longType;
+
+    SqlDialect(String id, String driverClass, int defaultPort,
+               String pkType, String keyType, String uuidType, String textType, String longType) {
+        this.id = id;
+        this.driverClass = driverClass;
+        this.defaultPort = defaultPort;
+        this.pkType = pkType;
+        this.keyType = keyType;
+        this.uuidType = uuidType;
+        this.textType = textType;
+        this.longType = longType;
+    }
+
+    /**
+     * Resolve {@code database.type}. Unknown values fall back to SQLite.
+     */
+    public static SqlDialect fromConfig(String type) {
+        if (type == null) return SQLITE;
+        return switch (type.trim().toLowerCase(Locale.ROOT)) {
+            case "mariadb", "mysql" -> MARIADB;
+            case "postgresql", "postgres", "pgsql" -> POSTGRESQL;
+            default -> SQLITE;
+        };
+    }
+
+    public String id() {
+        return id;
+    }
+
+    public String driverClass() {
+        return driverClass;
+    }
+
+    public int defaultPort() {
+        return defaultPort;
+    }
+
+    /**
+     * True for server databases shared between several game servers.
+     */
+    public boolean isNetworked() {
+        return this != SQLITE;
+    }
+
+    /**
+     * JDBC URL for a server database. Batching is rewritten server-side:
+     * multi-row bulk statements for MariaDB, multi-values inserts for PostgreSQL.
+     */
+    public String networkUrl(String host, int port, String database) {
+        String base = "jdbc:" + id + "://" + host + ":" + (port > 0 ? port : defaultPort) + "/" + database;
+        return switch (this) {
+            case MARIADB -> base + "?useBulkStmts=true&rewriteBatchedStatements=true&cachePrepStmts=true";
+            case POSTGRESQL -> base + "?reWriteBatchedInserts=true&prepareThreshold=1";
+            case SQLITE -> throw new IllegalStateException("SQLite is file based");
+        };
+    }
+
+    /**
+     * Substitute column type placeholders in a DDL statement.
+     */
+    public String ddl(String sql) {
+        String stmt = sql.strip();
+        // Trailing semicolons are not accepted by every driver for single statements
+        if (stmt.endsWith(";")) stmt = stmt.substring(0, stmt.length() - 1);
+        return stmt.replace("{pk}", pkType)
+            .replace("{key}", keyType)
+            .replace("{uuid}", uuidType)
+            .replace("{text}", textType)
+            .replace("{long}", longType);
+    }
+
+    /**
+     * INSERT that updates {@code columns} when a row with the same {@code key} exists.
+     * The key must be the first column.
+     */
+    public String upsert(String table, String key, List<String> columns) {
+        String placeholders = columns.stream().map(c -> "?").collect(Collectors.joining(","));
+        String insert = "INSERT INTO " + table + "(" + String.join(", ", columns) + ") VALUES(" + placeholders + ") ";
+        List<String> updated = columns.stream().filter(c -> !c.equals(key)).toList();
+        if (this == MARIADB) {
+            return insert + "ON DUPLICATE KEY UPDATE "
+                + updated.stream().map(c -> c + "=VALUES(" + c + ")").collect(Collectors.joining(", "));
+        }
+        return insert + "ON CONFLICT(" + key + ") DO UPDATE SET "
+            + updated.stream().map(c -> c + "=excluded." + c).collect(Collectors.joining(", "));
+    }
+
+    /**
+     * Prefix that turns a statement into a plan query, or null if plans need bound
+     * parameters (server databases plan {@code ?} placeholders only with real values).
+     */
+    public String explainPrefix() {
+        return this == SQLITE ? "EXPLAIN QUERY PLAN " : null;
+    }
+
+    /**
+     * Per-connection setup, applied once when a pooled connection is opened.
+     */
+    void configure(Connection c, boolean readOnly) throws SQLException {
+        if (this != SQLITE) {
+            c.setReadOnly(readOnly);
+            return;
+        }
+        try (Statement st = c.createStatement()) {
+            st.execute("PRAGMA busy_timeout = 5000;");
+            st.execute("PRAGMA temp_store = MEMORY;");
+            if (readOnly) {
+                // journal_mode=WAL is persistent in the file, set by the writer in start()
+                st.execute("PRAGMA query_only = ON;");
+            } else {
+                st.execute("PRAGMA foreign_keys = ON;");
+                st.execute("PRAGMA journal_mode = WAL;");
+                st.execute("PRAGMA synchronous = NORMAL;");
+                st.execute("PRAGMA wal_autocheckpoint = 1000;");
+            }
+        }
+    }
+
+    /**
+     * Maintenance before the writer connection is closed.
+     */
+    void beforeClose(Connection c) throws SQLException {
+        if (this != SQLITE) return;
+        try (Statement st = c.createStatement()) {
+            st.execute("PRAGMA optimize;");
+            st.execute("PRAGMA wal_checkpoint(TRUNCATE);");
+        }
+    }
+}
@@ -0,0 +1,298 @@
+package com.cruiser.clans.orm;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.cruiser.clans.orm.entity.ClanEntity;
+
+/**
+ * In-memory aggregator for PvP counters.
+ * Kills, deaths, contribution and clan experience are accumulated as deltas and
+ * written in one batched transaction per interval. Deltas are added to the stored
+ * values, so servers sharing one database never overwrite each other's counters.
+ * <p>
+ * Clan progression (level, exp, max members) is also kept as a local view once seeded,
+ * so level-up checks never wait for the database. Each flush rebases the view on the
+ * stored totals, which include experience flushed by other servers.
+ */
+public final class StatsAggregator {
+
+    private static final int MEMBERS_BONUS_LEVEL_STEP = 5;
+    private static final int MEMBERS_BONUS = 2;
+
+    static final class PlayerCounters {
+        final LongAdder kills = new LongAdder();
+        final LongAdder deaths = new LongAdder();
+        final LongAdder contribution = new LongAdder();
+        // Player quit; the entry is dropped by the next drain
+        volatile boolean offline;
+    }
+
+    static final class ClanCounters {
+        final LongAdder kills = new LongAdder();
+        final LongAdder deaths = new LongAdder();
+        // Guarded by this: experience not yet flushed, and the progression view
+        // (stored totals plus pendingExp), seeded from the clan row
+        int pendingExp;
+        boolean seeded;
+        int level;
+        int exp;
+        int maxMembers;
+    }
+
+    record PlayerDelta(String uuid, long kills, long deaths, long contribution) {}
+
+    /** Counter and experience deltas for one clan. */
+    record ClanDelta(int clanId, long kills, long deaths, int exp) {}
+
+    /** Drained deltas of one flush, used to restore them if the transaction fails. */
+    record Batch(List<PlayerDelta> players, List<ClanDelta> clans) {
+        boolean isEmpty() {
+            return players.isEmpty() && clans.isEmpty();
+        }
+    }
+
+    public record Progress(int level, int exp, int maxMembers) {}
+
+    /** Result of an experience gain; {@code levelsGained} is 0 when the level did not change. */
+    public record ExpGain(Progress progress, int levelsGained) {}
+
+    private final Map<String, PlayerCounters> players = new ConcurrentHashMap<>();
+    private final Map<Integer, ClanCounters> clans = new ConcurrentHashMap<>();
+    private final LongAdder recorded = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+
+    /**
+     * Experience required to reach the given clan level.
+     */
+    public static int requiredExpForLevel(int level) {
+        return 100 * level + (level * level * 10);
+    }
+
+    /**
+     * Apply every level-up that {@code exp} pays for.
+     */
+    static Progress settle(int level, int exp, int maxMembers) {
+        int required;
+        while (exp >= (required = requiredExpForLevel(level + 1))) {
+            exp -= required;
+            level++;
+            if (level % MEMBERS_BONUS_LEVEL_STEP == 0) maxMembers += MEMBERS_BONUS;
+        }
+        return new Progress(level, exp, maxMembers);
+    }
+
+    void recordDeath(String uuid, Integer clanId) {
+        recorded.increment();
+        player(uuid).deaths.increment();
+        if (clanId != null) clan(clanId).deaths.increment();
+    }
+
+    void recordKill(String uuid, Integer clanId, int expGain) {
+        recorded.increment();
+        PlayerCounters p = player(uuid);
+        p.kills.increment();
+        if (clanId != null) {
+            p.contribution.add(expGain);
+            clan(clanId).kills.increment();
+        }
+    }
+
+    /**
+     * Keep the player's counters between flushes again.
+     */
+    void playerJoined(String uuid) {
+        PlayerCounters p = players.get(uuid);
+        if (p != null) p.offline = false;
+    }
+
+    /**
+     * Mark the player's counters for removal once their deltas have been drained.
+     */
+    void playerLeft(String uuid) {
+        PlayerCounters p = players.get(uuid);
+        if (p != null) p.offline = true;
+    }
+
+    boolean isSeeded(int clanId) {
+        ClanCounters cc = clans.get(clanId);
+        if (cc == null) return false;
+        synchronized (cc) {
+            return cc.seeded;
+        }
+    }
+
+    /**
+     * Seed the progression view from a freshly read clan row, unless already known.
+     */
+    void seed(ClanEntity clan) {
+        ClanCounters cc = clan(clan.getId());
+        synchronized (cc) {
+            if (!cc.seeded) rebase(cc, progressOf(clan));
+        }
+    }
+
+    /**
+     * Rebase the progression view on a stored clan row, e.g. one just written by an
+     * explicit clan update. Experience gained since the last drain stays pending.
+     */
+    Progress reset(ClanEntity clan) {
+        return rebase(clan.getId(), progressOf(clan));
+    }
+
+    /**
+     * Rebase the progression view of a seeded clan on a reloaded clan row.
+     *
+     * @return the new view, or null if the clan has not been seeded
+     */
+    Progress refresh(ClanEntity clan) {
+        ClanCounters cc = clans.get(clan.getId());
+        if (cc == null) return null;
+        synchronized (cc) {
+            return cc.seeded ? rebase(cc, progressOf(clan)) : null;
+        }
+    }
+
+    /**
+     * Rebase the progression view on the stored totals read by a flush.
+     *
+     * @return the new view: stored totals plus experience still pending
+     */
+    Progress rebase(int clanId, Progress stored) {
+        ClanCounters cc = clan(clanId);
+        synchronized (cc) {
+            return rebase(cc, stored);
+        }
+    }
+
+    void forgetClan(int clanId) {
+        clans.remove(clanId);
+    }
+
+    /**
+     * Add clan experience and apply any level-ups against the in-memory totals.
+     *
+     * @return progression after the gain, or null if the clan has not been seeded
+     */
+    ExpGain addExp(int clanId, int gain) {
+        ClanCounters cc = clans.get(clanId);
+        if (cc == null) return null;
+        synchronized (cc) {
+            if (!cc.seeded) return null;
+            cc.pendingExp += gain;
+            int before = cc.level;
+            Progress progress = settle(cc.level, cc.exp + gain, cc.maxMembers);
+            apply(cc, progress);
+            return new ExpGain(progress, cc.level - before);
+        }
+    }
+
+    boolean isEmpty() {
+        for (PlayerCounters p : players.values()) {
+            if (p.kills.sum() != 0 || p.deaths.sum() != 0 || p.contribution.sum() != 0) return false;
+        }
+        for (ClanCounters cc : clans.values()) {
+            if (cc.kills.sum() != 0 || cc.deaths.sum() != 0) return false;
+            synchronized (cc) {
+                if (cc.pendingExp != 0) return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Take all non-zero deltas. Subtracting the observed sum (instead of resetting)
+     * keeps increments that race with the drain for the next flush. Counters of players
+     * who left are dropped once drained; a failed flush recreates them in {@link #restore}.
+     */
+    Batch drain() {
+        List<PlayerDelta> playerDeltas = new ArrayList<>();
+        for (Map.Entry<String, PlayerCounters> e : players.entrySet()) {
+            PlayerCounters p = e.getValue();
+            long k = take(p.kills), d = take(p.deaths), c = take(p.contribution);
+            if (k != 0 || d != 0 || c != 0) playerDeltas.add(new PlayerDelta(e.getKey(), k, d, c));
+            if (p.offline) players.remove(e.getKey(), p);
+        }
+        List<ClanDelta> clanDeltas = new ArrayList<>();
+        for (Map.Entry<Integer, ClanCounters> e : clans.entrySet()) {
+            ClanCounters cc = e.getValue();
+            long k = take(cc.kills), d = take(cc.deaths);
+            int exp;
+            synchronized (cc) {
+                exp = cc.pendingExp;
+                cc.pendingExp = 0;
+            }
+            if (k != 0 || d != 0 || exp != 0) clanDeltas.add(new ClanDelta(e.getKey(), k, d, exp));
+        }
+        if (!playerDeltas.isEmpty() || !clanDeltas.isEmpty()) flushes.increment();
+        return new Batch(playerDeltas, clanDeltas);
+    }
+
+    /**
+     * Put back deltas of a flush that did not commit.
+     */
+    void restore(Batch batch) {
+        for (PlayerDelta d : batch.players()) {
+            PlayerCounters p = player(d.uuid());
+            p.kills.add(d.kills());
+            p.deaths.add(d.deaths());
+            p.contribution.add(d.contribution());
+        }
+        for (ClanDelta d : batch.clans()) {
+            ClanCounters cc = clans.get(d.clanId());
+            if (cc == null) continue;
+            cc.kills.add(d.kills());
+            cc.deaths.add(d.deaths());
+            synchronized (cc) {
+                // The view already includes it
+                cc.pendingExp += d.exp();
+            }
+        }
+    }
+
+    Stats stats() {
+        return new Stats(players.size(), clans.size(), recorded.sum(), flushes.sum());
+    }
+
+    private PlayerCounters player(String uuid) {
+        return players.computeIfAbsent(uuid, k -> new PlayerCounters());
+    }
+
+    private ClanCounters clan(int clanId) {
+        return clans.computeIfAbsent(clanId, k -> new ClanCounters());
+    }
+
+    private static Progress rebase(ClanCounters cc, Progress stored) {
+        Progress view = settle(stored.level(), stored.exp() + cc.pendingExp, stored.maxMembers());
+        apply(cc, view);
+        cc.seeded = true;
+        return view;
+    }
+
+    private static void apply(ClanCounters cc, Progress progress) {
+        cc.level = progress.level();
+        cc.exp = progress.exp();
+        cc.maxMembers = progress.maxMembers();
+    }
+
+    private static Progress progressOf(ClanEntity clan) {
+        return new Progress(
+            clan.getClanLevel() == null ? 1 : clan.getClanLevel(),
+            clan.getClanExp() == null ? 0 : clan.getClanExp(),
+            clan.getMaxMembers() == null ? 10 : clan.getMaxMembers());
+    }
+
+    private static long take(LongAdder adder) {
+        long v = adder.sum();
+        if (v != 0) adder.add(-v);
+        return v;
+    }
+
+    /**
+     * Aggregator counters: tracked players and clans, events recorded and non-empty flushes.
+     */
+    public record Stats(int players, int clans, long recorded, long flushes) {}
+}
@@ -0,0 +1,17 @@
+package com.cruiser.clans.orm;
+
+/**
+ * Scheduling priority of a database task. Higher priorities are dequeued first;
+ * tasks of equal priority run in submission order.
+ */
+public enum TaskPriority {
+
+    /** Lookups a player is waiting on: join, protection checks. */
+    HIGH,
+
+    /** Regular command and gameplay work, and every write. */
+    NORMAL,
+
+    /** Admin listings, top lists and cleanup jobs. Shed first when the queue fills up. */
+    LOW
+}
@@ -79,5 +79,27 @@ public class ClanEntity {
 
     public Set<ClanPlayerEntity> getMembers() { return members; }
     public void setMembers(Set<ClanPlayerEntity> members) { this.members = members; }
+
+    /**
+     * Detached copy of the column values (members are not copied).
+     */
+    public ClanEntity copy() {
+        ClanEntity c = new ClanEntity();
+        c.id = id;
+        c.name = name;
+        c.tag = tag;
+        c.description = description;
+        c.leaderUuid = leaderUuid;
+        c.createdAt = createdAt;
+        c.updatedAt = updatedAt;
+        c.maxMembers = maxMembers;
+        c.isPublic = isPublic;
+        c.minLevel = minLevel;
+        c.totalKills = totalKills;
+        c.totalDeaths = totalDeaths;
+        c.clanLevel = clanLevel;
+        c.clanExp = clanExp;
+        return c;
+    }
 }
 
@@ -84,5 +84,34 @@ public class ClanPlayerEntity {
 
     public Long getPermissions() { return permissions; }
     public void setPermissions(Long permissions) { this.permissions = permissions; }
+
+    /**
+     * Region flags of this member in their clan's region: role defaults with overrides applied.
+     */
+    public long getRegionFlags() {
+        return RegionFlag.effective(role == null ? ClanRole.MEMBER : role, permissions == null ? 0L : permissions);
+    }
+
+    /**
+     * Detached copy of the column values attached to {@code clan}.
+     */
+    public ClanPlayerEntity copy(ClanEntity clan) {
+        ClanPlayerEntity p = new ClanPlayerEntity();
+        p.uuid = uuid;
+        p.name = name;
+        p.clan = clan;
+        p.role = role;
+        p.joinedAt = joinedAt;
+        p.lastSeen = lastSeen;
+        p.playerLevel = playerLevel;
+        p.kills = kills;
+        p.deaths = deaths;
+        p.clanContribution = clanContribution;
+        p.invitedByUuid = invitedByUuid;
+        p.invitePendingClanId = invitePendingClanId;
+        p.inviteExpiresAt = inviteExpiresAt;
+        p.permissions = permissions;
+        return p;
+    }
 }
 
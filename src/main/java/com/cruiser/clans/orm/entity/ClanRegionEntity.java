@@ -14,6 +14,7 @@ public class ClanRegionEntity {
     private Integer marker2X;
     private Integer marker2Y;
     private Integer marker2Z;
+    private long flags = RegionFlag.VISITOR_DEFAULT; // RegionFlag mask: what visitors may do
 
     public Integer getId() { return id; }
     public void setId(Integer id) { this.id = id; }
@@ -45,6 +46,9 @@ public class ClanRegionEntity {
     public Integer getMarker2Z() { return marker2Z; }
     public void setMarker2Z(Integer marker2z) { this.marker2Z = marker2z; }
 
+    public long getFlags() { return flags; }
+    public void setFlags(long flags) { this.flags = flags; }
+
     public boolean hasSecondMarker() {
         return marker2X != null && marker2Y != null && marker2Z != null;
     }
@@ -83,5 +87,23 @@ public class ClanRegionEntity {
         int dz = Math.abs(marker1Z - marker2Z) + 1;
         return dx * dz;
     }
-}
 
+    /**
+     * Detached copy that references the given clan instance.
+     */
+    public ClanRegionEntity copy(ClanEntity clan) {
+        ClanRegionEntity r = new ClanRegionEntity();
+        r.id = id;
+        r.clan = clan;
+        r.worldName = worldName;
+        r.markerType = markerType;
+        r.marker1X = marker1X;
+        r.marker1Y = marker1Y;
+        r.marker1Z = marker1Z;
+        r.marker2X = marker2X;
+        r.marker2Y = marker2Y;
+        r.marker2Z = marker2Z;
+        r.flags = flags;
+        return r;
+    }
+}
@@ -1,17 +1,20 @@
 package com.cruiser.clans.orm.entity;
 
 public enum ClanRole {
-    LEADER(3, "Лидер"),
-    OFFICER(2, "Офицер"),
-    MEMBER(1, "Участник"),
-    RECRUIT(0, "Новобранец");
+    LEADER(3, "Лидер", RegionFlag.ALL),
+    OFFICER(2, "Офицер", RegionFlag.ALL),
+    MEMBER(1, "Участник", RegionFlag.ALL),
+    // Как и раньше, в регионе своего клана новобранцы могут всё; ограничения — через /clan region perm
+    RECRUIT(0, "Новобранец", RegionFlag.ALL);
     
     private final int power;
     private final String displayName;
+    private final long regionFlags;
     
-    ClanRole(int power, String displayName) {
+    ClanRole(int power, String displayName, long regionFlags) {
         this.power = power;
         this.displayName = displayName;
+        this.regionFlags = regionFlags;
     }
     
     public int getPower() {
@@ -22,6 +25,13 @@ public enum ClanRole {
         return displayName;
     }
     
+    /**
+     * Флаги региона по умолчанию для роли (маска {@link RegionFlag})
+     */
+    public long getRegionFlags() {
+        return regionFlags;
+    }
+    
     public boolean canKick(ClanRole other) {
         return this.power > other.power;
     }
@@ -0,0 +1,80 @@
+package com.cruiser.clans.orm.entity;
+
+import java.util.Locale;
+
+/**
+ * Actions in a clan region that can be allowed or denied. Each flag is one bit, so a
+ * set of flags is a {@code long} mask and a check is a single AND.
+ * <p>
+ * Masks are stored in {@code clan_regions.flags} (what visitors may do) and in
+ * {@code clan_players.permissions} (per-member overrides of the role defaults:
+ * granted flags in the low 32 bits, denied flags in the high 32 bits).
+ */
+public enum RegionFlag {
+    BUILD("Строительство"),
+    BREAK("Разрушение"),
+    CONTAINERS("Контейнеры"),
+    DOORS("Двери"),
+    REDSTONE("Механизмы"),
+    ENTITY_DAMAGE("Урон мобам"),
+    PVP("PvP");
+
+    public static final long NONE = 0L;
+    public static final long ALL = (1L << values().length) - 1;
+    /**
+     * Visitor mask of a new region: doors and redstone, which visitors could always use
+     * before regions had flags. Leaders can revoke them with {@code /clan region flag}.
+     */
+    public static final long VISITOR_DEFAULT = DOORS.bit() | REDSTONE.bit();
+
+    private static final int DENY_SHIFT = 32;
+
+    private final String displayName;
+
+    RegionFlag(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    public long bit() {
+        return 1L << ordinal();
+    }
+
+    public static long mask(RegionFlag... flags) {
+        long mask = NONE;
+        for (RegionFlag f : flags) mask |= f.bit();
+        return mask;
+    }
+
+    /**
+     * Flag by name, ignoring case; null if unknown.
+     */
+    public static RegionFlag byName(String name) {
+        try {
+            return valueOf(name.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Effective mask of a member: role defaults plus granted, minus denied overrides.
+     */
+    public static long effective(ClanRole role, long overrides) {
+        long granted = overrides & ALL;
+        long denied = (overrides >>> DENY_SHIFT) & ALL;
+        return (role.getRegionFlags() | granted) & ~denied;
+    }
+
+    /**
+     * Overrides with {@code flag} granted ({@code true}), denied ({@code false}) or reset to the role default ({@code null}).
+     */
+    public static long override(long overrides, RegionFlag flag, Boolean allowed) {
+        long cleared = overrides & ~flag.bit() & ~(flag.bit() << DENY_SHIFT);
+        if (allowed == null) return cleared;
+        return allowed ? cleared | flag.bit() : cleared | (flag.bit() << DENY_SHIFT);
+    }
+}
@@ -49,22 +49,18 @@ public class ClanChatService {
             // Форматируем сообщение
             Component formattedMessage = formatClanMessage(sender.getName(), senderPlayer.getRole().getDisplayName(), clanTag, message);
             
-            // Получаем всех членов клана и отправляем им сообщение
-            return plugin.getData().getClanMembers(clanId).thenAccept(members -> {
-                plugin.getData().runSync(() -> {
-                    for (ClanPlayerEntity member : members) {
-                        Player memberPlayer = plugin.getServer().getPlayer(member.getUuidAsUUID());
-                        if (memberPlayer != null && memberPlayer.isOnline()) {
-                            memberPlayer.sendMessage(formattedMessage);
-                        }
-                    }
-                    
-                    // Логируем в консоль если включено
-                    if (plugin.getConfig().getBoolean("debug.log-actions", false)) {
-                        plugin.getLogger().info("[ClanChat] [" + clanTag + "] " + sender.getName() + ": " + message);
-                    }
-                });
-            }).thenApply(v -> true);
+            // Отправляем сообщение членам клана в сети
+            plugin.getData().runSync(() -> {
+                for (Player memberPlayer : plugin.getData().getRoster().onlineMembers(clanId)) {
+                    memberPlayer.sendMessage(formattedMessage);
+                }
+                
+                // Логируем в консоль если включено
+                if (plugin.getSettings().logActions()) {
+                    plugin.getLogger().info("[ClanChat] [" + clanTag + "] " + sender.getName() + ": " + message);
+                }
+            });
+            return CompletableFuture.completedFuture(true);
         });
     }
     
@@ -125,21 +121,16 @@ public class ClanChatService {
      * Отправить системное сообщение клану
      */
     public CompletableFuture<Void> sendSystemMessage(Integer clanId, Component message) {
-        return plugin.getData().getClanMembers(clanId).thenAccept(members -> {
-            plugin.getData().runSync(() -> {
-                Component systemMessage = Component.text()
-                    .append(Component.text("[CLAN] ", NamedTextColor.GOLD, TextDecoration.BOLD))
-                    .append(message)
-                    .build();
-                
-                for (ClanPlayerEntity member : members) {
-                    Player player = plugin.getServer().getPlayer(member.getUuidAsUUID());
-                    if (player != null && player.isOnline()) {
-                        player.sendMessage(systemMessage);
-                    }
-                }
-            });
+        Component systemMessage = Component.text()
+            .append(Component.text("[CLAN] ", NamedTextColor.GOLD, TextDecoration.BOLD))
+            .append(message)
+            .build();
+        plugin.getData().runSync(() -> {
+            for (Player player : plugin.getData().getRoster().onlineMembers(clanId)) {
+                player.sendMessage(systemMessage);
+            }
         });
+        return CompletableFuture.completedFuture(null);
     }
     
     /**
@@ -182,8 +173,8 @@ public class ClanChatService {
      * Форматировать сообщение чата клана
      */
     private Component formatClanMessage(String playerName, String role, String clanTag, String message) {
-        String formatPattern = plugin.getConfig().getString("chat.format", "%prefix% &7%player%: &f%message%");
-        String prefix = plugin.getConfig().getString("chat.prefix", "&7[&6CLAN&7]");
+        String formatPattern = plugin.getSettings().chatFormat();
+        String prefix = plugin.getSettings().chatPrefix();
         
         // Заменяем плейсхолдеры
         String formatted = formatPattern
@@ -1,233 +1,265 @@
 package com.cruiser.clans.service;
 
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
-import org.bukkit.scoreboard.Scoreboard;
-import org.bukkit.scoreboard.Team;
 
 import com.cruiser.clans.ClanPlugin;
+import com.cruiser.clans.cache.ClanDisplayCache;
 import com.cruiser.clans.orm.entity.ClanEntity;
-import com.cruiser.clans.orm.entity.ClanPlayerEntity;
 
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.format.NamedTextColor;
 
 /**
  * Service for displaying clan tags in tab and above player heads
- * Uses Scoreboard API for prefix management
+ * Uses Scoreboard API for prefix management through {@link ClanTeamBoards}:
+ * a clan change touches only the old and the new team, teams exist only while the
+ * clan has online members, and members may see their own clan in its own color.
+ * Team state is changed on the main thread only.
+ * The last tab name applied to each player is kept, and a refresh that would send
+ * the same name or team again is skipped and counted.
  */
 public class ClanDisplayService {
     
+    /**
+     * Refresh counters since start: flushes, player refreshes that changed a team,
+     * prefix or tab name, and refreshes skipped because nothing changed.
+     */
+    public record DisplayStats(long flushes, long applied, long skipped) {}
+    
     private final ClanPlugin plugin;
-    private final Scoreboard scoreboard;
+    private final ClanTeamBoards boards;
+    private final ClanDisplayCache displayCache = new ClanDisplayCache();
+    // Players waiting for the next flush; filled from any thread
+    private final Set<UUID> dirty = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    // Player -> tab name last applied by this service; absent if never changed
+    private final Map<UUID, Component> appliedNames = new HashMap<>();
+    // Main thread only, like the team boards
+    private long flushes;
+    private long applied;
+    private long skipped;
     
     public ClanDisplayService(ClanPlugin plugin) {
         this.plugin = plugin;
-        this.scoreboard = Bukkit.getScoreboardManager().getMainScoreboard();
+        this.boards = new ClanTeamBoards(Bukkit.getScoreboardManager().getMainScoreboard());
     }
     
     /**
-     * Update player display (called on join, clan change etc.)
+     * Update player display (called on join, clan change etc.).
+     * Only marks the player dirty; all dirty players are refreshed together on the
+     * next tick. Safe to call from any thread.
      */
     public void updatePlayerDisplay(Player player) {
-        UUID uuid = player.getUniqueId();
+        dirty.add(player.getUniqueId());
+        scheduleFlush();
+    }
+    
+    private void scheduleFlush() {
+        if (flushScheduled.compareAndSet(false, true)) {
+            try {
+                Bukkit.getScheduler().runTask(plugin, this::flush);
+            } catch (IllegalStateException e) {
+                // Plugin is disabling: shutdown() resets names anyway
+                flushScheduled.set(false);
+            }
+        }
+    }
+    
+    /**
+     * Refresh all dirty players from memory: clan id from the session or roster,
+     * clan from the registry. No database access, one task per tick.
+     */
+    private void flush() {
+        flushScheduled.set(false);
+        if (dirty.isEmpty()) {
+            return;
+        }
+        flushes++;
         
-        // Load player data from database
-        plugin.getData().findPlayerByUuid(uuid).thenAccept(optPlayer -> {
-            plugin.getData().runSync(() -> {
-                try {
-                    if (optPlayer.isPresent() && optPlayer.get().isInClan()) {
-                        ClanPlayerEntity clanPlayer = optPlayer.get();
-                        ClanEntity clan = clanPlayer.getClan();
-                        
-                        // Проверяем что clan не null (на всякий случай)
-                        if (clan != null) {
-                            // Add to scoreboard team for tag display
-                            addToTeam(player, clan);
-                            
-                            // Update display name
-                            updateDisplayName(player, clan);
-                        } else {
-                            // Remove from all teams if clan is null somehow
-                            removeFromAllTeams(player);
-                            resetDisplayName(player);
-                        }
-                    } else {
-                        // Remove from all teams if not in clan
-                        removeFromAllTeams(player);
-                        resetDisplayName(player);
-                    }
-                } catch (Exception e) {
-                    plugin.getLogger().log(java.util.logging.Level.WARNING, "Error in updatePlayerDisplay", e);
-                    // Fallback - remove from teams
-                    removeFromAllTeams(player);
-                    resetDisplayName(player);
+        // Each clan is copied from the registry once per flush
+        Map<Integer, Optional<ClanEntity>> clans = new HashMap<>();
+        for (Iterator<UUID> it = dirty.iterator(); it.hasNext();) {
+            UUID uuid = it.next();
+            it.remove();
+            
+            Player player = Bukkit.getPlayer(uuid);
+            if (player == null || !player.isOnline()) {
+                continue;
+            }
+            try {
+                Integer clanId = plugin.getData().getOnlineClanId(uuid);
+                ClanEntity clan = clanId == null ? null
+                    : clans.computeIfAbsent(clanId, id -> plugin.getData().getRegistry().findClanById(id)).orElse(null);
+                
+                boolean changed;
+                if (clan != null) {
+                    // Add to scoreboard team for tag display, then update display name
+                    changed = addToTeam(player, clan) | updateDisplayName(player, clan);
+                } else {
+                    // Remove from team if not in clan
+                    changed = removeFromAllTeams(player) | resetDisplayName(player);
+                }
+                if (changed) {
+                    applied++;
+                } else {
+                    skipped++;
                 }
-            });
-        }).exceptionally(ex -> {
-            plugin.getLogger().log(java.util.logging.Level.WARNING, "Error updating player display for " + player.getName(), ex);
-            // Fallback on main thread
-            plugin.getData().runSync(() -> {
+            } catch (Exception e) {
+                plugin.getLogger().log(java.util.logging.Level.WARNING, "Error in updatePlayerDisplay", e);
+                // Fallback - remove from teams
                 removeFromAllTeams(player);
                 resetDisplayName(player);
-            });
-            return null;
-        });
+            }
+        }
     }
     
     /**
      * Add player to scoreboard team for clan tag display
+     * @return true if the team or its prefix changed
      */
-    private void addToTeam(Player player, ClanEntity clan) {
+    private boolean addToTeam(Player player, ClanEntity clan) {
         try {
-            String teamName = "clan_" + clan.getId();
-            Team team = scoreboard.getTeam(teamName);
-            
-            if (team == null) {
-                team = scoreboard.registerNewTeam(teamName);
-                
-                // Set prefix with clan tag
-                Component prefix = Component.text("[" + clan.getTag() + "] ", getTagColor(clan));
-                team.prefix(prefix);
-                
-                // Team options
-                team.setAllowFriendlyFire(true); // Can configure PvP between clans
-                team.setCanSeeFriendlyInvisibles(false);
-            }
-            
-            // Add player to team
-            team.addPlayer(player);
+            // Prefixes with clan tag; refreshed after level, tag or config changes
+            ClanDisplayCache.ClanDisplay display = getClanDisplay(clan);
+            return boards.join(player, clan.getId(), display.prefix(), display.ownPrefix());
         } catch (Exception e) {
             plugin.getLogger().log(java.util.logging.Level.WARNING, "Error adding player to team", e);
+            return false;
         }
     }
     
     /**
-     * Remove player from all clan teams
+     * Remove player from their clan team; the team is unregistered once empty
+     * @return true if the player was in a team
      */
-    private void removeFromAllTeams(Player player) {
+    private boolean removeFromAllTeams(Player player) {
         try {
-            scoreboard.getTeams().stream()
-                .filter(team -> team.getName().startsWith("clan_"))
-                .forEach(team -> {
-                    try {
-                        team.removePlayer(player);
-                    } catch (Exception e) {
-                        // Ignore errors when removing from teams
-                    }
-                });
+            return boards.leave(player);
         } catch (Exception e) {
-            plugin.getLogger().log(java.util.logging.Level.WARNING, "Error removing player from teams", e);
+            plugin.getLogger().log(java.util.logging.Level.WARNING, "Error removing player from team", e);
+            return false;
         }
     }
     
     /**
      * Update player's display name with clan tag
+     * @return true if a new name was sent
      */
-    private void updateDisplayName(Player player, ClanEntity clan) {
+    private boolean updateDisplayName(Player player, ClanEntity clan) {
         try {
-            if (!plugin.getConfig().getBoolean("display.show-in-tablist", true)) {
-                return;
+            if (!plugin.getSettings().showInTablist()) {
+                // Tags in tab may have been turned off by a reload
+                return resetDisplayName(player);
             }
             
             Component displayName = Component.text()
-                .append(Component.text("[" + clan.getTag() + "] ", getTagColor(clan)))
+                .append(getClanDisplay(clan).prefix())
                 .append(Component.text(player.getName(), NamedTextColor.WHITE))
                 .build();
             
+            // Tab name change is sent to every online player: skip if unchanged
+            if (displayName.equals(appliedNames.get(player.getUniqueId()))) {
+                return false;
+            }
             player.displayName(displayName);
             player.playerListName(displayName);
+            appliedNames.put(player.getUniqueId(), displayName);
+            return true;
         } catch (Exception e) {
             plugin.getLogger().log(java.util.logging.Level.WARNING, "Error updating display name", e);
+            return false;
         }
     }
     
     /**
      * Reset display name to default
+     * @return true if a new name was sent
      */
-    private void resetDisplayName(Player player) {
+    private boolean resetDisplayName(Player player) {
         try {
-            player.displayName(Component.text(player.getName()));
-            player.playerListName(Component.text(player.getName()));
+            Component applied = appliedNames.remove(player.getUniqueId());
+            Component name = Component.text(player.getName());
+            // Without a known state (e.g. after a plugin reload) compare with the current name
+            if (applied == null && name.equals(player.playerListName())) {
+                return false;
+            }
+            player.displayName(name);
+            player.playerListName(name);
+            return true;
         } catch (Exception e) {
             plugin.getLogger().log(java.util.logging.Level.WARNING, "Error resetting display name", e);
+            return false;
         }
     }
     
     /**
-     * Get tag color depending on clan level
+     * Cached tag color and prefix of a clan; safe to call from async chat threads
      */
-    private NamedTextColor getTagColor(ClanEntity clan) {
-        try {
-            int level = clan.getClanLevel();
-            if (level >= 50) return NamedTextColor.DARK_RED;
-            if (level >= 40) return NamedTextColor.RED;
-            if (level >= 30) return NamedTextColor.GOLD;
-            if (level >= 20) return NamedTextColor.YELLOW;
-            if (level >= 10) return NamedTextColor.GREEN;
-            if (level >= 5) return NamedTextColor.AQUA;
-            return NamedTextColor.GRAY;
-        } catch (Exception e) {
-            plugin.getLogger().log(java.util.logging.Level.WARNING, "Error getting tag color", e);
-            return NamedTextColor.GRAY;
-        }
+    public ClanDisplayCache.ClanDisplay getClanDisplay(ClanEntity clan) {
+        return displayCache.get(clan, plugin.getSettings());
+    }
+    
+    /**
+     * Forget player on quit so the team of an offline clan is released
+     */
+    public void removePlayer(Player player) {
+        dirty.remove(player.getUniqueId());
+        appliedNames.remove(player.getUniqueId());
+        removeFromAllTeams(player);
+    }
+    
+    /**
+     * Refresh counters; read on the main thread
+     */
+    public DisplayStats getStats() {
+        return new DisplayStats(flushes, applied, skipped);
     }
     
     /**
-     * Update all clan players
+     * Size of the team boards; read on the main thread
+     */
+    public ClanTeamBoards.Stats getBoardStats() {
+        return boards.stats();
+    }
+    
+    /**
+     * Update all clan players (marked dirty, refreshed on the next tick)
      */
     public void updateClanDisplay(Integer clanId) {
-        plugin.getData().getClanMembers(clanId).thenAccept(members -> {
-            plugin.getData().runSync(() -> {
-                for (ClanPlayerEntity member : members) {
-                    try {
-                        Player player = Bukkit.getPlayer(member.getUuidAsUUID());
-                        if (player != null && player.isOnline()) {
-                            updatePlayerDisplay(player);
-                        }
-                    } catch (Exception e) {
-                        plugin.getLogger().log(java.util.logging.Level.WARNING, "Error updating clan member display", e);
-                    }
-                }
-            });
-        }).exceptionally(ex -> {
-            plugin.getLogger().log(java.util.logging.Level.WARNING, "Error updating clan display", ex);
-            return null;
-        });
+        for (Player player : plugin.getData().getRoster().onlineMembers(clanId)) {
+            dirty.add(player.getUniqueId());
+        }
+        scheduleFlush();
     }
     
     /**
      * Remove clan team from scoreboard
      */
     public void removeClanTeam(Integer clanId) {
+        displayCache.invalidate(clanId);
         try {
-            String teamName = "clan_" + clanId;
-            Team team = scoreboard.getTeam(teamName);
-            if (team != null) {
-                team.unregister();
-            }
+            boards.removeClan(clanId);
         } catch (Exception e) {
             plugin.getLogger().log(java.util.logging.Level.WARNING, "Error removing clan team", e);
         }
     }
     
     /**
-     * Initialize on plugin start - load all clans
+     * Initialize on plugin start - teams are created on demand for online players
      */
     public void initialize() {
         try {
-            // Clean old clan teams
-            scoreboard.getTeams().stream()
-                .filter(team -> team.getName().startsWith("clan_"))
-                .forEach(team -> {
-                    try {
-                        team.unregister();
-                    } catch (Exception e) {
-                        // Ignore errors
-                    }
-                });
+            boards.setViewsEnabled(plugin.getSettings().ownClanColor() != null);
             
             // Update all online players
             for (Player player : Bukkit.getOnlinePlayers()) {
@@ -238,21 +270,26 @@ public class ClanDisplayService {
         }
     }
     
+    /**
+     * Rebuild prefixes after /clanadmin reload (tag colors may have changed)
+     */
+    public void reload() {
+        displayCache.clear();
+        // Turning own-clan colors on or off rebuilds all teams below
+        boards.setViewsEnabled(plugin.getSettings().ownClanColor() != null);
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            updatePlayerDisplay(player);
+        }
+    }
+    
     /**
      * Cleanup on plugin disable
      */
     public void shutdown() {
         try {
-            // Remove all clan teams
-            scoreboard.getTeams().stream()
-                .filter(team -> team.getName().startsWith("clan_"))
-                .forEach(team -> {
-                    try {
-                        team.unregister();
-                    } catch (Exception e) {
-                        // Ignore errors
-                    }
-                });
+            // Remove teams created by this plugin
+            boards.clear();
+            dirty.clear();
             
             // Reset all player names
             for (Player player : Bukkit.getOnlinePlayers()) {
@@ -61,6 +61,7 @@ public class ClanMemberService {
             String clanName = clan.getName();
             clanPlayer.setClan(null);
             clanPlayer.setRole(ClanRole.MEMBER);
+            clanPlayer.setPermissions(0L);
             clanPlayer.setJoinedAt(null);
             clanPlayer.setClanContribution(0);
             
@@ -124,6 +125,7 @@ public class ClanMemberService {
                 // Исключаем игрока
                 targetPlayer.setClan(null);
                 targetPlayer.setRole(ClanRole.MEMBER);
+                targetPlayer.setPermissions(0L);
                 targetPlayer.setJoinedAt(null);
                 targetPlayer.setClanContribution(0);
                 
@@ -348,16 +350,12 @@ public class ClanMemberService {
      * Уведомить всех членов клана
      */
     private CompletableFuture<Void> notifyMembers(Integer clanId, Component message) {
-        return plugin.getData().getClanMembers(clanId).thenAccept(members -> {
-            plugin.getData().runSync(() -> {
-                for (ClanPlayerEntity member : members) {
-                    Player player = plugin.getServer().getPlayer(member.getUuidAsUUID());
-                    if (player != null && player.isOnline()) {
-                        player.sendMessage(message);
-                    }
-                }
-            });
+        plugin.getData().runSync(() -> {
+            for (Player player : plugin.getData().getRoster().onlineMembers(clanId)) {
+                player.sendMessage(message);
+            }
         });
+        return CompletableFuture.completedFuture(null);
     }
     
     /**
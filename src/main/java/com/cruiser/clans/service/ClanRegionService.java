@@ -1,22 +1,32 @@
 package com.cruiser.clans.service;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.NamespacedKey;
+import org.bukkit.block.Block;
+import org.bukkit.block.data.BlockData;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.ItemMeta;
 import org.bukkit.persistence.PersistentDataType;
 
 import com.cruiser.clans.ClanPlugin;
+import com.cruiser.clans.cache.RegionBounds;
 import com.cruiser.clans.orm.entity.ClanEntity;
 import com.cruiser.clans.orm.entity.ClanPlayerEntity;
 import com.cruiser.clans.orm.entity.ClanRegionEntity;
 import com.cruiser.clans.orm.entity.ClanRole;
+import com.cruiser.clans.orm.entity.RegionFlag;
 
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.format.NamedTextColor;
@@ -28,6 +38,9 @@ public class ClanRegionService {
 
     private final ClanPlugin plugin;
     private final NamespacedKey markerKey;
+    // Кланы, чей маркер сейчас сохраняется, и границы их будущих регионов. Второй маркер
+    // до подтверждения не принимается, а чужие маркеры проверяются и по этим границам
+    private final Map<Integer, RegionBounds> pendingClans = new ConcurrentHashMap<>();
 
     public ClanRegionService(ClanPlugin plugin) {
         this.plugin = plugin;
@@ -38,6 +51,12 @@ public class ClanRegionService {
      * Получить регион по локации
      */
     public CompletableFuture<Optional<ClanRegionEntity>> getRegionAtLocation(Location location) {
+        var registry = plugin.getData().getRegistry();
+        if (registry.isLoaded()) {
+            // Индекс по чанкам: без запроса к БД и без перебора всех регионов мира
+            return CompletableFuture.completedFuture(registry.findRegionAt(location.getWorld().getName(),
+                location.getBlockX(), location.getBlockY(), location.getBlockZ()));
+        }
         return plugin.getData().findRegionsByWorld(location.getWorld().getName()).thenApply(list -> {
             for (ClanRegionEntity region : list) {
                 if (region.contains(location)) {
@@ -49,71 +68,308 @@ public class ClanRegionService {
     }
 
     /**
-     * Обработка установки маркера региона
+     * Регион, содержащий блок, из индекса в памяти; null если блок вне регионов.
      */
-    public CompletableFuture<Boolean> handleMarkerPlacement(Player player, Location location, ItemStack item) {
-        String markerType = item.getType().name();
-        return plugin.getData().findPlayerByUuid(player.getUniqueId()).thenCompose(optPlayer -> {
-            if (optPlayer.isEmpty()) return CompletableFuture.completedFuture(false);
-            ClanPlayerEntity cPlayer = optPlayer.get();
-            if (!cPlayer.isInClan() || cPlayer.getRole() != ClanRole.LEADER) {
-                return CompletableFuture.completedFuture(false);
-            }
-            ClanEntity clan = cPlayer.getClan();
-            return plugin.getData().findClanRegion(clan.getId()).thenCompose(optRegion -> {
-                if (optRegion.isEmpty()) {
-                    ClanRegionEntity region = new ClanRegionEntity();
-                    region.setClan(clan);
-                    region.setWorldName(location.getWorld().getName());
-                    region.setMarkerType(markerType);
-                    region.setMarker1(location);
-                    return plugin.getData().createRegion(region).thenApply(r -> true);
-                } else {
-                    ClanRegionEntity region = optRegion.get();
-                    if (region.hasSecondMarker()) {
-                        return CompletableFuture.completedFuture(false);
-                    }
-                    int maxRadius = plugin.getConfig().getInt("regions.marker-blocks." + markerType + ".max-radius", 25);
-                    int radius = Math.max(Math.abs(region.getMarker1X() - location.getBlockX()),
-                                           Math.abs(region.getMarker1Z() - location.getBlockZ()));
-                    if (radius > maxRadius) {
-                        return CompletableFuture.completedFuture(false);
-                    }
-                    region.setMarker2(location);
-                    return plugin.getData().updateRegion(region).thenApply(r -> true);
-                }
-            });
-        });
+    public RegionBounds regionAt(Block block) {
+        return plugin.getData().getRegistry().regionIndex()
+            .regionAt(block.getWorld().getName(), block.getX(), block.getY(), block.getZ());
     }
 
     /**
-     * Обработка разрушения маркера
-     * @return true если разрешено разрушить
+     * Разрешено ли игроку действие в регионе: для участников клана — маска роли с
+     * персональными исключениями из сессии, для остальных — флаги гостей региона.
+     * Одна операция AND без обращений к БД и без выделения памяти.
      */
-    public CompletableFuture<Boolean> handleMarkerBreak(Player player, Location location) {
-        return getRegionAtLocation(location).thenCompose(optRegion -> {
-            if (optRegion.isEmpty()) return CompletableFuture.completedFuture(false);
-            ClanRegionEntity region = optRegion.get();
-            return plugin.getData().findPlayerByUuid(player.getUniqueId()).thenCompose(optPlayer -> {
-                if (optPlayer.isEmpty()) return CompletableFuture.completedFuture(false);
-                ClanPlayerEntity cPlayer = optPlayer.get();
-                if (!cPlayer.isInClan() || cPlayer.getRole() != ClanRole.LEADER ||
-                        !cPlayer.getClan().getId().equals(region.getClan().getId())) {
-                    return CompletableFuture.completedFuture(false);
-                }
-                return plugin.getData().deleteRegion(region.getId()).thenApply(v -> true);
-            });
+    public boolean isAllowed(Player player, RegionBounds region, RegionFlag flag) {
+        UUID uuid = player.getUniqueId();
+        Integer clanId = plugin.getData().getOnlineClanId(uuid);
+        long mask = clanId != null && clanId == region.clanId()
+            ? plugin.getData().getOnlineRegionFlags(uuid)
+            : region.visitorFlags();
+        return (mask & flag.bit()) != 0;
+    }
+
+    public String clanName(int clanId) {
+        return plugin.getData().getRegistry().findClanById(clanId).map(ClanEntity::getName).orElse("?");
+    }
+
+    /**
+     * Установка маркера: проверка по данным в памяти, затем сохранение в БД.
+     * Событие установки всегда отменяется вызывающим; блок ставится только после
+     * подтверждения записи, поэтому основной поток никогда не ждёт БД.
+     */
+    public void placeMarker(Player player, Block block, ItemStack item) {
+        Material material = item.getType();
+        // Состояние блока (поворот, половинка и т.п.) до отмены события, чтобы поставить его таким же
+        BlockData data = block.getBlockData().clone();
+        withPlayerRow(player, optPlayer -> placeMarker(player, block, material, data, optPlayer));
+    }
+
+    private void placeMarker(Player player, Block block, Material material, BlockData data,
+                             Optional<ClanPlayerEntity> optPlayer) {
+        if (optPlayer.isEmpty() || !optPlayer.get().isInClan() || optPlayer.get().getRole() != ClanRole.LEADER) {
+            player.sendMessage(Component.text("Маркер может установить только лидер клана", NamedTextColor.RED));
+            return;
+        }
+        ClanEntity clan = optPlayer.get().getClan();
+        if (pendingClans.containsKey(clan.getId())) {
+            player.sendMessage(Component.text("Предыдущий маркер ещё сохраняется", NamedTextColor.RED));
+            return;
+        }
+
+        String world = block.getWorld().getName();
+        Optional<ClanRegionEntity> optRegion = plugin.getData().getRegistry().findClanRegion(clan.getId());
+        ClanRegionEntity region;
+        if (optRegion.isEmpty()) {
+            region = new ClanRegionEntity();
+            region.setClan(clan);
+            region.setWorldName(world);
+            region.setMarkerType(material.name());
+            region.setMarker1(block.getLocation());
+        } else {
+            region = optRegion.get();
+            String error = null;
+            if (region.hasSecondMarker()) {
+                error = "У вашего клана уже установлен регион";
+            } else if (!region.getWorldName().equals(world)) {
+                error = "Второй маркер должен быть в том же мире";
+            } else {
+                var marker = plugin.getSettings().marker(material);
+                int maxRadius = marker == null ? 25 : marker.maxRadius();
+                int radius = Math.max(Math.abs(region.getMarker1X() - block.getX()),
+                                      Math.abs(region.getMarker1Z() - block.getZ()));
+                if (radius > maxRadius) error = "Слишком далеко от первого маркера (макс. " + maxRadius + " блоков)";
+            }
+            if (error != null) {
+                player.sendMessage(Component.text(error, NamedTextColor.RED));
+                return;
+            }
+            region.setMarker2(block.getLocation());
+        }
+
+        RegionBounds bounds = pendingBounds(region, world, block);
+        String conflict = findConflict(bounds);
+        if (conflict != null) {
+            player.sendMessage(Component.text(conflict, NamedTextColor.RED));
+            return;
+        }
+        // Проверка и резервирование идут в основном потоке, поэтому два клана не могут
+        // одновременно занять пересекающиеся участки, пока их записи ещё не подтверждены
+        pendingClans.put(clan.getId(), bounds);
+
+        boolean created = optRegion.isEmpty();
+        CompletableFuture<ClanRegionEntity> write = created
+            ? plugin.getData().createRegion(region)
+            : plugin.getData().updateRegion(region);
+        write.whenComplete((saved, ex) -> plugin.getData().runSync(() -> {
+            pendingClans.remove(clan.getId());
+            if (ex != null) {
+                plugin.getLogger().warning("Ошибка сохранения маркера региона: " + ex.getMessage());
+                player.sendMessage(Component.text("Не удалось сохранить маркер, попробуйте ещё раз", NamedTextColor.RED));
+                return;
+            }
+            if (!block.isEmpty() && !block.isReplaceable() || !takeMarker(player, material)) {
+                // Место заняли или маркер пропал из инвентаря, пока шла запись: откатываем
+                rollbackMarker(saved, created);
+                player.sendMessage(Component.text("Маркер не установлен: место занято", NamedTextColor.RED));
+                return;
+            }
+            block.setBlockData(data);
+            player.sendMessage(Component.text(created
+                ? "Первый маркер установлен, поставьте второй"
+                : "Регион клана установлен", NamedTextColor.GREEN));
+        }));
+    }
+
+    /**
+     * Разрушение маркера: проверка по данным в памяти, удаление региона в БД,
+     * блок ломается только после подтверждения. Событие отменяется вызывающим.
+     */
+    public void breakMarker(Player player, Block block, RegionBounds region) {
+        withPlayerRow(player, optPlayer -> breakMarker(player, block, region, optPlayer));
+    }
+
+    private void breakMarker(Player player, Block block, RegionBounds region, Optional<ClanPlayerEntity> optPlayer) {
+        if (optPlayer.isEmpty() || !optPlayer.get().isInClan() || optPlayer.get().getRole() != ClanRole.LEADER
+                || optPlayer.get().getClan().getId() != region.clanId()) {
+            player.sendMessage(Component.text(plugin.getSettings().noPermissionMessage(clanName(region.clanId())), NamedTextColor.RED));
+            return;
+        }
+        if (pendingClans.putIfAbsent(region.clanId(), region) != null) {
+            player.sendMessage(Component.text("Предыдущий маркер ещё сохраняется", NamedTextColor.RED));
+            return;
+        }
+        Material material = block.getType();
+        plugin.getData().deleteRegion(region.regionId()).whenComplete((v, ex) -> plugin.getData().runSync(() -> {
+            pendingClans.remove(region.clanId());
+            if (ex != null) {
+                plugin.getLogger().warning("Ошибка удаления региона: " + ex.getMessage());
+                player.sendMessage(Component.text("Не удалось удалить регион, попробуйте ещё раз", NamedTextColor.RED));
+                return;
+            }
+            if (block.getType() == material) block.breakNaturally();
+            player.sendMessage(Component.text("Регион клана удалён", NamedTextColor.YELLOW));
+        }));
+    }
+
+    /**
+     * Выполнить действие с данными игрока в основном потоке. Обычно данные берутся из
+     * сессии сразу; если сессии нет (не загрузилась при входе), они читаются из БД
+     * асинхронно, и действие завершается после загрузки, а не отклоняется.
+     */
+    private void withPlayerRow(Player player, Consumer<Optional<ClanPlayerEntity>> action) {
+        UUID uuid = player.getUniqueId();
+        if (plugin.getData().hasSession(uuid)) {
+            action.accept(plugin.getData().getSessionPlayer(uuid));
+            return;
+        }
+        plugin.getData().findPlayerByUuid(uuid).whenComplete((row, ex) -> plugin.getData().runSync(() -> {
+            if (!player.isOnline()) return;
+            if (ex != null) {
+                plugin.getLogger().warning("Ошибка загрузки игрока " + player.getName() + ": " + ex.getMessage());
+                player.sendMessage(Component.text("Не удалось загрузить данные игрока, попробуйте ещё раз", NamedTextColor.RED));
+                return;
+            }
+            action.accept(row);
+        }));
+    }
+
+    /**
+     * Границы региона после установки маркера в {@code block}.
+     */
+    private static RegionBounds pendingBounds(ClanRegionEntity region, String world, Block block) {
+        int m1x = region.getMarker1X(), m1y = region.getMarker1Y(), m1z = region.getMarker1Z();
+        boolean second = region.hasSecondMarker();
+        return new RegionBounds(region.getId() == null ? -1 : region.getId(), region.getClan().getId(),
+            region.getFlags(), world,
+            Math.min(m1x, block.getX()), Math.min(m1y, block.getY()), Math.min(m1z, block.getZ()),
+            Math.max(m1x, block.getX()), Math.max(m1y, block.getY()), Math.max(m1z, block.getZ()),
+            m1x, m1y, m1z, second, second ? block.getX() : 0, second ? block.getY() : 0, second ? block.getZ() : 0);
+    }
+
+    /**
+     * Пересечение с чужими регионами или нарушение буферной зоны. Проверка идёт по индексу
+     * чанков (только соседние чанки) и по маркерам других кланов, которые ещё сохраняются.
+     *
+     * @return текст ошибки или null, если конфликтов нет
+     */
+    private String findConflict(RegionBounds bounds) {
+        int minX = bounds.minX(), minZ = bounds.minZ(), maxX = bounds.maxX(), maxZ = bounds.maxZ();
+        int buffer = plugin.getSettings().bufferZone();
+        List<RegionBounds> near = new ArrayList<>(plugin.getData().getRegistry().regionIndex()
+            .regionsNear(bounds.worldName(), minX, minZ, maxX, maxZ, buffer, bounds.regionId()));
+        for (RegionBounds pending : pendingClans.values()) {
+            if (pending.clanId() != bounds.clanId() && pending.worldName().equals(bounds.worldName())
+                    && pending.gapTo(minX, minZ, maxX, maxZ) < buffer) {
+                near.add(pending);
+            }
+        }
+        if (near.isEmpty()) return null;
+        for (RegionBounds other : near) {
+            if (other.gapTo(minX, minZ, maxX, maxZ) < 0) {
+                return "Регион пересекается с территорией клана " + clanName(other.clanId());
+            }
+        }
+        return "Слишком близко к территории клана " + clanName(near.get(0).clanId())
+            + " (нужно не меньше " + buffer + " блоков)";
+    }
+
+    private boolean takeMarker(Player player, Material material) {
+        for (ItemStack stack : player.getInventory().getContents()) {
+            if (stack != null && stack.getType() == material && isClanMarker(stack)) {
+                stack.setAmount(stack.getAmount() - 1);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void rollbackMarker(ClanRegionEntity saved, boolean created) {
+        CompletableFuture<?> undo;
+        if (created) {
+            undo = plugin.getData().deleteRegion(saved.getId());
+        } else {
+            saved.setMarker2X(null);
+            saved.setMarker2Y(null);
+            saved.setMarker2Z(null);
+            undo = plugin.getData().updateRegion(saved);
+        }
+        undo.exceptionally(ex -> {
+            plugin.getLogger().warning("Ошибка отката маркера региона: " + ex.getMessage());
+            return null;
         });
     }
 
+    /**
+     * Разрешить или запретить гостям действие в регионе клана (только лидер)
+     */
+    public void setVisitorFlag(Player player, RegionFlag flag, boolean allowed) {
+        withPlayerRow(player, optPlayer -> setVisitorFlag(player, flag, allowed, optPlayer));
+    }
+
+    private void setVisitorFlag(Player player, RegionFlag flag, boolean allowed, Optional<ClanPlayerEntity> optPlayer) {
+        if (optPlayer.isEmpty() || !optPlayer.get().isInClan() || optPlayer.get().getRole() != ClanRole.LEADER) {
+            player.sendMessage(Component.text("Только лидер может менять флаги региона", NamedTextColor.RED));
+            return;
+        }
+        var optRegion = plugin.getData().getRegistry().findClanRegion(optPlayer.get().getClan().getId());
+        if (optRegion.isEmpty()) {
+            player.sendMessage(Component.text("У вашего клана нет региона", NamedTextColor.RED));
+            return;
+        }
+        ClanRegionEntity region = optRegion.get();
+        region.setFlags(allowed ? region.getFlags() | flag.bit() : region.getFlags() & ~flag.bit());
+        plugin.getData().updateRegion(region).whenComplete((saved, ex) -> plugin.getData().runSync(() -> {
+            if (ex != null) {
+                plugin.getLogger().warning("Ошибка сохранения флагов региона: " + ex.getMessage());
+                player.sendMessage(Component.text("Не удалось сохранить флаг", NamedTextColor.RED));
+                return;
+            }
+            player.sendMessage(Component.text("Гостям " + (allowed ? "разрешено: " : "запрещено: ") + flag.getDisplayName(),
+                NamedTextColor.GREEN));
+        }));
+    }
+
+    /**
+     * Персональное исключение из прав роли для участника клана (только лидер).
+     * {@code allowed == null} возвращает право роли по умолчанию.
+     */
+    public void setMemberFlag(Player player, String targetName, RegionFlag flag, Boolean allowed) {
+        withPlayerRow(player, optPlayer -> setMemberFlag(player, targetName, flag, allowed, optPlayer));
+    }
+
+    private void setMemberFlag(Player player, String targetName, RegionFlag flag, Boolean allowed,
+                               Optional<ClanPlayerEntity> optPlayer) {
+        if (optPlayer.isEmpty() || !optPlayer.get().isInClan() || optPlayer.get().getRole() != ClanRole.LEADER) {
+            player.sendMessage(Component.text("Только лидер может менять права участников", NamedTextColor.RED));
+            return;
+        }
+        Integer clanId = optPlayer.get().getClan().getId();
+        plugin.getData().findPlayerByName(targetName).thenCompose(optTarget -> {
+            if (optTarget.isEmpty() || !optTarget.get().isInClan() || !optTarget.get().getClan().getId().equals(clanId)) {
+                return CompletableFuture.completedFuture("Игрок не состоит в вашем клане");
+            }
+            var target = optTarget.get();
+            target.setPermissions(RegionFlag.override(target.getPermissions() == null ? 0L : target.getPermissions(), flag, allowed));
+            return plugin.getData().savePlayer(target).thenApply(v -> (String) null);
+        }).whenComplete((error, ex) -> plugin.getData().runSync(() -> {
+            if (ex != null) {
+                plugin.getLogger().warning("Ошибка сохранения прав участника: " + ex.getMessage());
+                player.sendMessage(Component.text("Не удалось сохранить права", NamedTextColor.RED));
+            } else if (error != null) {
+                player.sendMessage(Component.text(error, NamedTextColor.RED));
+            } else {
+                String state = allowed == null ? "по умолчанию для роли" : allowed ? "разрешено" : "запрещено";
+                player.sendMessage(Component.text(targetName + ": " + flag.getDisplayName() + " - " + state, NamedTextColor.GREEN));
+            }
+        }));
+    }
+
     /**
      * Проверка, является ли предмет маркером
      */
     public boolean isClanMarker(ItemStack item) {
-        if (item == null) return false;
-        var section = plugin.getConfig().getConfigurationSection("regions.marker-blocks");
-        if (section == null) return false;
-        if (!section.getKeys(false).contains(item.getType().name())) return false;
+        if (item == null || !plugin.getSettings().isMarkerMaterial(item.getType())) return false;
         ItemMeta meta = item.getItemMeta();
         return meta != null && meta.getPersistentDataContainer().has(markerKey, PersistentDataType.BYTE);
     }
@@ -122,13 +378,17 @@ public class ClanRegionService {
      * Выдать лидеру маркер региона
      */
     public void giveRegionMarker(Player player, String markerType) {
-        var section = plugin.getConfig().getConfigurationSection("regions.marker-blocks." + markerType);
-        if (section == null) {
+        Material mat = Material.matchMaterial(markerType);
+        var marker = mat == null ? null : plugin.getSettings().marker(mat);
+        if (marker == null) {
             player.sendMessage(Component.text("Неизвестный тип маркера", NamedTextColor.RED));
             return;
         }
 
-        var optPlayer = plugin.getData().findPlayerByUuid(player.getUniqueId()).join();
+        withPlayerRow(player, optPlayer -> giveRegionMarker(player, mat, marker.displayName(), optPlayer));
+    }
+
+    private void giveRegionMarker(Player player, Material mat, String displayName, Optional<ClanPlayerEntity> optPlayer) {
         if (optPlayer.isEmpty() || !optPlayer.get().isInClan()) {
             player.sendMessage(Component.text("Вы не состоите в клане", NamedTextColor.RED));
             return;
@@ -138,9 +398,20 @@ public class ClanRegionService {
             return;
         }
 
+        // Регион обычно берётся из реестра, но в общей БД может читаться из неё: не блокируем поток
         var clan = optPlayer.get().getClan();
-        Optional<ClanRegionEntity> optRegion = plugin.getData().findClanRegion(clan.getId()).join();
+        plugin.getData().findClanRegion(clan.getId()).whenComplete((optRegion, ex) -> plugin.getData().runSync(() -> {
+            if (!player.isOnline()) return;
+            if (ex != null) {
+                plugin.getLogger().warning("Ошибка загрузки региона клана: " + ex.getMessage());
+                player.sendMessage(Component.text("Не удалось загрузить регион клана, попробуйте ещё раз", NamedTextColor.RED));
+                return;
+            }
+            addMarkerItem(player, mat, displayName, optRegion);
+        }));
+    }
 
+    private void addMarkerItem(Player player, Material mat, String displayName, Optional<ClanRegionEntity> optRegion) {
         int markersInInv = Arrays.stream(player.getInventory().getContents())
             .filter(this::isClanMarker)
             .mapToInt(ItemStack::getAmount)
@@ -162,17 +433,9 @@ public class ClanRegionService {
             }
         }
 
-        Material mat;
-        try {
-            mat = Material.valueOf(markerType);
-        } catch (IllegalArgumentException ex) {
-            player.sendMessage(Component.text("Неверный материал", NamedTextColor.RED));
-            return;
-        }
         ItemStack item = new ItemStack(mat);
         ItemMeta meta = item.getItemMeta();
-        String name = section.getString("display-name", markerType);
-        meta.displayName(Component.text(name, NamedTextColor.GOLD));
+        meta.displayName(Component.text(displayName, NamedTextColor.GOLD));
         meta.getPersistentDataContainer().set(markerKey, PersistentDataType.BYTE, (byte)1);
         item.setItemMeta(meta);
         player.getInventory().addItem(item);
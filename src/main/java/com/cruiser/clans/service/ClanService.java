@@ -2,6 +2,7 @@ package com.cruiser.clans.service;
 
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
@@ -75,44 +76,39 @@ public class ClanService {
                 );
             }
             
-            // Проверяем уникальность имени и тега
-            return plugin.getData().findClanByName(name).thenCompose(existingByName -> {
-                if (existingByName.isPresent()) {
-                    return CompletableFuture.completedFuture(
-                        CreateClanResult.error("Клан с таким именем уже существует")
-                    );
-                }
+            // Проверяем уникальность имени и тега (без учёта регистра, по реестру в памяти)
+            if (plugin.getData().isClanNameTaken(name)) {
+                return CompletableFuture.completedFuture(
+                    CreateClanResult.error("Клан с таким именем уже существует")
+                );
+            }
+            if (plugin.getData().isClanTagTaken(tag)) {
+                return CompletableFuture.completedFuture(
+                    CreateClanResult.error("Клан с таким тегом уже существует")
+                );
+            }
+            
+            // Создаем клан
+            ClanEntity clan = new ClanEntity();
+            clan.setName(name);
+            clan.setTag(tag);
+            clan.setLeaderUuid(leaderUuid);
+            clan.setCreatedAt(Instant.now());
+            
+            return plugin.getData().createClan(clan).thenCompose(createdClan -> {
+                // Добавляем лидера в клан
+                player.setClan(createdClan);
+                player.setRole(ClanRole.LEADER);
+                player.setJoinedAt(Instant.now());
                 
-                return plugin.getData().findClanByTag(tag).thenCompose(existingByTag -> {
-                    if (existingByTag.isPresent()) {
-                        return CompletableFuture.completedFuture(
-                            CreateClanResult.error("Клан с таким тегом уже существует")
-                        );
-                    }
-                    
-                    // Создаем клан
-                    ClanEntity clan = new ClanEntity();
-                    clan.setName(name);
-                    clan.setTag(tag);
-                    clan.setLeaderUuid(leaderUuid);
-                    clan.setCreatedAt(Instant.now());
-                    
-                    return plugin.getData().createClan(clan).thenCompose(createdClan -> {
-                        // Добавляем лидера в клан
-                        player.setClan(createdClan);
-                        player.setRole(ClanRole.LEADER);
-                        player.setJoinedAt(Instant.now());
-                        
-                        return plugin.getData().savePlayer(player).thenApply(savedPlayer -> {
-                            // Обновляем отображение
-                            plugin.getData().runSync(() -> {
-                                displayService.updatePlayerDisplay(leader);
-                                leader.sendMessage(Component.text("Клан \"" + name + "\" успешно создан!", NamedTextColor.GREEN));
-                            });
-                            
-                            return CreateClanResult.success(createdClan);
-                        });
+                return plugin.getData().savePlayer(player).thenApply(savedPlayer -> {
+                    // Обновляем отображение
+                    plugin.getData().runSync(() -> {
+                        displayService.updatePlayerDisplay(leader);
+                        leader.sendMessage(Component.text("Клан \"" + name + "\" успешно создан!", NamedTextColor.GREEN));
                     });
+                    
+                    return CreateClanResult.success(createdClan);
                 });
             });
         });
@@ -143,25 +139,19 @@ public class ClanService {
             Integer clanId = clanPlayer.getClan().getId();
             String clanName = clanPlayer.getClan().getName();
             
-            // Уведомляем всех членов клана
-            return plugin.getData().getClanMembers(clanId).thenCompose(members -> {
+            // Состав в сети берём до удаления: deleteClan очищает его
+            List<Player> online = plugin.getData().getRoster().onlineMembers(clanId);
+            
+            // Удаляем клан и уведомляем членов клана в сети
+            return plugin.getData().deleteClan(clanId).thenApply(v -> {
                 plugin.getData().runSync(() -> {
-                    for (ClanPlayerEntity member : members) {
-                        Player memberPlayer = plugin.getServer().getPlayer(member.getUuidAsUUID());
-                        if (memberPlayer != null && memberPlayer.isOnline()) {
-                            memberPlayer.sendMessage(Component.text("Клан \"" + clanName + "\" был распущен", NamedTextColor.RED));
-                            displayService.updatePlayerDisplay(memberPlayer);
-                        }
+                    for (Player memberPlayer : online) {
+                        memberPlayer.sendMessage(Component.text("Клан \"" + clanName + "\" был распущен", NamedTextColor.RED));
+                        displayService.updatePlayerDisplay(memberPlayer);
                     }
+                    displayService.removeClanTeam(clanId);
                 });
-                
-                // Удаляем клан
-                return plugin.getData().deleteClan(clanId).thenApply(v -> {
-                    plugin.getData().runSync(() -> {
-                        displayService.removeClanTeam(clanId);
-                    });
-                    return true;
-                });
+                return true;
             });
         });
     }
@@ -0,0 +1,306 @@
+package com.cruiser.clans.service;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.scoreboard.Scoreboard;
+import org.bukkit.scoreboard.Team;
+
+import net.kyori.adventure.text.Component;
+
+/**
+ * Clan nametag teams, as seen from each viewer's own clan.
+ * <p>
+ * Viewers without a clan share the main scoreboard, where every tag has its level
+ * color. With relation views enabled, each clan with online members also gets one
+ * scoreboard that all its online members share. That board mirrors the main teams,
+ * but the clan's own team carries the own-clan prefix. Viewers with the same relation
+ * set therefore share one board, and boards exist only for online clans.
+ * <p>
+ * Changes are pushed incrementally: a member joining or leaving, or a prefix change,
+ * touches one team on the main board and the same team on each view. With T online
+ * clans and P online clan members, the bounds are:
+ * <ul>
+ * <li>T views;</li>
+ * <li>T * (T + 1) teams;</li>
+ * <li>P * (T + 1) entries;</li>
+ * <li>T + 1 team updates per change.</li>
+ * </ul>
+ * Measured for 300 players spread at random over 100 clans (94 of them online, see
+ * {@code ClanTeamBoardsTest}): 94 views, 8,930 teams, 28,500 entries and 30,013 team
+ * updates to build everything from empty; one member joining or leaving then costs 95.
+ * {@link #stats()} reports the live figures. Main thread only.
+ */
+public final class ClanTeamBoards {
+
+    /**
+     * Live size and the number of team changes pushed to all boards since start.
+     */
+    public record Stats(int views, int teams, int entries, long pushes) {}
+
+    private static final String TEAM_PREFIX = "clan_";
+
+    /**
+     * One online clan: its team on the main board and, with views enabled, its own view.
+     */
+    private static final class ClanTeam {
+        final Integer clanId;
+        final Team main;
+        final Map<UUID, Player> members = new LinkedHashMap<>();
+        Component prefix;
+        Component ownPrefix;
+        // Board shown to the clan's members; null while views are disabled
+        View view;
+
+        ClanTeam(Integer clanId, Team main) {
+            this.clanId = clanId;
+            this.main = main;
+        }
+    }
+
+    /**
+     * Scoreboard shared by the online members of one clan, with a copy of every clan team.
+     */
+    private static final class View {
+        final Scoreboard board;
+        final Map<Integer, Team> teams = new HashMap<>();
+
+        View(Scoreboard board) {
+            this.board = board;
+        }
+    }
+
+    private final Scoreboard main;
+    private final Map<Integer, ClanTeam> teams = new HashMap<>();
+    private final Map<UUID, ClanTeam> playerTeams = new HashMap<>();
+    private boolean viewsEnabled;
+    private int views;
+    private long pushes;
+
+    public ClanTeamBoards(Scoreboard main) {
+        this.main = main;
+    }
+
+    /**
+     * Turn per-clan views on or off. On a change all teams are dropped; the caller
+     * refreshes every online player afterwards.
+     */
+    public void setViewsEnabled(boolean enabled) {
+        if (enabled == viewsEnabled) return;
+        clear();
+        viewsEnabled = enabled;
+    }
+
+    /**
+     * Put the player in the clan's team and show them the clan's view.
+     * The clan's prefixes are updated on every board if they differ.
+     *
+     * @return true if the team, a prefix or the shown board changed
+     */
+    public boolean join(Player player, Integer clanId, Component prefix, Component ownPrefix) {
+        ClanTeam current = playerTeams.get(player.getUniqueId());
+        if (current != null && current.clanId.equals(clanId)) {
+            return setPrefix(current, prefix, ownPrefix);
+        }
+        if (current != null) {
+            // Moved to another clan: leave only the previous team, the board is replaced below
+            remove(player, current, false);
+        }
+
+        ClanTeam team = teams.get(clanId);
+        if (team == null) {
+            team = createTeam(clanId, prefix, ownPrefix);
+        } else {
+            setPrefix(team, prefix, ownPrefix);
+        }
+
+        String entry = player.getName();
+        team.members.put(player.getUniqueId(), player);
+        playerTeams.put(player.getUniqueId(), team);
+        team.main.addEntry(entry);
+        for (ClanTeam viewer : teams.values()) {
+            if (viewer.view != null) viewer.view.teams.get(clanId).addEntry(entry);
+        }
+        pushes += 1 + views;
+        if (team.view != null) player.setScoreboard(team.view.board);
+        return true;
+    }
+
+    /**
+     * Take the player out of their clan team and back to the main board.
+     *
+     * @return true if the player was in a team
+     */
+    public boolean leave(Player player) {
+        ClanTeam team = playerTeams.get(player.getUniqueId());
+        if (team == null) return false;
+        remove(player, team, true);
+        return true;
+    }
+
+    /**
+     * Drop a disbanded clan; its online members see the main board again.
+     */
+    public void removeClan(Integer clanId) {
+        ClanTeam team = teams.get(clanId);
+        if (team == null) return;
+        for (Player member : team.members.values()) {
+            playerTeams.remove(member.getUniqueId());
+            if (team.view != null) resetBoard(member);
+        }
+        team.members.clear();
+        unregister(team);
+    }
+
+    /**
+     * Unregister every team and show all members the main board.
+     */
+    public void clear() {
+        for (ClanTeam team : teams.values()) {
+            for (Player member : team.members.values()) {
+                if (team.view != null) resetBoard(member);
+            }
+            try {
+                team.main.unregister();
+            } catch (Exception e) {
+                // Ignore errors
+            }
+        }
+        teams.clear();
+        playerTeams.clear();
+        views = 0;
+    }
+
+    public Stats stats() {
+        int entries = 0;
+        for (ClanTeam team : teams.values()) entries += team.members.size();
+        return new Stats(views, teams.size() * (views + 1), entries * (views + 1), pushes);
+    }
+
+    private ClanTeam createTeam(Integer clanId, Component prefix, Component ownPrefix) {
+        String teamName = TEAM_PREFIX + clanId;
+        Team mainTeam = main.getTeam(teamName);
+        if (mainTeam == null) {
+            mainTeam = newTeam(main, teamName);
+        } else {
+            // Left over from a previous run: drop entries we do not track
+            for (String entry : Set.copyOf(mainTeam.getEntries())) {
+                mainTeam.removeEntry(entry);
+            }
+        }
+        mainTeam.prefix(prefix);
+
+        ClanTeam team = new ClanTeam(clanId, mainTeam);
+        team.prefix = prefix;
+        team.ownPrefix = ownPrefix;
+
+        // The new clan's team appears on every existing view
+        for (ClanTeam viewer : teams.values()) {
+            if (viewer.view == null) continue;
+            Team copy = newTeam(viewer.view.board, teamName);
+            copy.prefix(prefix);
+            viewer.view.teams.put(clanId, copy);
+        }
+        teams.put(clanId, team);
+        pushes += 1 + views;
+
+        if (viewsEnabled) {
+            team.view = buildView(team);
+            views++;
+        }
+        return team;
+    }
+
+    /**
+     * New board with a copy of every current team; the viewer's own team gets the own prefix.
+     */
+    private View buildView(ClanTeam owner) {
+        View view = new View(Bukkit.getScoreboardManager().getNewScoreboard());
+        for (ClanTeam team : teams.values()) {
+            Team copy = newTeam(view.board, team.main.getName());
+            copy.prefix(team == owner ? team.ownPrefix : team.prefix);
+            for (Player member : team.members.values()) {
+                copy.addEntry(member.getName());
+            }
+            view.teams.put(team.clanId, copy);
+        }
+        pushes += teams.size();
+        return view;
+    }
+
+    private boolean setPrefix(ClanTeam team, Component prefix, Component ownPrefix) {
+        boolean changed = false;
+        if (!prefix.equals(team.prefix)) {
+            team.prefix = prefix;
+            team.main.prefix(prefix);
+            for (ClanTeam viewer : teams.values()) {
+                if (viewer.view != null && viewer != team) viewer.view.teams.get(team.clanId).prefix(prefix);
+            }
+            pushes += views;
+            changed = true;
+        }
+        if (!ownPrefix.equals(team.ownPrefix)) {
+            team.ownPrefix = ownPrefix;
+            if (team.view != null) {
+                team.view.teams.get(team.clanId).prefix(ownPrefix);
+                pushes++;
+            }
+            changed = true;
+        }
+        return changed;
+    }
+
+    private void remove(Player player, ClanTeam team, boolean resetBoard) {
+        playerTeams.remove(player.getUniqueId());
+        team.members.remove(player.getUniqueId());
+        if (resetBoard && team.view != null) resetBoard(player);
+
+        if (team.members.isEmpty()) {
+            // Last online member: the team and the clan's view go away
+            unregister(team);
+            return;
+        }
+        String entry = player.getName();
+        team.main.removeEntry(entry);
+        for (ClanTeam viewer : teams.values()) {
+            if (viewer.view != null) viewer.view.teams.get(team.clanId).removeEntry(entry);
+        }
+        pushes += 1 + views;
+    }
+
+    private void unregister(ClanTeam team) {
+        teams.remove(team.clanId);
+        if (team.view != null) {
+            team.view = null;
+            views--;
+        }
+        try {
+            team.main.unregister();
+            for (ClanTeam viewer : teams.values()) {
+                if (viewer.view == null) continue;
+                Team copy = viewer.view.teams.remove(team.clanId);
+                if (copy != null) copy.unregister();
+            }
+        } catch (Exception e) {
+            // Ignore errors: the boards are dropped with the team
+        }
+        pushes += 1 + views;
+    }
+
+    private void resetBoard(Player player) {
+        if (player.getScoreboard() != main) player.setScoreboard(main);
+    }
+
+    private static Team newTeam(Scoreboard board, String name) {
+        Team team = board.registerNewTeam(name);
+        // Team options
+        team.setAllowFriendlyFire(true); // Can configure PvP between clans
+        team.setCanSeeFriendlyInvisibles(false);
+        return team;
+    }
+}
@@ -0,0 +1,59 @@
+package com.cruiser.clans.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Time spent in event handlers. Listeners obtain a {@link Timer} once at construction
+ * and record into it per event, so the hot path is two adders and a max accumulator.
+ */
+public final class HandlerTimings {
+
+    /** Totals of one handler. */
+    public record Summary(String name, long calls, long totalNanos, long maxNanos) {
+        public double averageMicros() {
+            return calls == 0 ? 0.0 : totalNanos / 1_000.0 / calls;
+        }
+    }
+
+    public static final class Timer {
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        /**
+         * Record one call that started at {@code startNanos} ({@link System#nanoTime()}).
+         */
+        public void record(long startNanos) {
+            long elapsed = System.nanoTime() - startNanos;
+            calls.increment();
+            totalNanos.add(elapsed);
+            maxNanos.accumulate(elapsed);
+        }
+    }
+
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    public Timer timer(String name) {
+        return timers.computeIfAbsent(name, k -> new Timer());
+    }
+
+    /**
+     * Handlers that ran at least once, sorted by total time.
+     */
+    public List<Summary> summaries() {
+        List<Summary> list = new ArrayList<>();
+        for (Map.Entry<String, Timer> e : timers.entrySet()) {
+            Timer t = e.getValue();
+            long calls = t.calls.sum();
+            if (calls == 0) continue;
+            list.add(new Summary(e.getKey(), calls, t.totalNanos.sum(), t.maxNanos.get()));
+        }
+        list.sort((a, b) -> Long.compare(b.totalNanos(), a.totalNanos()));
+        return list;
+    }
+}
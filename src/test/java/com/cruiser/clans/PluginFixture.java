@@ -0,0 +1,123 @@
+package com.cruiser.clans;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import org.mockbukkit.mockbukkit.MockBukkit;
+import org.mockbukkit.mockbukkit.ServerMock;
+
+import com.cruiser.clans.orm.DataManager;
+import com.cruiser.clans.orm.entity.ClanEntity;
+import com.cruiser.clans.orm.entity.ClanPlayerEntity;
+import com.cruiser.clans.orm.entity.ClanRegionEntity;
+import com.cruiser.clans.orm.entity.ClanRole;
+
+/**
+ * The plugin enabled on a mocked server with an empty SQLite database, plus helpers
+ * that save clans, players and regions through {@link DataManager}.
+ * <p>
+ * Create one per test and {@link #stop()} it afterwards: that unloads the server and
+ * deletes the plugin's data folder, so the next test starts from an empty database.
+ */
+public final class PluginFixture {
+
+    private final ServerMock server;
+    private final ClanPlugin plugin;
+    private final DataManager data;
+    private int names;
+
+    private PluginFixture() {
+        server = MockBukkit.mock();
+        plugin = MockBukkit.load(ClanPlugin.class);
+        data = plugin.getData();
+        assertNotNull(data, "plugin failed to enable");
+    }
+
+    public static PluginFixture start() {
+        return new PluginFixture();
+    }
+
+    public void stop() {
+        Path folder = plugin.getDataFolder().toPath();
+        // Closes the database before its files go away
+        MockBukkit.unmock();
+        deleteRecursively(folder);
+    }
+
+    public ServerMock server() {
+        return server;
+    }
+
+    public ClanPlugin plugin() {
+        return plugin;
+    }
+
+    public DataManager data() {
+        return data;
+    }
+
+    /**
+     * Save a clan named {@code Clan<n>} with tag {@code T<n>}, unique within this fixture.
+     */
+    public ClanEntity createClan() {
+        int n = ++names;
+        ClanEntity clan = new ClanEntity();
+        clan.setName("Clan" + n);
+        clan.setTag("T" + n);
+        clan.setLeaderUuid(UUID.randomUUID());
+        clan.setCreatedAt(Instant.now());
+        return data.createClan(clan).join();
+    }
+
+    /**
+     * Save a player and flush it, so the row is in the database. A leader gets the
+     * clan's leader UUID; {@code clan} may be null for a player without a clan.
+     */
+    public ClanPlayerEntity savePlayer(ClanEntity clan, ClanRole role) {
+        ClanPlayerEntity player = new ClanPlayerEntity();
+        UUID uuid = clan != null && role == ClanRole.LEADER ? UUID.fromString(clan.getLeaderUuid()) : UUID.randomUUID();
+        player.setUuid(uuid);
+        player.setName("Player" + ++names);
+        player.setClan(clan);
+        player.setRole(role);
+        player.setJoinedAt(clan == null ? null : Instant.now());
+        player.setLastSeen(Instant.now());
+        data.savePlayer(player).join();
+        data.flushPendingPlayers().join();
+        return player;
+    }
+
+    /**
+     * Save a full-height region in world {@code world} covering the given block columns.
+     */
+    public ClanRegionEntity createRegion(ClanEntity clan, int minX, int minZ, int maxX, int maxZ) {
+        ClanRegionEntity region = new ClanRegionEntity();
+        region.setClan(clan);
+        region.setWorldName("world");
+        region.setMarkerType("BEACON");
+        region.setMarker1X(minX);
+        region.setMarker1Y(0);
+        region.setMarker1Z(minZ);
+        region.setMarker2X(maxX);
+        region.setMarker2Y(255);
+        region.setMarker2Z(maxZ);
+        return data.createRegion(region).join();
+    }
+
+    private static void deleteRecursively(Path folder) {
+        if (!Files.exists(folder)) return;
+        try (Stream<Path> paths = Files.walk(folder)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) Files.delete(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
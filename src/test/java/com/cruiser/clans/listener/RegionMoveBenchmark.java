@@ -0,0 +1,123 @@
+package com.cruiser.clans.listener;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.event.player.PlayerMoveEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+
+import com.cruiser.clans.PluginFixture;
+import com.cruiser.clans.util.HandlerTimings;
+
+/**
+ * Cost of {@link RegionMoveListener#onPlayerMove} for 200 players walking through a
+ * grid of clan regions. Every player changes block on every tick, which is more than
+ * sprinting players do, so the per-tick figure is an upper bound for that player count.
+ * Run with {@code mvn test -Dtest=RegionMoveBenchmark}.
+ */
+class RegionMoveBenchmark {
+
+    private static final int PLAYERS = 200;
+    // 5 x 5 regions of 48 x 48 blocks, 16 blocks apart
+    private static final int GRID = 5;
+    private static final int REGION_SIZE = 48;
+    private static final int REGION_STEP = 64;
+    private static final int AREA_MIN = -32;
+    private static final int AREA_MAX = GRID * REGION_STEP + 32;
+    private static final int WARMUP_TICKS = 1_000;
+    private static final int TICKS = 1_000;
+
+    private PluginFixture fixture;
+    private World world;
+
+    @BeforeEach
+    void setUp() {
+        fixture = PluginFixture.start();
+        world = fixture.server().addSimpleWorld("world");
+        for (int gx = 0; gx < GRID; gx++) {
+            for (int gz = 0; gz < GRID; gz++) {
+                int x = gx * REGION_STEP;
+                int z = gz * REGION_STEP;
+                fixture.createRegion(fixture.createClan(), x, z, x + REGION_SIZE - 1, z + REGION_SIZE - 1);
+            }
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        fixture.stop();
+    }
+
+    @Test
+    void twoHundredMovingPlayers(TestReporter reporter) {
+        RegionMoveListener listener = new RegionMoveListener(fixture.plugin());
+        Random random = new Random(1);
+        Player[] players = new Player[PLAYERS];
+        int[][] positions = new int[PLAYERS][2];
+        int[][] steps = new int[PLAYERS][2];
+        for (int i = 0; i < PLAYERS; i++) {
+            players[i] = fixture.server().addPlayer();
+            positions[i][0] = AREA_MIN + random.nextInt(AREA_MAX - AREA_MIN);
+            positions[i][1] = AREA_MIN + random.nextInt(AREA_MAX - AREA_MIN);
+            // Half walk along x, half along z, in either direction
+            int axis = i % 2;
+            steps[i][axis] = random.nextBoolean() ? 1 : -1;
+        }
+
+        walk(listener, players, positions, steps, new long[WARMUP_TICKS]);
+        HandlerTimings.Summary before = moveSummary();
+        long[] tickNanos = new long[TICKS];
+        walk(listener, players, positions, steps, tickNanos);
+        HandlerTimings.Summary after = moveSummary();
+        Arrays.sort(tickNanos);
+
+        long calls = after.calls() - before.calls();
+        long nanos = after.totalNanos() - before.totalNanos();
+        assertEquals((long) PLAYERS * TICKS, calls);
+        // Handler time from the listener's own "PlayerMove" timer, wall time per tick from walk()
+        reporter.publishEntry("handler", String.format(Locale.ROOT,
+            "%d players, %d regions, %d ticks: %.2f us per move, %.1f us per tick",
+            PLAYERS, GRID * GRID, TICKS, nanos / 1_000.0 / calls, nanos / 1_000.0 / TICKS));
+        reporter.publishEntry("tick", String.format(Locale.ROOT, "median %.1f us, p99 %.1f us, worst %.1f us",
+            tickNanos[TICKS / 2] / 1_000.0, tickNanos[TICKS * 99 / 100] / 1_000.0, tickNanos[TICKS - 1] / 1_000.0));
+    }
+
+    /**
+     * Move every player one block per tick, turning back at the edge of the area.
+     * The wall time of each tick, event construction included, goes to {@code tickNanos}.
+     */
+    private void walk(RegionMoveListener listener, Player[] players, int[][] positions, int[][] steps, long[] tickNanos) {
+        for (int tick = 0; tick < tickNanos.length; tick++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < players.length; i++) {
+                int[] pos = positions[i];
+                int[] step = steps[i];
+                Location from = new Location(world, pos[0] + 0.5, 64, pos[1] + 0.5);
+                for (int axis = 0; axis < 2; axis++) {
+                    int next = pos[axis] + step[axis];
+                    if (next < AREA_MIN || next >= AREA_MAX) step[axis] = -step[axis];
+                    pos[axis] += step[axis];
+                }
+                Location to = new Location(world, pos[0] + 0.5, 64, pos[1] + 0.5);
+                listener.onPlayerMove(new PlayerMoveEvent(players[i], from, to));
+            }
+            tickNanos[tick] = System.nanoTime() - start;
+        }
+    }
+
+    private HandlerTimings.Summary moveSummary() {
+        return fixture.plugin().getHandlerTimings().summaries().stream()
+            .filter(s -> s.name().equals("PlayerMove"))
+            .findFirst()
+            .orElse(new HandlerTimings.Summary("PlayerMove", 0, 0, 0));
+    }
+}
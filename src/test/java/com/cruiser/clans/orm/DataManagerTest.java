@@ -0,0 +1,238 @@
+package com.cruiser.clans.orm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Optional;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.cruiser.clans.PluginFixture;
+import com.cruiser.clans.cache.RegionBounds;
+import com.cruiser.clans.orm.entity.ClanEntity;
+import com.cruiser.clans.orm.entity.ClanPlayerEntity;
+import com.cruiser.clans.orm.entity.ClanRegionEntity;
+import com.cruiser.clans.orm.entity.ClanRole;
+import com.cruiser.clans.orm.entity.RegionFlag;
+
+/**
+ * Repository paths of {@link DataManager} against the plugin's SQLite database.
+ * The plugin is enabled on a mocked server, so migrations, the registry load and the
+ * writer/reader executors run as on a real server. Every test starts from an empty
+ * database, see {@link PluginFixture}.
+ */
+class DataManagerTest {
+
+    private PluginFixture fixture;
+    private DataManager data;
+
+    @BeforeEach
+    void setUp() {
+        fixture = PluginFixture.start();
+        data = fixture.data();
+        assertEquals(0, count("SELECT COUNT(*) FROM clans"), "database left over from another test");
+    }
+
+    @AfterEach
+    void tearDown() {
+        fixture.stop();
+    }
+
+    @Test
+    void clanIsFoundByIdNameAndTag() {
+        ClanEntity clan = fixture.createClan();
+
+        assertNotNull(clan.getId());
+        assertEquals(clan.getName(), data.findClanById(clan.getId()).join().orElseThrow().getName());
+        assertEquals(clan.getId(), data.findClanByName(clan.getName()).join().orElseThrow().getId());
+        assertEquals(clan.getId(), data.findClanByTag(clan.getTag()).join().orElseThrow().getId());
+        assertTrue(data.isClanNameTaken(clan.getName()));
+    }
+
+    @Test
+    void registryReloadReadsSavedRows() {
+        ClanEntity clan = fixture.createClan();
+        ClanPlayerEntity leader = fixture.savePlayer(clan, ClanRole.LEADER);
+        ClanRegionEntity region = fixture.createRegion(clan, 1000, 1000, 1010, 1010);
+
+        data.loadRegistry().join();
+
+        ClanEntity loaded = data.findClanById(clan.getId()).join().orElseThrow();
+        assertEquals(clan.getTag(), loaded.getTag());
+        assertEquals(leader.getUuid(), loaded.getLeaderUuid());
+        RegionBounds bounds = data.getRegistry().regionIndex().regionAt("world", 1005, 64, 1005);
+        assertNotNull(bounds);
+        assertEquals(region.getId(), bounds.regionId());
+        assertEquals(RegionFlag.VISITOR_DEFAULT, bounds.visitorFlags());
+    }
+
+    @Test
+    void refreshPicksUpRowsWrittenByOtherServers() {
+        ClanEntity local = fixture.createClan();
+        // Another server sharing the database creates a clan with a region
+        execute("INSERT INTO clans(name, tag, leader_uuid, created_at) VALUES('Remote', 'RMT', 'leader', 0)");
+        int remoteId = (int) count("SELECT id FROM clans WHERE tag = 'RMT'");
+        execute("INSERT INTO clan_regions(clan_id, world_name, marker_type, marker1_x, marker1_y, marker1_z, "
+            + "marker2_x, marker2_y, marker2_z) VALUES(" + remoteId + ", 'world', 'BEACON', 3000, 0, 3000, 3010, 255, 3010)");
+
+        data.refreshRegistry().join();
+
+        assertTrue(data.isClanNameTaken("remote"));
+        assertEquals(remoteId, data.findClanByTag("RMT").join().orElseThrow().getId());
+        assertEquals(remoteId, data.getRegistry().regionIndex().regionAt("world", 3005, 64, 3005).clanId());
+
+        execute("DELETE FROM clan_regions WHERE clan_id = " + remoteId);
+        execute("DELETE FROM clans WHERE id = " + remoteId);
+        data.refreshRegistry().join();
+
+        assertFalse(data.isClanNameTaken("remote"));
+        assertNull(data.getRegistry().regionIndex().regionAt("world", 3005, 64, 3005));
+        assertTrue(data.getRegistry().findClanById(local.getId()).isPresent());
+    }
+
+    @Test
+    void playerRowKeepsClanAndRole() {
+        ClanEntity clan = fixture.createClan();
+        ClanPlayerEntity saved = fixture.savePlayer(clan, ClanRole.OFFICER);
+
+        ClanPlayerEntity found = data.findPlayerByUuid(saved.getUuidAsUUID()).join().orElseThrow();
+        assertEquals(saved.getName(), found.getName());
+        assertEquals(clan.getId(), found.getClan().getId());
+        assertEquals(ClanRole.OFFICER, found.getRole());
+        assertEquals(1, data.getClanMembers(clan.getId()).join().size());
+        assertTrue(data.findPlayerByName(saved.getName()).join().isPresent());
+    }
+
+    @Test
+    void aggregatedCountersAreFlushedToTotals() {
+        ClanEntity clan = fixture.createClan();
+        ClanPlayerEntity killer = fixture.savePlayer(clan, ClanRole.MEMBER);
+        ClanPlayerEntity victim = fixture.savePlayer(null, ClanRole.MEMBER);
+
+        for (int i = 0; i < 3; i++) {
+            data.recordPlayerKill(killer.getUuidAsUUID(), 10).join();
+            data.recordPlayerDeath(victim.getUuidAsUUID()).join();
+        }
+        data.flushStats().join();
+
+        ClanPlayerEntity k = data.findPlayerByUuid(killer.getUuidAsUUID()).join().orElseThrow();
+        assertEquals(3, k.getKills());
+        assertEquals(30, k.getClanContribution());
+        assertEquals(3, data.findPlayerByUuid(victim.getUuidAsUUID()).join().orElseThrow().getDeaths());
+        ClanEntity stored = fromDatabase(clan.getId());
+        assertEquals(3, stored.getTotalKills());
+        assertEquals(30, stored.getClanExp());
+    }
+
+    @Test
+    void levelUpReachesRegistryBeforeFlush() {
+        ClanEntity clan = fixture.createClan();
+        ClanPlayerEntity killer = fixture.savePlayer(clan, ClanRole.MEMBER);
+        int required = StatsAggregator.requiredExpForLevel(2);
+
+        Optional<ClanEntity> levelled = data.recordPlayerKill(killer.getUuidAsUUID(), required).join();
+
+        assertEquals(2, levelled.orElseThrow().getClanLevel());
+        assertEquals(2, data.getRegistry().findClanById(clan.getId()).orElseThrow().getClanLevel());
+    }
+
+    @Test
+    void flushAddsToExperienceFromOtherServers() {
+        ClanEntity clan = fixture.createClan();
+        ClanPlayerEntity killer = fixture.savePlayer(clan, ClanRole.MEMBER);
+        int required = StatsAggregator.requiredExpForLevel(2);
+        data.recordPlayerKill(killer.getUuidAsUUID(), 10).join();
+
+        // Another server sharing the database flushed its experience in the meantime
+        execute("UPDATE clans SET clan_exp = clan_exp + " + (required - 5) + " WHERE id = " + clan.getId());
+        data.flushStats().join();
+
+        ClanEntity stored = fromDatabase(clan.getId());
+        assertEquals(2, stored.getClanLevel());
+        assertEquals(5, stored.getClanExp());
+        ClanEntity cached = data.getRegistry().findClanById(clan.getId()).orElseThrow();
+        assertEquals(2, cached.getClanLevel());
+        assertEquals(5, cached.getClanExp());
+    }
+
+    @Test
+    void setClanLevelKeepsPendingKills() {
+        ClanEntity clan = fixture.createClan();
+        ClanPlayerEntity killer = fixture.savePlayer(clan, ClanRole.MEMBER);
+        data.recordPlayerKill(killer.getUuidAsUUID(), 10).join();
+        data.recordPlayerKill(killer.getUuidAsUUID(), 10).join();
+
+        ClanEntity updated = data.setClanLevel(clan.getId(), 5).join();
+        data.flushStats().join();
+
+        assertEquals(5, updated.getClanLevel());
+        assertEquals(0, updated.getClanExp());
+        ClanEntity stored = fromDatabase(clan.getId());
+        assertEquals(2, stored.getTotalKills());
+        assertEquals(5, stored.getClanLevel());
+        assertEquals(0, stored.getClanExp());
+    }
+
+    @Test
+    void resetStatsDropsPendingCounters() {
+        ClanEntity clan = fixture.createClan();
+        ClanPlayerEntity killer = fixture.savePlayer(clan, ClanRole.MEMBER);
+        data.recordPlayerKill(killer.getUuidAsUUID(), 10).join();
+
+        data.resetClanStats(clan.getId()).join();
+        data.resetPlayerStats(killer.getUuidAsUUID()).join();
+        data.flushStats().join();
+
+        ClanEntity stored = fromDatabase(clan.getId());
+        assertEquals(0, stored.getTotalKills());
+        assertEquals(0, stored.getClanExp());
+        assertEquals(0, data.findPlayerByUuid(killer.getUuidAsUUID()).join().orElseThrow().getKills());
+    }
+
+    @Test
+    void deleteClanReleasesMembersAndRegion() {
+        ClanEntity clan = fixture.createClan();
+        ClanPlayerEntity member = fixture.savePlayer(clan, ClanRole.MEMBER);
+        fixture.createRegion(clan, 2000, 2000, 2010, 2010);
+
+        data.deleteClan(clan.getId()).join();
+
+        assertTrue(data.findClanById(clan.getId()).join().isEmpty());
+        assertTrue(data.findClanRegion(clan.getId()).join().isEmpty());
+        assertNull(data.getRegistry().regionIndex().regionAt("world", 2005, 64, 2005));
+        assertFalse(data.findPlayerByUuid(member.getUuidAsUUID()).join().orElseThrow().isInClan());
+    }
+
+    private void execute(String sql) {
+        fixture.plugin().getDatabase().withConnection("test", c -> {
+            try (Statement st = c.raw().createStatement()) {
+                return st.executeUpdate(sql);
+            } catch (SQLException e) { throw new RuntimeException(e); }
+        }).join();
+    }
+
+    private long count(String sql) {
+        return fixture.plugin().getDatabase().withConnection("test", c -> {
+            try (Statement st = c.raw().createStatement(); ResultSet rs = st.executeQuery(sql)) {
+                return rs.next() ? rs.getLong(1) : 0L;
+            } catch (SQLException e) { throw new RuntimeException(e); }
+        }).join();
+    }
+
+    /**
+     * The clan row as stored, bypassing the registry.
+     */
+    private ClanEntity fromDatabase(int clanId) {
+        return data.getAllClansOrderedByLevelAndKills().join().stream()
+            .filter(c -> c.getId() == clanId)
+            .findFirst().orElseThrow();
+    }
+}
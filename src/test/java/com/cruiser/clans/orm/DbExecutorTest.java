@@ -0,0 +1,124 @@
+package com.cruiser.clans.orm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Full-queue behavior of {@link DbExecutor}: reads are rejected, writes wait for room.
+ */
+class DbExecutorTest {
+
+    private static final Logger LOGGER = Logger.getLogger(DbExecutorTest.class.getName());
+    private static final int CAPACITY = 4;
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private DbExecutor executor;
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    void readerRejectsWhenFull() throws Exception {
+        executor = blocked(false);
+        fill();
+
+        CompletableFuture<Integer> overflow = executor.submit(TaskPriority.NORMAL, () -> 1);
+        ExecutionException e = assertThrows(ExecutionException.class, () -> overflow.get(1, TimeUnit.SECONDS));
+        assertInstanceOf(RejectedExecutionException.class, e.getCause());
+        assertEquals(1, executor.stats().rejected());
+    }
+
+    @Test
+    void writerWaitsForRoomInsteadOfRejecting() throws Exception {
+        executor = blocked(true);
+        fill();
+
+        // Room appears while the submitter waits
+        CompletableFuture.runAsync(() -> {
+            sleep(100);
+            release.countDown();
+        });
+        CompletableFuture<Integer> write = executor.submit(TaskPriority.NORMAL, () -> 1);
+        assertEquals(1, write.get(5, TimeUnit.SECONDS));
+        assertEquals(0, executor.stats().rejected());
+        assertEquals(1, executor.stats().waited());
+    }
+
+    @Test
+    void writerStillShedsLowPriority() {
+        executor = blocked(true);
+        fill();
+
+        CompletableFuture<Integer> low = executor.submit(TaskPriority.LOW, () -> 1);
+        assertTrue(low.isCompletedExceptionally());
+        assertEquals(1, executor.stats().shed());
+    }
+
+    @Test
+    void shutdownNowFailsQueuedTasks() {
+        executor = blocked(true);
+        CompletableFuture<Integer> queued = executor.submit(TaskPriority.NORMAL, () -> 1);
+        assertFalse(queued.isDone());
+
+        executor.shutdownNow();
+        ExecutionException e = assertThrows(ExecutionException.class, () -> queued.get(1, TimeUnit.SECONDS));
+        assertInstanceOf(RejectedExecutionException.class, e.getCause());
+    }
+
+    /**
+     * Single-thread executor whose thread is held by a task until {@link #release} opens.
+     */
+    private DbExecutor blocked(boolean writes) {
+        DbExecutor ex = new DbExecutor(writes ? "writer" : "reader", 1, CAPACITY, writes, LOGGER, r -> {
+            Thread t = new Thread(r, "test-db");
+            t.setDaemon(true);
+            return t;
+        });
+        CountDownLatch started = new CountDownLatch(1);
+        ex.submit(TaskPriority.HIGH, () -> {
+            started.countDown();
+            try {
+                return release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                return false;
+            }
+        });
+        try {
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new AssertionError(e);
+        }
+        return ex;
+    }
+
+    private void fill() {
+        for (int i = 0; i < CAPACITY; i++) {
+            executor.submit(TaskPriority.NORMAL, () -> 0);
+        }
+        assertEquals(CAPACITY, executor.stats().depth());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
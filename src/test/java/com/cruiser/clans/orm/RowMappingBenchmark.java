@@ -0,0 +1,172 @@
+package com.cruiser.clans.orm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+
+import com.cruiser.clans.orm.entity.ClanEntity;
+import com.cruiser.clans.orm.entity.ClanPlayerEntity;
+import com.cruiser.clans.orm.entity.ClanRole;
+
+/**
+ * Per-row cost of the player-with-clan mapping on an in-memory SQLite database.
+ * Compares the current explicit projection and positional mapper with the previous
+ * {@code SELECT p.*, c.*} query and by-name mapper, kept below as {@link #legacyPlayerWithClan}.
+ * A bare scan of the same query is the floor both are measured against.
+ * Run with {@code mvn test -Dtest=RowMappingBenchmark}.
+ */
+class RowMappingBenchmark {
+
+    private static final int CLANS = 200;
+    private static final int PLAYERS = 20_000;
+    private static final int WARMUP_ROUNDS = 10;
+    private static final int ROUNDS = 20;
+
+    private static final String LEGACY_SELECT =
+        "SELECT p.*, c.* FROM clan_players p LEFT JOIN clans c ON c.id = p.clan_id";
+
+    private static Connection conn;
+
+    private interface Mapper {
+        Object map(ResultSet rs) throws SQLException;
+    }
+
+    @BeforeAll
+    static void fill() throws SQLException {
+        conn = DriverManager.getConnection("jdbc:sqlite::memory:");
+        SchemaMigrations.migrate(conn, SqlDialect.SQLITE, Logger.getLogger(RowMappingBenchmark.class.getName()));
+        conn.setAutoCommit(false);
+        long now = Instant.now().getEpochSecond();
+        try (PreparedStatement clan = conn.prepareStatement(
+                 "INSERT INTO clans(name, tag, description, leader_uuid, created_at, updated_at) VALUES(?,?,?,?,?,?)");
+             PreparedStatement player = conn.prepareStatement(
+                 "INSERT INTO clan_players(uuid, name, clan_id, role, joined_at, last_seen, kills, deaths) VALUES(?,?,?,?,?,?,?,?)")) {
+            for (int i = 1; i <= CLANS; i++) {
+                clan.setString(1, "Clan" + i);
+                clan.setString(2, "C" + i);
+                clan.setString(3, "Clan number " + i);
+                clan.setString(4, UUID.randomUUID().toString());
+                clan.setLong(5, now);
+                clan.setLong(6, now);
+                clan.addBatch();
+            }
+            clan.executeBatch();
+            for (int i = 0; i < PLAYERS; i++) {
+                // Every other player is in a clan, so both LEFT JOIN branches are mapped
+                boolean inClan = i % 2 == 0;
+                player.setString(1, UUID.randomUUID().toString());
+                player.setString(2, "Player" + i);
+                if (inClan) player.setInt(3, 1 + i % CLANS); else player.setNull(3, java.sql.Types.INTEGER);
+                player.setString(4, ClanRole.MEMBER.name());
+                if (inClan) player.setLong(5, now); else player.setNull(5, java.sql.Types.BIGINT);
+                player.setLong(6, now);
+                player.setInt(7, i % 50);
+                player.setInt(8, i % 30);
+                player.addBatch();
+            }
+            player.executeBatch();
+        }
+        conn.commit();
+        conn.setAutoCommit(true);
+    }
+
+    @AfterAll
+    static void close() throws SQLException {
+        conn.close();
+    }
+
+    @Test
+    void playerWithClanMapping(TestReporter reporter) throws SQLException {
+        Mapper scan = rs -> null;
+        double floor = measure(reporter, "scan only", DataManager.SELECT_PLAYER_WITH_CLAN, scan);
+        double legacy = measure(reporter, "SELECT p.*, c.* by name", LEGACY_SELECT, RowMappingBenchmark::legacyPlayerWithClan);
+        double current = measure(reporter, "projection by index", DataManager.SELECT_PLAYER_WITH_CLAN, DataManager::mapPlayerWithClan);
+        reporter.publishEntry("mapping cost per row", String.format(Locale.ROOT, "by name %.0f ns, by index %.0f ns (%.1fx)",
+            legacy - floor, current - floor, (legacy - floor) / Math.max(1, current - floor)));
+    }
+
+    /**
+     * Average nanoseconds per row for running the query and mapping every row.
+     */
+    private static double measure(TestReporter reporter, String label, String sql, Mapper mapper) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (int i = 0; i < WARMUP_ROUNDS; i++) run(ps, mapper);
+            long best = Long.MAX_VALUE;
+            for (int i = 0; i < ROUNDS; i++) {
+                long start = System.nanoTime();
+                run(ps, mapper);
+                best = Math.min(best, System.nanoTime() - start);
+            }
+            double perRow = (double) best / PLAYERS;
+            reporter.publishEntry(label, String.format(Locale.ROOT, "%.0f ns/row (best of %d rounds, %d rows)", perRow, ROUNDS, PLAYERS));
+            return perRow;
+        }
+    }
+
+    private static void run(PreparedStatement ps, Mapper mapper) throws SQLException {
+        int rows = 0;
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                mapper.map(rs);
+                rows++;
+            }
+        }
+        assertEquals(PLAYERS, rows);
+    }
+
+    // Mapping as it was before explicit projections: columns resolved by name, the
+    // ambiguous "id" probed inside a try/catch
+
+    private static ClanPlayerEntity legacyPlayerWithClan(ResultSet rs) throws SQLException {
+        ClanPlayerEntity p = new ClanPlayerEntity();
+        p.setUuid(rs.getString("uuid"));
+        p.setName(rs.getString("name"));
+        String role = rs.getString("role");
+        p.setRole(role == null ? ClanRole.MEMBER : ClanRole.valueOf(role));
+        long js = rs.getLong("joined_at"); if (!rs.wasNull()) p.setJoinedAt(Instant.ofEpochSecond(js));
+        p.setLastSeen(Instant.ofEpochSecond(rs.getLong("last_seen")));
+        p.setPlayerLevel(rs.getInt("player_level"));
+        p.setKills(rs.getInt("kills"));
+        p.setDeaths(rs.getInt("deaths"));
+        p.setClanContribution(rs.getInt("clan_contribution"));
+        p.setInvitedByUuid(rs.getString("invited_by_uuid"));
+        int ipc = rs.getInt("invite_pending_clan_id"); if (!rs.wasNull()) p.setInvitePendingClanId(ipc);
+        long iea = rs.getLong("invite_expires_at"); if (!rs.wasNull()) p.setInviteExpiresAt(Instant.ofEpochSecond(iea));
+        p.setPermissions(rs.getLong("permissions"));
+        int clanId = 0;
+        try { clanId = rs.getInt("id"); } catch (SQLException ignored) {}
+        if (clanId != 0 && !rs.wasNull()) {
+            ClanEntity c = new ClanEntity();
+            c.setId(rs.getInt("id"));
+            c.setName(rs.getString("name"));
+            c.setTag(rs.getString("tag"));
+            c.setDescription(rs.getString("description"));
+            c.setLeaderUuid(rs.getString("leader_uuid"));
+            c.setCreatedAt(Instant.ofEpochSecond(rs.getLong("created_at")));
+            long upd = rs.getLong("updated_at");
+            if (!rs.wasNull()) c.setUpdatedAt(Instant.ofEpochSecond(upd));
+            c.setMaxMembers(rs.getInt("max_members"));
+            c.setIsPublic(rs.getInt("is_public") != 0);
+            c.setMinLevel(rs.getInt("min_level"));
+            c.setTotalKills(rs.getInt("total_kills"));
+            c.setTotalDeaths(rs.getInt("total_deaths"));
+            c.setClanLevel(rs.getInt("clan_level"));
+            c.setClanExp(rs.getInt("clan_exp"));
+            p.setClan(c);
+        }
+        return p;
+    }
+}
@@ -0,0 +1,98 @@
+package com.cruiser.clans.orm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.logging.Logger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.cruiser.clans.orm.entity.RegionFlag;
+
+/**
+ * Schema migrations against an in-memory SQLite database.
+ */
+class SchemaMigrationsTest {
+
+    private static final Logger LOGGER = Logger.getLogger(SchemaMigrationsTest.class.getName());
+    private static final List<SchemaMigrations.Migration> MIGRATIONS = SchemaMigrations.MIGRATIONS;
+    private static final int LATEST = MIGRATIONS.get(MIGRATIONS.size() - 1).version();
+
+    private Connection conn;
+
+    @BeforeEach
+    void open() throws SQLException {
+        conn = DriverManager.getConnection("jdbc:sqlite::memory:");
+    }
+
+    @AfterEach
+    void close() throws SQLException {
+        conn.close();
+    }
+
+    @Test
+    void emptyDatabaseIsMigratedToLatestVersion() throws SQLException {
+        assertEquals(LATEST, SchemaMigrations.migrate(conn, SqlDialect.SQLITE, LOGGER));
+        assertEquals(MIGRATIONS.size(), count("SELECT COUNT(*) FROM schema_version"));
+        assertEquals(0, count("SELECT COUNT(*) FROM clans"));
+        assertEquals(0, count("SELECT COUNT(*) FROM clan_players"));
+        assertEquals(0, count("SELECT COUNT(*) FROM clan_regions WHERE flags <> 0"));
+    }
+
+    @Test
+    void secondRunAppliesNothing() throws SQLException {
+        SchemaMigrations.migrate(conn, SqlDialect.SQLITE, LOGGER);
+        assertEquals(LATEST, SchemaMigrations.migrate(conn, SqlDialect.SQLITE, LOGGER));
+        assertEquals(MIGRATIONS.size(), count("SELECT COUNT(*) FROM schema_version"));
+    }
+
+    @Test
+    void regionsFromBeforeVisitorFlagsKeepDoorsAndRedstone() throws SQLException {
+        // Schema as of version 3, with regions saved before visitor defaults existed
+        migrateTo(3);
+        execute("INSERT INTO clans(name, tag, leader_uuid, created_at) VALUES('Alpha', 'ALP', 'leader-a', 0)");
+        execute("INSERT INTO clans(name, tag, leader_uuid, created_at) VALUES('Beta', 'BET', 'leader-b', 0)");
+        execute("INSERT INTO clan_regions(clan_id, world_name, marker_type, marker1_x, marker1_y, marker1_z) "
+            + "VALUES(1, 'world', 'BEACON', 0, 64, 0)");
+        execute("INSERT INTO clan_regions(clan_id, world_name, marker_type, marker1_x, marker1_y, marker1_z, flags) "
+            + "VALUES(2, 'world', 'BEACON', 100, 64, 100, " + RegionFlag.BUILD.bit() + ")");
+
+        assertEquals(LATEST, SchemaMigrations.migrate(conn, SqlDialect.SQLITE, LOGGER));
+        assertEquals(RegionFlag.VISITOR_DEFAULT, count("SELECT flags FROM clan_regions WHERE clan_id = 1"));
+        // Flags set by the leader are left alone
+        assertEquals(RegionFlag.BUILD.bit(), count("SELECT flags FROM clan_regions WHERE clan_id = 2"));
+    }
+
+    /**
+     * Apply migrations up to {@code version} the way {@link SchemaMigrations#migrate} records them.
+     */
+    private void migrateTo(int version) throws SQLException {
+        execute(SqlDialect.SQLITE.ddl(
+            "CREATE TABLE schema_version (version INTEGER PRIMARY KEY, description {text} NOT NULL, applied_at {long} NOT NULL)"));
+        for (SchemaMigrations.Migration m : MIGRATIONS) {
+            if (m.version() > version) break;
+            for (String sql : m.statements()) execute(SqlDialect.SQLITE.ddl(sql));
+            execute("INSERT INTO schema_version VALUES(" + m.version() + ", '" + m.description() + "', 0)");
+        }
+    }
+
+    private void execute(String sql) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            st.execute(sql);
+        }
+    }
+
+    private long count(String sql) throws SQLException {
+        try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery(sql)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+}
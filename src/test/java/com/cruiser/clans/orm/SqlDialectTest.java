@@ -0,0 +1,166 @@
+package com.cruiser.clans.orm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Dialect SQL run against H2 in MariaDB and PostgreSQL compatibility mode.
+ * <p>
+ * H2 does not accept {@code ON CONFLICT ... DO UPDATE}, so the PostgreSQL upsert is
+ * run on SQLite, which shares that syntax, and checked for its conflict target.
+ */
+class SqlDialectTest {
+
+    private static final Logger LOGGER = Logger.getLogger(SqlDialectTest.class.getName());
+    private static final int LATEST = SchemaMigrations.MIGRATIONS.get(SchemaMigrations.MIGRATIONS.size() - 1).version();
+
+    @Test
+    void mariadbSchemaMigratesWithAutoIncrementKeys() throws SQLException {
+        try (Connection c = h2("MariaDB")) {
+            assertEquals(LATEST, SchemaMigrations.migrate(c, SqlDialect.MARIADB, LOGGER));
+            assertEquals(List.of(1L, 2L), insertClans(c));
+        }
+    }
+
+    @Test
+    void postgresqlSchemaMigratesWithIdentityKeys() throws SQLException {
+        try (Connection c = h2("PostgreSQL")) {
+            assertEquals(LATEST, SchemaMigrations.migrate(c, SqlDialect.POSTGRESQL, LOGGER));
+            assertEquals(List.of(1L, 2L), insertClans(c));
+        }
+    }
+
+    @Test
+    void mariadbUpsertInsertsThenUpdates() throws SQLException {
+        try (Connection c = h2("MariaDB")) {
+            SchemaMigrations.migrate(c, SqlDialect.MARIADB, LOGGER);
+            assertUpsertInsertsThenUpdates(c, SqlDialect.MARIADB);
+        }
+    }
+
+    @Test
+    void postgresqlUpsertInsertsThenUpdates() throws SQLException {
+        String sql = SqlDialect.POSTGRESQL.upsert("clan_players", "uuid", DataManager.PLAYER_UPSERT_COLUMNS);
+        assertTrue(sql.contains("ON CONFLICT(uuid) DO UPDATE SET name=excluded.name"), sql);
+        assertEquals(SqlDialect.SQLITE.upsert("clan_players", "uuid", DataManager.PLAYER_UPSERT_COLUMNS), sql);
+        try (Connection c = DriverManager.getConnection("jdbc:sqlite::memory:")) {
+            SchemaMigrations.migrate(c, SqlDialect.SQLITE, LOGGER);
+            assertUpsertInsertsThenUpdates(c, SqlDialect.POSTGRESQL);
+        }
+    }
+
+    @Test
+    void networkUrlsUseDefaultPortsAndBatchRewriting() {
+        assertEquals("jdbc:mariadb://db:3306/clans?useBulkStmts=true&rewriteBatchedStatements=true&cachePrepStmts=true",
+            SqlDialect.MARIADB.networkUrl("db", 0, "clans"));
+        assertEquals("jdbc:postgresql://db:5433/clans?reWriteBatchedInserts=true&prepareThreshold=1",
+            SqlDialect.POSTGRESQL.networkUrl("db", 5433, "clans"));
+        assertThrows(IllegalStateException.class, () -> SqlDialect.SQLITE.networkUrl("db", 0, "clans"));
+    }
+
+    @Test
+    void serverConnectionsAreMarkedReadOnly() throws SQLException {
+        for (SqlDialect dialect : List.of(SqlDialect.MARIADB, SqlDialect.POSTGRESQL)) {
+            List<Boolean> readOnly = new ArrayList<>();
+            dialect.configure(recordReadOnly(readOnly), true);
+            dialect.configure(recordReadOnly(readOnly), false);
+            assertEquals(List.of(true, false), readOnly, dialect.name());
+        }
+    }
+
+    @Test
+    void sqliteReadConnectionsRejectWrites(@TempDir Path dir) throws SQLException {
+        String url = "jdbc:sqlite:" + dir.resolve("clans.db");
+        try (Connection writer = DriverManager.getConnection(url);
+             Connection reader = DriverManager.getConnection(url)) {
+            SqlDialect.SQLITE.configure(writer, false);
+            SchemaMigrations.migrate(writer, SqlDialect.SQLITE, LOGGER);
+            SqlDialect.SQLITE.configure(reader, true);
+            try (Statement st = reader.createStatement()) {
+                assertThrows(SQLException.class, () -> st.executeUpdate("DELETE FROM clans"));
+            }
+        }
+    }
+
+    private static Connection h2(String mode) throws SQLException {
+        // Each test gets its own private in-memory database
+        return DriverManager.getConnection("jdbc:h2:mem:;MODE=" + mode + ";DATABASE_TO_LOWER=TRUE");
+    }
+
+    private static List<Long> insertClans(Connection c) throws SQLException {
+        List<Long> ids = new ArrayList<>();
+        try (PreparedStatement ps = c.prepareStatement(
+                "INSERT INTO clans(name, tag, leader_uuid, created_at) VALUES(?,?,?,0)", Statement.RETURN_GENERATED_KEYS)) {
+            for (String name : List.of("Alpha", "Beta")) {
+                ps.setString(1, name);
+                ps.setString(2, name.substring(0, 3).toUpperCase());
+                ps.setString(3, "leader-" + name);
+                ps.executeUpdate();
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    keys.next();
+                    ids.add(keys.getLong(1));
+                }
+            }
+        }
+        return ids;
+    }
+
+    private static void assertUpsertInsertsThenUpdates(Connection c, SqlDialect dialect) throws SQLException {
+        String sql = dialect.upsert("clan_players", "uuid", DataManager.PLAYER_UPSERT_COLUMNS);
+        try (PreparedStatement ps = c.prepareStatement(sql)) {
+            for (String name : List.of("Steve", "Alex")) {
+                int i = 1;
+                for (String column : DataManager.PLAYER_UPSERT_COLUMNS) {
+                    switch (column) {
+                        case "uuid" -> ps.setString(i, "00000000-0000-0000-0000-000000000001");
+                        case "name" -> ps.setString(i, name);
+                        case "role" -> ps.setString(i, "MEMBER");
+                        case "kills" -> ps.setInt(i, name.length());
+                        case "clan_id", "invited_by_uuid", "invite_pending_clan_id", "invite_expires_at", "joined_at" ->
+                            ps.setObject(i, null);
+                        default -> ps.setLong(i, 0);
+                    }
+                    i++;
+                }
+                ps.executeUpdate();
+            }
+        }
+        try (Statement st = c.createStatement();
+             ResultSet rs = st.executeQuery("SELECT COUNT(*), MAX(name), MAX(kills) FROM clan_players")) {
+            rs.next();
+            assertEquals(1, rs.getInt(1));
+            assertEquals("Alex", rs.getString(2));
+            assertEquals(4, rs.getInt(3));
+        }
+    }
+
+    /**
+     * Connection stub that records {@link Connection#setReadOnly} calls; H2 ignores the flag.
+     */
+    private static Connection recordReadOnly(List<Boolean> calls) {
+        return (Connection) Proxy.newProxyInstance(SqlDialectTest.class.getClassLoader(), new Class<?>[] {Connection.class},
+            (proxy, method, args) -> {
+                if (method.getName().equals("setReadOnly")) {
+                    calls.add((Boolean) args[0]);
+                    return null;
+                }
+                throw new UnsupportedOperationException(method.getName());
+            });
+    }
+}
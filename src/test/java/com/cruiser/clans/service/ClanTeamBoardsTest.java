@@ -0,0 +1,158 @@
+package com.cruiser.clans.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.bukkit.entity.Player;
+import org.bukkit.scoreboard.Scoreboard;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import org.mockbukkit.mockbukkit.MockBukkit;
+import org.mockbukkit.mockbukkit.ServerMock;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.format.NamedTextColor;
+
+/**
+ * Board sizes and push counts of {@link ClanTeamBoards} for 300 players in 100 clans,
+ * the load its documentation gives figures for.
+ */
+class ClanTeamBoardsTest {
+
+    private static final int PLAYERS = 300;
+    private static final int CLANS = 100;
+
+    private ServerMock server;
+    private Scoreboard main;
+    private ClanTeamBoards boards;
+    // Online members per clan id, in join order
+    private final Map<Integer, List<Player>> members = new LinkedHashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        server = MockBukkit.mock();
+        main = server.getScoreboardManager().getMainScoreboard();
+        boards = new ClanTeamBoards(main);
+        boards.setViewsEnabled(true);
+        // Fixed seed: 300 players land in 94 of the 100 clans
+        Random random = new Random(1);
+        for (int i = 0; i < PLAYERS; i++) {
+            Player player = server.addPlayer("player" + i);
+            int clanId = random.nextInt(CLANS);
+            members.computeIfAbsent(clanId, id -> new ArrayList<>()).add(player);
+            join(player, clanId);
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        MockBukkit.unmock();
+    }
+
+    @Test
+    void sizesMatchDocumentedBounds(TestReporter reporter) {
+        ClanTeamBoards.Stats stats = boards.stats();
+        reporter.publishEntry(PLAYERS + " players in " + CLANS + " clans", stats.toString());
+
+        int online = members.size();
+        assertEquals(94, online);
+        assertEquals(online, stats.views());
+        assertEquals(online * (online + 1), stats.teams());
+        assertEquals(PLAYERS * (online + 1), stats.entries());
+        assertEquals(online, main.getTeams().size());
+    }
+
+    @Test
+    void membersSeeOwnPrefixOnlyOnTheirView() {
+        Map.Entry<Integer, List<Player>> first = members.entrySet().iterator().next();
+        int clanId = first.getKey();
+        int otherId = members.keySet().stream().filter(id -> id != clanId).findFirst().orElseThrow();
+        Player viewer = first.getValue().get(0);
+
+        Scoreboard view = viewer.getScoreboard();
+        assertNotSame(main, view);
+        assertEquals(ownPrefix(clanId), view.getTeam(team(clanId)).prefix());
+        assertEquals(prefix(otherId), view.getTeam(team(otherId)).prefix());
+        assertEquals(prefix(clanId), main.getTeam(team(clanId)).prefix());
+        for (Player member : first.getValue()) {
+            assertSame(view, member.getScoreboard());
+            assertTrue(view.getTeam(team(clanId)).hasEntry(member.getName()));
+        }
+        for (Player member : members.get(otherId)) {
+            assertTrue(view.getTeam(team(otherId)).hasEntry(member.getName()));
+        }
+    }
+
+    @Test
+    void changesTouchOneTeamPerBoard(TestReporter reporter) {
+        int views = boards.stats().views();
+        Player mover = members.values().iterator().next().get(0);
+        int target = members.keySet().stream().reduce((a, b) -> b).orElseThrow();
+
+        long before = boards.stats().pushes();
+        boards.leave(mover);
+        long leave = boards.stats().pushes() - before;
+        join(mover, target);
+        long rejoin = boards.stats().pushes() - before - leave;
+        reporter.publishEntry("pushes with " + views + " views", "leave " + leave + ", join " + rejoin);
+
+        assertTrue(leave <= views + 1, "leave pushed " + leave);
+        assertTrue(rejoin <= views + 1, "join pushed " + rejoin);
+        assertSame(members.get(target).get(0).getScoreboard(), mover.getScoreboard());
+        assertFalse(boards.join(mover, target, prefix(target), ownPrefix(target)));
+    }
+
+    @Test
+    void lastMemberLeavingDropsTeamAndView() {
+        int clanId = members.keySet().iterator().next();
+        int views = boards.stats().views();
+        for (Player member : members.get(clanId)) {
+            boards.leave(member);
+            assertSame(main, member.getScoreboard());
+        }
+
+        assertEquals(views - 1, boards.stats().views());
+        assertNull(main.getTeam(team(clanId)));
+        Player other = members.values().stream().skip(1).findFirst().orElseThrow().get(0);
+        assertNull(other.getScoreboard().getTeam(team(clanId)));
+    }
+
+    @Test
+    void disablingViewsMovesEveryoneToMainBoard() {
+        boards.setViewsEnabled(false);
+
+        assertEquals(0, boards.stats().views());
+        assertEquals(0, main.getTeams().size());
+        for (List<Player> clan : members.values()) {
+            for (Player member : clan) assertSame(main, member.getScoreboard());
+        }
+    }
+
+    private void join(Player player, int clanId) {
+        boards.join(player, clanId, prefix(clanId), ownPrefix(clanId));
+    }
+
+    private static String team(int clanId) {
+        return "clan_" + clanId;
+    }
+
+    private static Component prefix(int clanId) {
+        return Component.text("[C" + clanId + "] ", NamedTextColor.GRAY);
+    }
+
+    private static Component ownPrefix(int clanId) {
+        return Component.text("[C" + clanId + "] ", NamedTextColor.GREEN);
+    }
+}